@@ -0,0 +1,111 @@
+package com.example.food
+
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.example.food.data.Review
+import com.example.food.data.ReviewCodec
+import com.google.android.gms.tasks.Tasks
+import com.google.firebase.Timestamp
+import com.google.firebase.firestore.FirebaseFirestore
+import com.google.firebase.firestore.Source
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.TimeUnit
+
+/**
+ * Compares DocumentSnapshot.toObject(Review.class) with ReviewCodec.decode on review documents
+ * served from the local cache. The network stays disabled so nothing is written to the backend.
+ */
+@RunWith(AndroidJUnit4::class)
+class ReviewCodecBenchmark {
+    private val db = FirebaseFirestore.getInstance()
+
+    @Before
+    fun setUp() {
+        Tasks.await(db.disableNetwork(), 10, TimeUnit.SECONDS)
+        val collection = db.collection(COLLECTION)
+        for (i in 0 until DOCUMENT_COUNT) {
+            // Offline writes never complete, they are applied to the cache straight away
+            collection.document("review_$i").set(sampleReview(i))
+        }
+    }
+
+    @After
+    fun tearDown() {
+        // Drop the queued offline writes so they are never synced
+        Tasks.await(db.terminate(), 10, TimeUnit.SECONDS)
+        Tasks.await(db.clearPersistence(), 10, TimeUnit.SECONDS)
+    }
+
+    @Test
+    fun decodeReviews() {
+        val snapshot = Tasks.await(db.collection(COLLECTION).get(Source.CACHE), 30, TimeUnit.SECONDS)
+        val documents = snapshot.documents
+        assertEquals(DOCUMENT_COUNT, documents.size)
+
+        var reflectionNanos = Long.MAX_VALUE
+        var codecNanos = Long.MAX_VALUE
+        repeat(ROUNDS) {
+            var start = System.nanoTime()
+            for (document in documents) {
+                val review = document.toObject(Review::class.java)!!
+                review.id = document.id
+                review.refreshAccuracyFromVotes()
+            }
+            reflectionNanos = minOf(reflectionNanos, System.nanoTime() - start)
+
+            start = System.nanoTime()
+            for (document in documents) {
+                ReviewCodec.decode(document.id, document.data!!)
+            }
+            codecNanos = minOf(codecNanos, System.nanoTime() - start)
+        }
+        Log.i(TAG, "toObject: ${reflectionNanos / 1000} us, ReviewCodec: ${codecNanos / 1000} us for $DOCUMENT_COUNT reviews")
+
+        // Both paths must agree on what they decode
+        val document = documents[0]
+        val expected = document.toObject(Review::class.java)!!
+        val actual = ReviewCodec.decode(document.id, document.data!!)
+        assertEquals(expected.caption, actual.caption)
+        assertEquals(expected.rating, actual.rating, 0f)
+        assertEquals(expected.createdAt, actual.createdAt)
+        assertEquals(expected.votes, actual.votes)
+        assertEquals(expected.authorName, actual.authorName)
+    }
+
+    private fun sampleReview(i: Int): Map<String, Any> {
+        val votes = HashMap<String, Any>()
+        for (v in 0 until 5) {
+            votes["voter_$v"] = mapOf("accurate" to (v % 2 == 0), "timestamp" to Timestamp.now())
+        }
+        return mapOf(
+            "userId" to "user_${i % 20}",
+            "restaurantId" to "restaurant_${i % 50}",
+            "caption" to "Review $i",
+            "description" to "A longer description for review number $i",
+            "rating" to (i % 5) + 1.0,
+            "accuracy" to 80,
+            "accuracyPercent" to 60.0,
+            "imageUrls" to listOf("https://example.com/$i/a.jpg", "https://example.com/$i/b.jpg"),
+            "firstImageType" to "image",
+            "createdAt" to Timestamp.now(),
+            "updatedAt" to Timestamp.now(),
+            "votes" to votes,
+            "accurateCount" to 3,
+            "totalVotes" to 5,
+            "commentCount" to 2,
+            "authorName" to "User ${i % 20}",
+            "authorAvatarVersion" to 1
+        )
+    }
+
+    companion object {
+        private const val TAG = "ReviewCodecBenchmark"
+        private const val COLLECTION = "codecBenchmark"
+        private const val DOCUMENT_COUNT = 500
+        private const val ROUNDS = 5
+    }
+}
@@ -14,7 +14,6 @@ import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.AutoCompleteTextView;
 import android.widget.Button;
 import androidx.appcompat.widget.AppCompatButton;
@@ -31,10 +30,13 @@ import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
 import androidx.fragment.app.Fragment;
 
+import com.example.food.adapters.RestaurantSuggestionAdapter;
 import com.example.food.data.Review;
 import com.example.food.model.Restaurant;
+import com.example.food.service.RestaurantRepository;
 import com.example.food.service.ReviewService;
 import com.example.food.services.UserStatsService;
+import com.google.android.gms.location.LocationServices;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.storage.FirebaseStorage;
@@ -68,7 +70,6 @@ public class AddFragment extends Fragment {
     private ImageView btnDelete1, btnDelete2, btnDelete3, btnDelete4, btnDelete5;
     private ImageView star1, star2, star3, star4, star5;
     
-    private List<Restaurant> restaurants;
     private Restaurant selectedRestaurant;
     private List<Uri> selectedImageUris;
     private List<String> uploadedImageUrls;
@@ -124,7 +125,6 @@ public class AddFragment extends Fragment {
         star4 = view.findViewById(R.id.star_4);
         star5 = view.findViewById(R.id.star_5);
         
-        restaurants = new ArrayList<>();
         selectedImageUris = new ArrayList<>();
         uploadedImageUrls = new ArrayList<>();
         
@@ -145,8 +145,10 @@ public class AddFragment extends Fragment {
         
         // restaurant search
         etRestaurantSearch.setOnItemClickListener((parent, view, position, id) -> {
-            String selectedName = (String) parent.getItemAtPosition(position);
-            selectedRestaurant = findRestaurantByName(selectedName);
+            // Resolved by id, two places can share a name
+            Restaurant picked = (Restaurant) parent.getItemAtPosition(position);
+            Restaurant fromCatalog = RestaurantRepository.getInstance().getRestaurant(picked.getId());
+            selectedRestaurant = fromCatalog != null ? fromCatalog : picked;
         });
         
         // rating input listener
@@ -218,44 +220,34 @@ public class AddFragment extends Fragment {
     }
     
     private void loadRestaurants() {
-        db.collection("restaurants")
-            .get()
-            .addOnSuccessListener(queryDocumentSnapshots -> {
-                restaurants.clear();
-                for (com.google.firebase.firestore.DocumentSnapshot document : queryDocumentSnapshots.getDocuments()) {
-                    Restaurant restaurant = document.toObject(Restaurant.class);
-                    if (restaurant != null) {
-                        restaurant.setId(document.getId());
-                        restaurants.add(restaurant);
-                    }
-                }
-                setupRestaurantSearch();
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Error loading restaurants", e);
-                Toast.makeText(getContext(), "Failed to load restaurants", Toast.LENGTH_SHORT).show();
-            });
+        // The shared catalog is decoded off the main thread, reuse it instead of reading the collection again
+        RestaurantRepository.getInstance().whenReady(() -> {
+            if (!isAdded() || getContext() == null) {
+                return;
+            }
+            setupRestaurantSearch();
+        });
     }
     
     private void setupRestaurantSearch() {
-        List<String> restaurantNames = new ArrayList<>();
-        for (Restaurant restaurant : restaurants) {
-            restaurantNames.add(restaurant.getName());
-        }
-        
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(getContext(), 
-            R.layout.simple_dropdown_item_white, restaurantNames);
+        RestaurantSuggestionAdapter adapter = new RestaurantSuggestionAdapter(getContext());
         etRestaurantSearch.setAdapter(adapter);
         etRestaurantSearch.setDropDownBackgroundDrawable(ContextCompat.getDrawable(getContext(), R.drawable.rounded_background));
-    }
-    
-    private Restaurant findRestaurantByName(String name) {
-        for (Restaurant restaurant : restaurants) {
-            if (restaurant.getName().equals(name)) {
-                return restaurant;
+
+        // Places near the user come first when their location is known, nothing is requested here
+        if (ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED
+                || ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.ACCESS_COARSE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
+            try {
+                LocationServices.getFusedLocationProviderClient(requireContext()).getLastLocation()
+                        .addOnSuccessListener(location -> {
+                            if (location != null) {
+                                adapter.setOrigin(location.getLatitude(), location.getLongitude());
+                            }
+                        });
+            } catch (SecurityException e) {
+                Log.w(TAG, "Location unavailable for restaurant suggestions", e);
             }
         }
-        return null;
     }
     
     private void updateStarDisplay() {
@@ -544,14 +536,20 @@ public class AddFragment extends Fragment {
             .get()
             .addOnSuccessListener(documentSnapshot -> {
                 String userAvatarUrl = null;
+                Long avatarVersion = null;
+                String profileName = null;
                 if (documentSnapshot.exists()) {
                     userAvatarUrl = documentSnapshot.getString("avatarUrl");
+                    avatarVersion = documentSnapshot.getLong("avatarVersion");
+                    profileName = documentSnapshot.getString("name");
                 }
                 
                 Review review = new Review();
                 review.setUserId(userId);
-                review.setUserName(finalUserName);
+                // Profile name is what other screens show, it becomes the review's author snapshot
+                review.setUserName(profileName != null && !profileName.isEmpty() ? profileName : finalUserName);
                 review.setUserAvatarUrl(userAvatarUrl);
+                review.setAuthorAvatarVersion(avatarVersion != null ? avatarVersion : 0L);
                 // userName and restaurantName are not stored - they will be fetched dynamically
                 review.setRestaurantId(selectedRestaurant.getId());
                 review.setCaption(caption);
@@ -594,7 +592,8 @@ public class AddFragment extends Fragment {
                 // Still create review without avatar URL
                 Review review = new Review();
                 review.setUserId(userId);
-                review.setUserName(finalUserName);
+                // No author snapshot without the profile, lists fall back to a users lookup
+                review.setUserName(null);
                 review.setUserAvatarUrl(null);
                 review.setRestaurantId(selectedRestaurant.getId());
                 review.setCaption(caption);
@@ -20,6 +20,9 @@ import androidx.core.content.FileProvider
 import androidx.activity.result.contract.ActivityResultContracts
 import androidx.fragment.app.DialogFragment
 import com.bumptech.glide.Glide
+import com.example.food.cache.ProfileCacheManager
+import com.example.food.service.AuthorSnapshotFanout
+import com.example.food.service.UserDirectory
 import com.google.android.material.button.MaterialButton
 import com.google.firebase.auth.FirebaseAuth
 import com.google.firebase.firestore.FirebaseFirestore
@@ -317,10 +320,15 @@ class ChangeProfilePictureDialogFragment : DialogFragment() {
         
         Log.d(TAG, "Updating Firestore with new image URL")
         
+        // avatarVersion lets review author snapshots and image caches tell a new avatar apart
+        val appContext = requireContext().applicationContext
         db.collection("users").document(currentUser.uid)
-            .update("avatarUrl", imageUrl)
+            .update("avatarUrl", imageUrl, "avatarVersion", System.currentTimeMillis())
             .addOnSuccessListener { _ ->
                 Log.d(TAG, "Successfully updated avatarUrl in Firestore")
+                UserDirectory.getInstance().invalidate(currentUser.uid)
+                ProfileCacheManager.getInstance(appContext).invalidate(currentUser.uid)
+                AuthorSnapshotFanout.schedule(appContext, currentUser.uid)
                 Toast.makeText(requireContext(), getString(R.string.profile_picture_updated_successfully), Toast.LENGTH_SHORT).show()
                 listener?.onProfilePictureChanged()
                 dismiss()
@@ -346,9 +354,13 @@ class ChangeProfilePictureDialogFragment : DialogFragment() {
         if (currentUser == null) return
         
         // first update database to remove avatarUrl
+        val appContext = requireContext().applicationContext
         db.collection("users").document(currentUser.uid)
-            .update("avatarUrl", "")
+            .update("avatarUrl", "", "avatarVersion", System.currentTimeMillis())
             .addOnSuccessListener { _ ->
+                UserDirectory.getInstance().invalidate(currentUser.uid)
+                ProfileCacheManager.getInstance(appContext).invalidate(currentUser.uid)
+                AuthorSnapshotFanout.schedule(appContext, currentUser.uid)
                 // then try to delete from storage
                 val supabaseService = SupabaseStorageService(requireContext())
                 CoroutineScope(Dispatchers.Main).launch {
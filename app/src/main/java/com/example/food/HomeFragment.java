@@ -20,22 +20,30 @@ import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.example.food.adapters.ReviewWidgetAdapter;
+import com.example.food.cache.FeedStore;
 import com.example.food.data.Review;
 import com.example.food.dialogs.ReviewDetailsDialog;
 import com.example.food.model.Restaurant;
+import com.example.food.search.FeedSearch;
+import com.example.food.service.RestaurantRepository;
 import com.example.food.service.ReviewService;
+import com.example.food.service.UserDirectory;
+import com.example.food.service.WarmupScheduler;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class HomeFragment extends Fragment {
     private static final String TAG = "HomeFragment";
+    private static final int PREFETCH_THRESHOLD = 6; // items from the end that trigger the next page
+    private static final long STALE_AFTER = 2 * 60 * 1000; // Shown again after this, the tab refreshes
     
     private RecyclerView rvReviews;
     private ReviewWidgetAdapter reviewAdapter;
@@ -44,10 +52,18 @@ public class HomeFragment extends Fragment {
     private LinearLayout layoutEmptyState;
     
     private ReviewService reviewService;
+    private FeedStore feedStore;
+    private FeedSearch feedSearch;
     private List<Review> allReviews;
     private Map<String, Restaurant> restaurantMap;
-    private Map<String, String> userNamesMap; // Cache for user names
     private FirebaseFirestore db;
+    
+    // Feed paging state
+    private DocumentSnapshot lastReviewDocument;
+    private boolean hasMoreReviews = true;
+    private boolean isLoadingPage = false;
+    private int feedGeneration = 0;
+    private long lastRefreshAt;
 
     @Nullable
     @Override
@@ -60,9 +76,10 @@ public class HomeFragment extends Fragment {
         setupSearch();
         
         reviewService = new ReviewService();
+        feedStore = FeedStore.getInstance(requireContext());
+        feedSearch = new FeedSearch();
         allReviews = new ArrayList<>();
         restaurantMap = new HashMap<>();
-        userNamesMap = new HashMap<>();
         db = FirebaseFirestore.getInstance();
         
         loadReviews();
@@ -70,6 +87,33 @@ public class HomeFragment extends Fragment {
         return view;
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        feedSearch.shutdown();
+    }
+
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        // The tab is kept while hidden, only fetch what changed if it has gone stale
+        if (!hidden && isAdded() && isStale()) {
+            refreshReviews();
+        }
+    }
+
+    private boolean isStale() {
+        return System.currentTimeMillis() - lastRefreshAt > STALE_AFTER
+                || ReviewService.getLastLocalWriteAt() > lastRefreshAt;
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        // Authors and restaurants resolved since the last page are saved too
+        persistFeed();
+    }
+
     private void initViews(View view) {
         rvReviews = view.findViewById(R.id.rv_posts);
         swipeRefreshLayout = view.findViewById(R.id.swipe_refresh_layout);
@@ -88,11 +132,18 @@ public class HomeFragment extends Fragment {
                     for (int i = 0; i < allReviews.size(); i++) {
                         if (allReviews.get(i).getId().equals(updatedReview.getId())) {
                             allReviews.set(i, updatedReview);
+                            feedSearch.index(java.util.Collections.singletonList(updatedReview));
                             reviewAdapter.notifyItemChanged(i);
                             break;
                         }
                     }
                 });
+                dialog.setOnReviewDeletedListener(deletedReview -> {
+                    // Delta refreshes do not see deletions, drop it here
+                    allReviews.removeIf(r -> deletedReview.getId().equals(r.getId()));
+                    feedSearch.remove(deletedReview.getId());
+                    updateUI();
+                });
                 dialog.show();
             }
             
@@ -110,12 +161,7 @@ public class HomeFragment extends Fragment {
                         }
                     } else {
                         // view someone else's profile
-                        ProfileFragment profileFragment = ProfileFragment.newInstance(userId);
-                        getActivity().getSupportFragmentManager()
-                            .beginTransaction()
-                            .replace(R.id.fragment_container, profileFragment)
-                            .addToBackStack(null)
-                            .commit();
+                        ((MainActivity) getActivity()).openUserProfile(userId);
                     }
                 }
             }
@@ -140,8 +186,22 @@ public class HomeFragment extends Fragment {
         
         rvReviews.setAdapter(reviewAdapter);
         
-        // Set restaurant map to adapter
-        reviewAdapter.setRestaurantMap(restaurantMap);
+        // Prefetch the next page before the user reaches the end of the feed
+        rvReviews.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0) return;
+                
+                int[] lastVisible = layoutManager.findLastVisibleItemPositions(null);
+                int lastPosition = 0;
+                for (int position : lastVisible) {
+                    lastPosition = Math.max(lastPosition, position);
+                }
+                if (lastPosition >= layoutManager.getItemCount() - PREFETCH_THRESHOLD) {
+                    loadNextPage();
+                }
+            }
+        });
     }
 
     private void setupSwipeRefresh() {
@@ -160,206 +220,267 @@ public class HomeFragment extends Fragment {
             @Override
             public void afterTextChanged(Editable s) {
                 String query = s.toString().trim();
-                filterReviews(query);
+                if (query.isEmpty()) {
+                    filterReviews(query);
+                } else {
+                    // Waits for typing to pause, each keystroke replaces the pending search
+                    feedSearch.searchDebounced(query, HomeFragment.this::showSearchResults);
+                }
             }
         });
     }
 
 
     private void loadReviews() {
+        lastRefreshAt = System.currentTimeMillis();
         showLoading(true);
-        
-        reviewService.loadReviews(new ReviewService.ReviewsLoadCallback() {
-            @Override
-            public void onSuccess(List<Review> reviews) {
-                if (getActivity() == null) return;
-                
-                getActivity().runOnUiThread(() -> {
-                    allReviews.clear();
-                    allReviews.addAll(reviews);
-                    loadUserInfoForReviews(reviews);
-                    loadRestaurants();
-                    showLoading(false);
-                });
-            }
+        resetPaging();
+        restoreStoredFeed();
+        loadNextPage();
+    }
 
-            @Override
-            public void onError(Exception e) {
-                if (getActivity() == null) return;
-                
-                getActivity().runOnUiThread(() -> {
-                    showLoading(false);
-                    showError("Failed to load reviews: " + e.getMessage());
-                    Log.e(TAG, "Error loading reviews", e);
-                });
-            }
+    /**
+     * Show the feed saved by the last session while the first page is fetched,
+     * the network page replaces it when it arrives
+     */
+    private void restoreStoredFeed() {
+        feedStore.load(reviews -> {
+            boolean networkPageArrived = lastReviewDocument != null || !hasMoreReviews;
+            if (!isAdded() || networkPageArrived || !allReviews.isEmpty() || reviews.isEmpty()) return;
+
+            allReviews.addAll(reviews);
+            feedSearch.index(reviews);
+            updateUI();
+            loadRestaurants(reviews);
         });
     }
 
+    private void persistFeed() {
+        // Only a feed backed by a network page is stored, re-saving the restored copy would keep it alive forever
+        if (feedStore != null && lastReviewDocument != null) {
+            feedStore.save(allReviews);
+        }
+    }
+
+    /**
+     * Pull-to-refresh only fetches reviews changed after the newest one we hold
+     */
     private void refreshReviews() {
-        reviewService.loadReviews(new ReviewService.ReviewsLoadCallback() {
+        lastRefreshAt = System.currentTimeMillis();
+        Date watermark = ReviewService.getWatermark(allReviews);
+        if (watermark == null) {
+            resetPaging();
+            loadNextPage();
+            return;
+        }
+
+        reviewService.loadReviewsUpdatedSince(watermark, new ReviewService.ReviewsLoadCallback() {
             @Override
-            public void onSuccess(List<Review> reviews) {
-                if (getActivity() == null) return;
-                
-                getActivity().runOnUiThread(() -> {
-                    allReviews.clear();
-                    allReviews.addAll(reviews);
-                    loadUserNames();
-                    loadRestaurants();
-                    swipeRefreshLayout.setRefreshing(false);
-                });
+            public void onSuccess(List<Review> changes) {
+                if (!isAdded()) return;
+                swipeRefreshLayout.setRefreshing(false);
+
+                List<Review> visibleChanges = getChangesWithinLoadedPages(changes);
+                if (visibleChanges.isEmpty()) return;
+
+                ReviewService.mergeReviews(allReviews, visibleChanges);
+                feedSearch.index(visibleChanges);
+                updateUI();
+                loadUserInfoForReviews(visibleChanges);
+                loadRestaurants(visibleChanges);
+                persistFeed();
             }
 
             @Override
             public void onError(Exception e) {
-                if (getActivity() == null) return;
-                
-                getActivity().runOnUiThread(() -> {
-                    swipeRefreshLayout.setRefreshing(false);
-                    showError("Failed to refresh reviews");
-                    Log.e(TAG, "Error refreshing reviews", e);
-                });
+                if (!isAdded()) return;
+                swipeRefreshLayout.setRefreshing(false);
+                showError("Failed to refresh reviews");
+                Log.e(TAG, "Error refreshing reviews", e);
             }
         });
     }
 
-    private void loadUserNames() {
-        if (allReviews.isEmpty()) {
-            return;
+    /**
+     * Drop changes to reviews older than the last loaded page, they arrive with that page later
+     */
+    private List<Review> getChangesWithinLoadedPages(List<Review> changes) {
+        if (!hasMoreReviews || allReviews.isEmpty()) {
+            return changes;
         }
-
-        List<String> userIds = new ArrayList<>();
+        Date oldestLoaded = allReviews.get(allReviews.size() - 1).getCreatedAt();
+        java.util.Set<String> loadedIds = new java.util.HashSet<>();
         for (Review review : allReviews) {
-            if (review.getUserId() != null && !userIds.contains(review.getUserId())) {
-                userIds.add(review.getUserId());
+            loadedIds.add(review.getId());
+        }
+
+        List<Review> visibleChanges = new ArrayList<>();
+        for (Review change : changes) {
+            if (loadedIds.contains(change.getId()) || oldestLoaded == null
+                    || (change.getCreatedAt() != null && !change.getCreatedAt().before(oldestLoaded))) {
+                visibleChanges.add(change);
             }
         }
+        return visibleChanges;
+    }
+
+    private void resetPaging() {
+        // Pages still in flight from before the reset are ignored
+        feedGeneration++;
+        lastReviewDocument = null;
+        hasMoreReviews = true;
+        isLoadingPage = false;
+    }
 
-        if (userIds.isEmpty()) {
+    /**
+     * Fetch the next page after the current cursor and append it to the feed
+     */
+    private void loadNextPage() {
+        if (isLoadingPage || !hasMoreReviews) {
             return;
         }
+        isLoadingPage = true;
+        int generation = feedGeneration;
+        boolean firstPage = lastReviewDocument == null;
+        // Startup warmup holds back while the page the user is waiting for loads
+        WarmupScheduler warmup = WarmupScheduler.getInstance();
+        warmup.foregroundStarted();
 
-        int batchSize = 10;
-        for (int i = 0; i < userIds.size(); i += batchSize) {
-            int endIndex = Math.min(i + batchSize, userIds.size());
-            List<String> batch = userIds.subList(i, endIndex);
-            
-            db.collection("users")
-                .whereIn("__name__", batch)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    for (QueryDocumentSnapshot document : querySnapshot) {
-                        String userId = document.getId();
-                        String userName = document.getString("name");
-                        if (userName == null || userName.trim().isEmpty()) {
-                            userName = document.getString("username");
-                        }
-                        if (userName != null && !userName.trim().isEmpty()) {
-                            userNamesMap.put(userId, userName);
-                            for (Review review : allReviews) {
-                                if (review.getUserId().equals(userId)) {
-                                    review.setUserName(userName);
-                                }
-                            }
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading user batch", e);
-                });
-        }
+        reviewService.loadReviewPage(lastReviewDocument, new ReviewService.ReviewPageCallback() {
+            @Override
+            public void onSuccess(ReviewService.ReviewPage page) {
+                warmup.foregroundFinished();
+                if (!isAdded() || generation != feedGeneration) return;
+
+                isLoadingPage = false;
+                lastReviewDocument = page.getLastDocument();
+                hasMoreReviews = page.hasMore();
+
+                List<Review> pageReviews = page.getReviews();
+                if (firstPage) {
+                    allReviews.clear();
+                    allReviews.addAll(pageReviews);
+                    feedSearch.clear();
+                    feedSearch.index(pageReviews);
+                    updateUI();
+                } else {
+                    int start = allReviews.size();
+                    allReviews.addAll(pageReviews);
+                    feedSearch.index(pageReviews);
+                    showAppendedReviews(start, pageReviews.size());
+                }
+                showLoading(false);
+
+                // Authors and restaurants are resolved per page as it arrives
+                loadUserInfoForReviews(pageReviews);
+                loadRestaurants(pageReviews);
+                persistFeed();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                warmup.foregroundFinished();
+                if (!isAdded() || generation != feedGeneration) return;
+
+                isLoadingPage = false;
+                showLoading(false);
+                showError(firstPage ? "Failed to load reviews: " + e.getMessage() : "Failed to load more reviews");
+                Log.e(TAG, "Error loading review page", e);
+            }
+        });
     }
 
-    private void loadRestaurants() {
-        if (allReviews.isEmpty()) {
-            updateUI();
-            return;
+    private void showAppendedReviews(int start, int count) {
+        if (reviewAdapter == null || count == 0) return;
+
+        String query = etSearch != null ? etSearch.getText().toString().trim() : "";
+        if (reviewAdapter.isShowing(allReviews)) {
+            // Adapter shares allReviews, only the new range needs binding.
+            // Also true while the first results for a new query are still on their way
+            reviewAdapter.notifyItemRangeInserted(start, count);
+            updateEmptyState();
+        }
+        if (!query.isEmpty()) {
+            filterReviews(query);
         }
+    }
 
-        List<String> restaurantIds = new ArrayList<>();
-        for (Review review : allReviews) {
-            if (review.getRestaurantId() != null && !restaurantIds.contains(review.getRestaurantId())) {
+    private void loadRestaurants(List<Review> reviews) {
+        java.util.Set<String> restaurantIds = new java.util.HashSet<>();
+        for (Review review : reviews) {
+            if (review.getRestaurantId() != null && !restaurantMap.containsKey(review.getRestaurantId())) {
                 restaurantIds.add(review.getRestaurantId());
+            } else if (review.getRestaurantId() != null) {
+                setRestaurantName(review);
             }
         }
 
         if (restaurantIds.isEmpty()) {
-            updateUI();
+            feedSearch.index(reviews);
             return;
         }
 
-        for (String restaurantId : restaurantIds) {
-            db.collection("restaurants")
-                .document(restaurantId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        try {
-                            Restaurant restaurant = documentSnapshot.toObject(Restaurant.class);
-                            if (restaurant != null) {
-                                restaurant.setId(documentSnapshot.getId());
-                                restaurantMap.put(restaurantId, restaurant);
-                            }
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error parsing restaurant document", e);
-                        }
-                    }
-                    updateUI();
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading restaurant: " + restaurantId, e);
-                    updateUI();
-                });
+        RestaurantRepository repository = RestaurantRepository.getInstance();
+        repository.whenReady(() -> {
+            if (!isAdded()) return;
+            restaurantMap.putAll(repository.getRestaurants(restaurantIds));
+            // Names go on the reviews too, for search and for the stored feed
+            for (Review review : reviews) {
+                setRestaurantName(review);
+            }
+            feedSearch.index(reviews);
+            if (reviewAdapter != null) {
+                reviewAdapter.setRestaurantMap(restaurantMap);
+            }
+        });
+    }
+
+    private void setRestaurantName(Review review) {
+        Restaurant restaurant = restaurantMap.get(review.getRestaurantId());
+        if (restaurant != null && restaurant.getName() != null) {
+            review.setRestaurantName(restaurant.getName());
         }
     }
 
     private void filterReviews(String query) {
-        if (reviewAdapter != null) {
-            // Enhanced filtering based on review content, user names, and restaurant names
-            List<Review> filteredReviews = new ArrayList<>();
-            if (query == null || query.trim().isEmpty()) {
-                filteredReviews.addAll(allReviews);
-            } else {
-                String lowerCaseQuery = query.toLowerCase().trim();
-                for (Review review : allReviews) {
-                    boolean matches = false;
-                    
-                    // Search in description
-                    if (review.getDescription() != null && review.getDescription().toLowerCase().contains(lowerCaseQuery)) {
-                        matches = true;
-                    }
-                    
-                    // Search in caption
-                    if (!matches && review.getCaption() != null && review.getCaption().toLowerCase().contains(lowerCaseQuery)) {
-                        matches = true;
-                    }
-                    
-                    // Search in restaurant name
-                    if (!matches && review.getRestaurantName() != null && review.getRestaurantName().toLowerCase().contains(lowerCaseQuery)) {
-                        matches = true;
-                    }
-                    
-                    // Search in user name
-                    if (!matches && review.getUserName() != null && review.getUserName().toLowerCase().contains(lowerCaseQuery)) {
-                        matches = true;
-                    }
-                    
-                    if (matches) {
-                        filteredReviews.add(review);
-                    }
-                }
-            }
-            reviewAdapter.setReviews(filteredReviews);
+        if (reviewAdapter == null) return;
+
+        if (query == null || query.trim().isEmpty()) {
+            feedSearch.cancel();
+            // Keep the adapter on allReviews so appended pages can be inserted in place
+            reviewAdapter.setReviews(allReviews);
             updateEmptyState();
+            return;
+        }
+
+        // Matched against description, caption, restaurant and user names on the index thread,
+        // then ranked by relevance, recency, accuracy and author credibility
+        feedSearch.search(query, this::showSearchResults);
+    }
+
+    private void showSearchResults(List<String> matches) {
+        if (!isAdded() || reviewAdapter == null) return;
+        Map<String, Review> byId = new HashMap<>();
+        for (Review review : allReviews) {
+            byId.put(review.getId(), review);
+        }
+        // Kept in ranked order, best match first
+        List<Review> filteredReviews = new ArrayList<>();
+        for (String reviewId : matches) {
+            Review review = byId.get(reviewId);
+            if (review != null) {
+                filteredReviews.add(review);
+            }
         }
+        // Diffed so narrowing the query only animates the cards that drop out
+        reviewAdapter.submitReviews(filteredReviews, this::updateEmptyState);
     }
 
     private void updateUI() {
         if (reviewAdapter != null) {
-            reviewAdapter.setReviews(allReviews);
             reviewAdapter.setRestaurantMap(restaurantMap);
-            updateEmptyState();
+            // Reapply an active search so a refresh does not clear it
+            filterReviews(etSearch != null ? etSearch.getText().toString().trim() : "");
         }
     }
 
@@ -390,45 +511,44 @@ public class HomeFragment extends Fragment {
     private void loadUserInfoForReviews(List<Review> reviews) {
         if (reviews.isEmpty()) return;
         
-        // Get unique user IDs
+        // Only reviews saved before author snapshots existed need a users lookup
         java.util.Set<String> userIds = new java.util.HashSet<>();
         for (Review review : reviews) {
-            if (review.getUserId() != null) {
+            if (review.getUserId() != null && !review.hasAuthorSnapshot()) {
                 userIds.add(review.getUserId());
             }
         }
+        if (userIds.isEmpty()) return;
         
-        // Load user information for each unique user
-        for (String userId : userIds) {
-            db.collection("users").document(userId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        String userName = documentSnapshot.getString("name");
-                        String userAvatarUrl = documentSnapshot.getString("avatarUrl");
-                        
-                        // Update all reviews for this user
-                        for (Review review : allReviews) {
-                            if (userId.equals(review.getUserId())) {
-                                if (userName != null) {
-                                    review.setUserName(userName);
-                                }
-                                if (userAvatarUrl != null) {
-                                    review.setUserAvatarUrl(userAvatarUrl);
-                                }
-                            }
-                        }
-                        
-                        // Notify adapter of changes
-                        if (reviewAdapter != null) {
-                            reviewAdapter.notifyDataSetChanged();
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading user info for user: " + userId, e);
-                });
-        }
+        // Resolved in batches through the shared directory instead of one read per user
+        UserDirectory.getInstance().getUsers(userIds, users -> {
+            if (!isAdded() || users.isEmpty()) return;
+            
+            List<Review> named = new ArrayList<>();
+            Map<String, Double> credibility = new HashMap<>();
+            for (UserDirectory.UserInfo user : users.values()) {
+                credibility.put(user.getUid(), user.getCredibilityScore());
+            }
+            feedSearch.setCredibility(credibility);
+            for (Review review : allReviews) {
+                UserDirectory.UserInfo user = users.get(review.getUserId());
+                if (user == null) continue;
+                if (user.hasName()) {
+                    review.setUserName(user.getName());
+                    named.add(review);
+                }
+                if (user.hasAvatar()) {
+                    review.setUserAvatarUrl(user.getAvatarUrl());
+                }
+            }
+            // Author names are searchable too
+            feedSearch.index(named);
+            
+            // Notify adapter of changes
+            if (reviewAdapter != null) {
+                reviewAdapter.notifyDataSetChanged();
+            }
+        });
     }
 }
 
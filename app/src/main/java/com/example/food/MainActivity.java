@@ -3,6 +3,8 @@ package com.example.food;
 import android.content.Intent;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.View;
 import android.view.MenuItem;
 import android.view.Window;
@@ -20,11 +22,17 @@ import androidx.fragment.app.FragmentTransaction;
 
 import android.widget.FrameLayout;
 
+import com.example.food.service.AuthorSnapshotFanout;
+import com.example.food.service.RestaurantRepository;
+import com.example.food.service.ReviewCardBackfill;
+import com.example.food.service.WarmupScheduler;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 
 public class MainActivity extends AppCompatActivity {
 
+    private static final String TAG = "MainActivity";
+
     private FirebaseAuth mAuth;
     private TextView tvWelcome;
     private Button btnLogout;
@@ -50,6 +58,15 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
+        // Make sure reviews written before the reviewCards projection have a card
+        ReviewCardBackfill.runOnce(this);
+        // Finish rewriting author snapshots if a profile change was interrupted
+        AuthorSnapshotFanout.resumePending(this);
+        // Read the restaurant catalog from disk before the map or search ask for it
+        RestaurantRepository.getInstance().attachCatalogFile(this);
+        // Fill profile, feed, catalog and crowd caches behind the first screen
+        WarmupScheduler.getInstance().start(this);
+
         BottomNavigationView bottomNav = findViewById(R.id.bottom_nav);
         bottomNav.setOnItemSelectedListener(item -> {
             int id = item.getItemId();
@@ -57,20 +74,9 @@ public class MainActivity extends AppCompatActivity {
             // Update icons based on selection
             updateNavIcons(bottomNav, id);
             
-            if (id == R.id.nav_home) {
-                switchFragment(new HomeFragment());
-                return true;
-            } else if (id == R.id.nav_map) {
-                switchFragment(new MapFragment());
-                return true;
-            } else if (id == R.id.nav_add) {
-                switchFragment(new AddFragment());
-                return true;
-            } else if (id == R.id.nav_profile) {
-                switchFragment(new ProfileFragment());
-                return true;
-            } else if (id == R.id.nav_settings) {
-                switchFragment(new SettingsFragment());
+            if (id == R.id.nav_home || id == R.id.nav_map || id == R.id.nav_add
+                    || id == R.id.nav_profile || id == R.id.nav_settings) {
+                switchTab(id);
                 return true;
             }
             return false;
@@ -91,12 +97,10 @@ public class MainActivity extends AppCompatActivity {
             // Select map tab and deliver the restaurantId to MapFragment
             BottomNavigationView bottomNav = findViewById(R.id.bottom_nav);
             bottomNav.setSelectedItemId(R.id.nav_map);
-            // Attach restaurant ID as argument
-            MapFragment mapFragment = new MapFragment();
-            Bundle args = new Bundle();
-            args.putString("open_restaurant_id", restaurantId);
-            mapFragment.setArguments(args);
-            switchFragment(mapFragment);
+            Fragment mapFragment = getSupportFragmentManager().findFragmentByTag(tabTag(R.id.nav_map));
+            if (mapFragment instanceof MapFragment) {
+                ((MapFragment) mapFragment).openRestaurant(restaurantId);
+            }
             // clear so it doesn't repeat
             intent.removeExtra("open_restaurant_id");
         }
@@ -134,14 +138,75 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    private void switchFragment(Fragment fragment) {
+    /**
+     * Show the fragment of a bottom nav tab. Each tab is created once and then hidden and shown,
+     * so its loaded data, markers and listeners survive switching. Tabs refresh themselves in
+     * onHiddenChanged when what they show has gone stale.
+     */
+    private void switchTab(int itemId) {
+        long start = SystemClock.elapsedRealtime();
         // Restore status bar to default before switching (in case coming from map)
         setupSystemBars();
-        
+
         FragmentManager fm = getSupportFragmentManager();
+        // Profiles opened on top of a tab are closed by switching tabs
+        if (fm.getBackStackEntryCount() > 0) {
+            fm.popBackStackImmediate(null, FragmentManager.POP_BACK_STACK_INCLUSIVE);
+        }
+
+        String tag = tabTag(itemId);
+        Fragment fragment = fm.findFragmentByTag(tag);
+        boolean created = fragment == null;
         FragmentTransaction tx = fm.beginTransaction();
-        tx.replace(R.id.fragment_container, fragment);
-        tx.commit();
+        hideVisibleFragments(fm, tx, fragment);
+        if (created) {
+            fragment = createTabFragment(itemId);
+            tx.add(R.id.fragment_container, fragment, tag);
+        } else {
+            tx.show(fragment);
+        }
+        // Time until the frame after the switch, reused tabs should skip inflation and loading
+        tx.runOnCommit(() -> getWindow().getDecorView().post(() ->
+                Log.d(TAG, "Switched to " + tag + (created ? " (created)" : " (reused)")
+                        + " in " + (SystemClock.elapsedRealtime() - start) + "ms")));
+        tx.commitNow();
+    }
+
+    /**
+     * Open another user's profile over the current tab, back returns to the tab as it was
+     */
+    public void openUserProfile(String userId) {
+        FragmentManager fm = getSupportFragmentManager();
+        FragmentTransaction tx = fm.beginTransaction();
+        hideVisibleFragments(fm, tx, null);
+        tx.add(R.id.fragment_container, ProfileFragment.newInstance(userId))
+                .addToBackStack(null)
+                .commit();
+    }
+
+    private void hideVisibleFragments(FragmentManager fm, FragmentTransaction tx, Fragment except) {
+        for (Fragment other : fm.getFragments()) {
+            if (other != except && other.getId() == R.id.fragment_container && !other.isHidden()) {
+                tx.hide(other);
+            }
+        }
+    }
+
+    private String tabTag(int itemId) {
+        return "tab_" + getResources().getResourceEntryName(itemId);
+    }
+
+    private Fragment createTabFragment(int itemId) {
+        if (itemId == R.id.nav_map) {
+            return new MapFragment();
+        } else if (itemId == R.id.nav_add) {
+            return new AddFragment();
+        } else if (itemId == R.id.nav_profile) {
+            return new ProfileFragment();
+        } else if (itemId == R.id.nav_settings) {
+            return new SettingsFragment();
+        }
+        return new HomeFragment();
     }
     
     private void updateNavIcons(BottomNavigationView bottomNav, int selectedId) {
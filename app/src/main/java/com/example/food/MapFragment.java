@@ -18,7 +18,6 @@ import android.widget.LinearLayout;
 import android.widget.Toast;
 import android.widget.ImageView;
 import android.widget.AutoCompleteTextView;
-import android.widget.ArrayAdapter;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
@@ -29,12 +28,20 @@ import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.food.adapters.RestaurantSuggestionAdapter;
 import com.example.food.adapters.ReviewWidgetAdapter;
+import com.example.food.data.RestaurantStats;
 import com.example.food.data.Review;
 import com.example.food.data.CrowdFeedback;
 import com.example.food.dialogs.ReviewDetailsDialog;
 import com.example.food.service.CrowdDensityService;
 import com.example.food.service.GooglePlacesRestaurantSyncService;
+import com.example.food.service.MapPrefetcher;
+import com.example.food.service.RestaurantRepository;
+import com.example.food.service.RestaurantStatsService;
+import com.example.food.service.ReviewService;
+import com.example.food.service.UserDirectory;
+import com.example.food.service.WarmupScheduler;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
@@ -46,6 +53,7 @@ import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 import com.google.android.gms.maps.model.BitmapDescriptorFactory;
@@ -54,7 +62,6 @@ import com.google.android.libraries.places.api.Places;
 import com.google.android.libraries.places.api.net.PlacesClient;
 
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.example.food.model.Restaurant;
 // FirebaseDataUploader removed, no longer need upload functionality
 
@@ -71,9 +78,13 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
     private PlacesClient placesClient;
     private FirebaseFirestore db;
     private CrowdDensityService crowdDensityService;
+    private ReviewService reviewService;
+    private RestaurantStatsService statsService;
+    private MapPrefetcher prefetcher;
     private FirebaseAuth mAuth;
     private GooglePlacesRestaurantSyncService placesSyncService;
     private boolean hasTriggeredPlacesSync;
+    private String pendingRestaurantId;
     
     // Map control buttons
     private ImageButton btnZoomIn;
@@ -85,7 +96,7 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
     
     // Restaurant search
     private AutoCompleteTextView etRestaurantSearch;
-    private List<Restaurant> restaurants;
+    private RestaurantSuggestionAdapter suggestionAdapter;
     
     // Store markers with restaurant IDs for color updates
     private Map<String, Marker> restaurantMarkers;
@@ -126,7 +137,6 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
         
         // Initialize restaurant search
         etRestaurantSearch = view.findViewById(R.id.et_restaurant_search);
-        restaurants = new ArrayList<>();
         restaurantMarkers = new HashMap<>();
 
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(requireContext());
@@ -140,6 +150,9 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
         // Initialize Firebase Firestore
         db = FirebaseFirestore.getInstance();
         crowdDensityService = new CrowdDensityService();
+        reviewService = new ReviewService();
+        statsService = new RestaurantStatsService();
+        prefetcher = new MapPrefetcher(reviewService, statsService);
         mAuth = FirebaseAuth.getInstance();
 
         // Simplified map initialization
@@ -156,26 +169,33 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
         // if special restaurant id argument then open details as soon as ready
         Bundle args = getArguments();
         if (args != null && args.containsKey("open_restaurant_id")) {
-            String targetRestaurantId = args.getString("open_restaurant_id");
-            if (targetRestaurantId != null) {
-                // Fetch from Firestore and show bottom sheet
-                db.collection("restaurants").document(targetRestaurantId)
-                    .get()
-                    .addOnSuccessListener(doc -> {
-                        if (doc.exists()) {
-                            Restaurant restaurant = doc.toObject(Restaurant.class);
-                            if (restaurant != null) {
-                                restaurant.setId(doc.getId());
-                                showRestaurantPostsBottomSheet(restaurant);
-                            }
-                        }
-                    });
-                // Remove the argument so it doesnt repeat
-                args.remove("open_restaurant_id");
-            }
+            pendingRestaurantId = args.getString("open_restaurant_id");
+            // Remove the argument so it doesnt repeat
+            args.remove("open_restaurant_id");
+        }
+        if (pendingRestaurantId != null) {
+            openRestaurant(pendingRestaurantId);
+            pendingRestaurantId = null;
         }
     }
 
+    /**
+     * Show a restaurant's bottom sheet, waits for the view if the tab has not been created yet
+     */
+    public void openRestaurant(String restaurantId) {
+        if (getView() == null) {
+            pendingRestaurantId = restaurantId;
+            return;
+        }
+        // Take it from the catalog and show bottom sheet
+        RestaurantRepository.getInstance().whenReady(() -> {
+            Restaurant restaurant = RestaurantRepository.getInstance().getRestaurant(restaurantId);
+            if (restaurant != null && isAdded()) {
+                showRestaurantPostsBottomSheet(restaurant);
+            }
+        });
+    }
+
     @Override
     public void onMapReady(@NonNull GoogleMap map) {
         this.googleMap = map;
@@ -192,9 +212,31 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
             return true;
         });
         
+        // Warm the bottom sheets of likely taps once the map stops moving
+        googleMap.setOnCameraIdleListener(this::onCameraIdle);
+        
         enableMyLocationAndLoad();
     }
 
+    private void onCameraIdle() {
+        if (suggestionAdapter != null && googleMap != null) {
+            // Suggestions favour places near what the user is looking at
+            LatLng target = googleMap.getCameraPosition().target;
+            suggestionAdapter.setOrigin(target.latitude, target.longitude);
+        }
+        prefetchVisibleRestaurants();
+    }
+
+    private void prefetchVisibleRestaurants() {
+        if (!isAdded() || isHidden() || googleMap == null) return;
+        RestaurantRepository repository = RestaurantRepository.getInstance();
+        if (!repository.isLoaded()) return;
+        LatLngBounds bounds = googleMap.getProjection().getVisibleRegion().latLngBounds;
+        // Where the map is left is where the next startup warms crowd levels
+        WarmupScheduler.saveMapRegion(requireContext(), bounds);
+        prefetcher.onCameraIdle(bounds, googleMap.getCameraPosition().target, repository.getAllRestaurants());
+    }
+
     private void enableMyLocationAndLoad() {
         if (ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED
                 || ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.ACCESS_COARSE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
@@ -227,60 +269,46 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
             return;
         }
         
-        Log.d(TAG, "Starting to load restaurant data from Firebase...");
-        
-        db.collection("restaurants")
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    Log.d(TAG, "Firebase connection successful, document count: " + queryDocumentSnapshots.size());
-                    
-                    if (!isAdded() || getContext() == null) {
-                        return;
-                    }
-                    
-                    if (queryDocumentSnapshots.isEmpty()) {
-                        // No data in Firebase
-                        Log.d(TAG, "No restaurant data in Firebase");
-                    } else {
-                        // Data exists in Firebase, load and display
-                        List<Restaurant> restaurantsList = new ArrayList<>();
-                        for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                            try {
-                                Restaurant restaurant = document.toObject(Restaurant.class);
-                                restaurant.setId(document.getId());
-                                restaurantsList.add(restaurant);
-                                
-                                // Add map marker with default green color (will be updated based on crowd density)
-                                if (googleMap != null) {
-                                    LatLng position = new LatLng(restaurant.getLatitude(), restaurant.getLongitude());
-                                    MarkerOptions markerOptions = new MarkerOptions()
-                                            .position(position)
-                                            .title(restaurant.getName())
-                                            .snippet(restaurant.getAddress())
-                                            .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_GREEN));
-                                    
-                                    Marker marker = googleMap.addMarker(markerOptions);
-                                    if (marker != null) {
-                                        marker.setTag(restaurant);
-                                        restaurantMarkers.put(restaurant.getId(), marker);
-                                    }
-                                }
-                            } catch (Exception e) {
-                                Log.e(TAG, "Failed to parse restaurant data: " + document.getId(), e);
-                            }
-                        }
-                        
-                        // Load crowd density for each restaurant and update marker colors
-                        for (Restaurant restaurant : restaurantsList) {
-                            loadCrowdDensityForMarker(restaurant.getId());
-                        }
-                        
-                        Log.d(TAG, "Successfully loaded " + restaurantsList.size() + " restaurants");
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Firebase loading failed", e);
-                });
+        // The catalog is decoded off the main thread by the repository, only marker work happens here
+        RestaurantRepository.getInstance().whenReady(() -> {
+            if (!isAdded() || getContext() == null || googleMap == null) {
+                return;
+            }
+
+            List<Restaurant> restaurantsList = RestaurantRepository.getInstance().getAllRestaurants();
+            if (restaurantsList.isEmpty()) {
+                // No data in Firebase
+                Log.d(TAG, "No restaurant data in Firebase");
+                return;
+            }
+
+            for (Restaurant restaurant : restaurantsList) {
+                addRestaurantMarker(restaurant);
+            }
+
+            // Load crowd density for each restaurant and update marker colors
+            for (Restaurant restaurant : restaurantsList) {
+                loadCrowdDensityForMarker(restaurant.getId());
+            }
+
+            Log.d(TAG, "Successfully loaded " + restaurantsList.size() + " restaurants");
+        });
+    }
+
+    private void addRestaurantMarker(Restaurant restaurant) {
+        // Add map marker with default green color (will be updated based on crowd density)
+        LatLng position = new LatLng(restaurant.getLatitude(), restaurant.getLongitude());
+        MarkerOptions markerOptions = new MarkerOptions()
+                .position(position)
+                .title(restaurant.getName())
+                .snippet(restaurant.getAddress())
+                .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_GREEN));
+
+        Marker marker = googleMap.addMarker(markerOptions);
+        if (marker != null) {
+            marker.setTag(restaurant);
+            restaurantMarkers.put(restaurant.getId(), marker);
+        }
     }
 
     /**
@@ -298,6 +326,7 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
         TextView tvRestaurantName = view.findViewById(R.id.tv_restaurant_name);
         TextView tvRestaurantAddress = view.findViewById(R.id.tv_restaurant_address);
         TextView tvPostsCount = view.findViewById(R.id.tv_posts_count);
+        TextView tvPostsSummary = view.findViewById(R.id.tv_posts_summary);
         RecyclerView rvPosts = view.findViewById(R.id.rv_posts);
         TextView tvNoPosts = view.findViewById(R.id.tv_no_posts);
         androidx.appcompat.widget.AppCompatButton btnNavigate = view.findViewById(R.id.btn_navigate);
@@ -380,12 +409,7 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
                         }
                     } else {
                         // view someone else's profile
-                        ProfileFragment profileFragment = ProfileFragment.newInstance(userId);
-                        getActivity().getSupportFragmentManager()
-                            .beginTransaction()
-                            .replace(R.id.fragment_container, profileFragment)
-                            .addToBackStack(null)
-                            .commit();
+                        ((MainActivity) getActivity()).openUserProfile(userId);
                     }
                 }
             }
@@ -400,55 +424,164 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
             rvPosts.setAdapter(adapter);
         }
 
-        // Load reviews for this restaurant
-        loadRestaurantReviews(restaurant.getId(), adapter, rvPosts, tvNoPosts, tvPostsCount);
+        // Header comes from the restaurant's aggregate, the list pages in behind it
+        RestaurantReviewsPager pager = new RestaurantReviewsPager(restaurant.getId(), reviews, adapter, rvPosts, tvNoPosts);
+        loadRestaurantStats(restaurant.getId(), pager, tvPostsCount, tvPostsSummary);
+        rvPosts.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0 || !(recyclerView.getLayoutManager() instanceof androidx.recyclerview.widget.StaggeredGridLayoutManager)) return;
+                int[] lastPositions = ((androidx.recyclerview.widget.StaggeredGridLayoutManager) recyclerView.getLayoutManager())
+                    .findLastVisibleItemPositions(null);
+                int lastVisible = 0;
+                for (int position : lastPositions) {
+                    lastVisible = Math.max(lastVisible, position);
+                }
+                if (lastVisible >= reviews.size() - 4) {
+                    pager.loadNextPage();
+                }
+            }
+        });
 
         bottomSheet.show();
     }
 
     /**
-     * Load reviews for a specific restaurant
+     * Show count, average rating and accuracy from the restaurantStats document, then the latest reviews
      */
-    private void loadRestaurantReviews(String restaurantId, ReviewWidgetAdapter adapter, 
-                                     RecyclerView rvPosts, TextView tvNoPosts, TextView tvPostsCount) {
-        db.collection("reviews")
-            .whereEqualTo("restaurantId", restaurantId)
-            .get()
-            .addOnSuccessListener(queryDocumentSnapshots -> {
-                List<Review> reviews = new ArrayList<>();
-                for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                    Review review = document.toObject(Review.class);
-                    review.setId(document.getId());
-                    review.refreshAccuracyFromVotes(); // Calculate accuracy from votes
-                    reviews.add(review);
+    private void loadRestaurantStats(String restaurantId, RestaurantReviewsPager pager,
+                                     TextView tvPostsCount, TextView tvPostsSummary) {
+        WarmupScheduler warmup = WarmupScheduler.getInstance();
+        warmup.foregroundStarted();
+        statsService.getStats(restaurantId, new RestaurantStatsService.StatsCallback() {
+            @Override
+            public void onSuccess(RestaurantStats stats) {
+                warmup.foregroundFinished();
+                if (!isAdded()) return;
+
+                tvPostsCount.setText(String.valueOf(stats.getReviewCount()));
+                if (stats.getReviewCount() > 0) {
+                    tvPostsSummary.setText(String.format(java.util.Locale.getDefault(), "★ %.1f · %.0f%% accurate",
+                        stats.getAverageRating(), stats.getAverageAccuracy()));
+                    tvPostsSummary.setVisibility(View.VISIBLE);
                 }
+                pager.showLatest(stats.getLatestReviewIds(), stats.getReviewCount());
+            }
 
-                // Sort by timestamp (newest first)
-                reviews.sort((r1, r2) -> {
-                    if (r1.getCreatedAt() == null) return 1;
-                    if (r2.getCreatedAt() == null) return -1;
-                    return r2.getCreatedAt().compareTo(r1.getCreatedAt());
-                });
+            @Override
+            public void onError(Exception e) {
+                warmup.foregroundFinished();
+                Log.e(TAG, "Error loading restaurant stats", e);
+                // Fall back to paging the cards directly
+                pager.loadNextPage();
+            }
+        });
+    }
 
-                adapter.setReviews(reviews);
-                tvPostsCount.setText(String.valueOf(reviews.size()));
+    /**
+     * Fills the restaurant bottom sheet: the latest reviews by id first, older ones page by page on scroll
+     */
+    private class RestaurantReviewsPager {
+        private final String restaurantId;
+        private final List<Review> reviews;
+        private final ReviewWidgetAdapter adapter;
+        private final RecyclerView rvPosts;
+        private final TextView tvNoPosts;
+        private Review cursor; // Oldest card shown so far, the next page starts after it
+        private boolean hasMore = true;
+        private boolean loading;
 
-                if (reviews.isEmpty()) {
-                    tvNoPosts.setVisibility(View.VISIBLE);
-                    rvPosts.setVisibility(View.GONE);
-                } else {
-                    tvNoPosts.setVisibility(View.GONE);
-                    rvPosts.setVisibility(View.VISIBLE);
-                    // Load user info for reviews to properly display names and avatars
-                    loadUserInfoForReviews(reviews, adapter);
+        RestaurantReviewsPager(String restaurantId, List<Review> reviews, ReviewWidgetAdapter adapter,
+                               RecyclerView rvPosts, TextView tvNoPosts) {
+            this.restaurantId = restaurantId;
+            this.reviews = reviews;
+            this.adapter = adapter;
+            this.rvPosts = rvPosts;
+            this.tvNoPosts = tvNoPosts;
+        }
+
+        /**
+         * reviewCount is the restaurant's total, it decides whether older cards are left to page in
+         */
+        void showLatest(List<String> latestReviewIds, int reviewCount) {
+            if (latestReviewIds == null || latestReviewIds.isEmpty()) {
+                loadNextPage();
+                return;
+            }
+            loading = true;
+            reviewService.getReviewCards(latestReviewIds, new ReviewService.ReviewsLoadCallback() {
+                @Override
+                public void onSuccess(List<Review> latest) {
+                    loading = false;
+                    advanceCursor(latest);
+                    addReviews(latest);
+                    // The id list shrinks on deletes, so only the count says whether older reviews exist
+                    hasMore = reviews.size() < reviewCount;
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    loading = false;
+                    Log.e(TAG, "Error loading latest restaurant reviews", e);
+                    loadNextPage();
+                }
+            });
+        }
+
+        void loadNextPage() {
+            if (loading || !hasMore || !isAdded()) return;
+            loading = true;
+            // Card projections only, the full review is fetched when one is opened
+            reviewService.loadRestaurantReviewPage(restaurantId, cursor, new ReviewService.ReviewPageCallback() {
+                @Override
+                public void onSuccess(ReviewService.ReviewPage page) {
+                    loading = false;
+                    advanceCursor(page.getReviews());
+                    hasMore = page.hasMore();
+                    addReviews(page.getReviews());
                 }
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Error loading restaurant reviews", e);
-                if (isAdded() && getContext() != null) {
-                    Toast.makeText(getContext(), "Failed to load reviews", Toast.LENGTH_SHORT).show();
+
+                @Override
+                public void onError(Exception e) {
+                    loading = false;
+                    Log.e(TAG, "Error loading restaurant reviews", e);
+                    if (isAdded() && getContext() != null) {
+                        Toast.makeText(getContext(), "Failed to load reviews", Toast.LENGTH_SHORT).show();
+                    }
                 }
             });
+        }
+
+        /**
+         * Cards come newest first, cards without createdAt can not be paged past and are skipped
+         */
+        private void advanceCursor(List<Review> shown) {
+            for (int i = shown.size() - 1; i >= 0; i--) {
+                if (shown.get(i).getCreatedAt() != null) {
+                    cursor = shown.get(i);
+                    return;
+                }
+            }
+        }
+
+        private void addReviews(List<Review> page) {
+            if (!isAdded()) return;
+
+            if (!page.isEmpty()) {
+                // The first page overlaps the latest ids, merging by id drops the duplicates
+                ReviewService.mergeReviews(reviews, page);
+                adapter.setReviews(reviews);
+                loadUserInfoForReviews(page, adapter);
+            }
+
+            if (reviews.isEmpty()) {
+                tvNoPosts.setVisibility(View.VISIBLE);
+                rvPosts.setVisibility(View.GONE);
+            } else {
+                tvNoPosts.setVisibility(View.GONE);
+                rvPosts.setVisibility(View.VISIBLE);
+            }
+        }
     }
     
     // Load crowd density for marker and update color
@@ -502,48 +635,35 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
     private void loadUserInfoForReviews(List<Review> reviews, ReviewWidgetAdapter adapter) {
         if (reviews.isEmpty() || !isAdded()) return;
         
-        // Get unique user IDs
+        // Only reviews saved before author snapshots existed need a users lookup
         java.util.Set<String> userIds = new java.util.HashSet<>();
         for (Review review : reviews) {
-            if (review.getUserId() != null) {
+            if (review.getUserId() != null && !review.hasAuthorSnapshot()) {
                 userIds.add(review.getUserId());
             }
         }
+        if (userIds.isEmpty()) return;
         
-        // Load user information for each unique user
-        for (String userId : userIds) {
-            db.collection("users").document(userId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists() && isAdded()) {
-                        String userName = documentSnapshot.getString("name");
-                        if (userName == null || userName.trim().isEmpty()) {
-                            userName = documentSnapshot.getString("username");
-                        }
-                        String userAvatarUrl = documentSnapshot.getString("avatarUrl");
-                        
-                        // Update all reviews for this user
-                        for (Review review : reviews) {
-                            if (userId.equals(review.getUserId())) {
-                                if (userName != null && !userName.trim().isEmpty()) {
-                                    review.setUserName(userName);
-                                }
-                                if (userAvatarUrl != null && !userAvatarUrl.trim().isEmpty()) {
-                                    review.setUserAvatarUrl(userAvatarUrl);
-                                }
-                            }
-                        }
-                        
-                        // Notify adapter of changes
-                        if (adapter != null) {
-                            adapter.notifyDataSetChanged();
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading user info for user: " + userId, e);
-                });
-        }
+        // Resolved in batches through the shared directory instead of one read per user
+        UserDirectory.getInstance().getUsers(userIds, users -> {
+            if (!isAdded() || users.isEmpty()) return;
+            
+            for (Review review : reviews) {
+                UserDirectory.UserInfo user = users.get(review.getUserId());
+                if (user == null) continue;
+                if (user.hasName()) {
+                    review.setUserName(user.getName());
+                }
+                if (user.hasAvatar()) {
+                    review.setUserAvatarUrl(user.getAvatarUrl());
+                }
+            }
+            
+            // Notify adapter of changes
+            if (adapter != null) {
+                adapter.notifyDataSetChanged();
+            }
+        });
     }
     
     // Zoom in functionality
@@ -586,28 +706,12 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
     
     // Load restaurants for search
     private void loadRestaurants() {
-        db.collection("restaurants")
-            .get()
-            .addOnSuccessListener(queryDocumentSnapshots -> {
-                if (!isAdded() || getContext() == null) {
-                    return;
-                }
-                restaurants.clear();
-                for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                    Restaurant restaurant = document.toObject(Restaurant.class);
-                    if (restaurant != null) {
-                        restaurant.setId(document.getId());
-                        restaurants.add(restaurant);
-                    }
-                }
-                setupRestaurantSearch();
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Error loading restaurants", e);
-                if (isAdded() && getContext() != null) {
-                    Toast.makeText(getContext(), "Failed to load restaurants", Toast.LENGTH_SHORT).show();
-                }
-            });
+        RestaurantRepository.getInstance().whenReady(() -> {
+            if (!isAdded() || getContext() == null) {
+                return;
+            }
+            setupRestaurantSearch();
+        });
     }
     
     // Setup restaurant search adapter
@@ -616,36 +720,23 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
             return;
         }
         
-        List<String> restaurantNames = new ArrayList<>();
-        for (Restaurant restaurant : restaurants) {
-            restaurantNames.add(restaurant.getName());
+        // Matched through the shared name index, so typos still find the place and duplicates stay apart
+        suggestionAdapter = new RestaurantSuggestionAdapter(getContext());
+        if (googleMap != null) {
+            LatLng target = googleMap.getCameraPosition().target;
+            suggestionAdapter.setOrigin(target.latitude, target.longitude);
         }
-        
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(getContext(), 
-            R.layout.simple_dropdown_item_white, restaurantNames);
-        etRestaurantSearch.setAdapter(adapter);
+        etRestaurantSearch.setAdapter(suggestionAdapter);
         etRestaurantSearch.setDropDownBackgroundDrawable(ContextCompat.getDrawable(getContext(), R.drawable.rounded_background));
         
         // Handle restaurant selection
         etRestaurantSearch.setOnItemClickListener((parent, view, position, id) -> {
-            String selectedName = (String) parent.getItemAtPosition(position);
-            Restaurant selectedRestaurant = findRestaurantByName(selectedName);
-            if (selectedRestaurant != null) {
-                navigateToRestaurantOnMap(selectedRestaurant);
-            }
+            Restaurant picked = (Restaurant) parent.getItemAtPosition(position);
+            Restaurant selectedRestaurant = RestaurantRepository.getInstance().getRestaurant(picked.getId());
+            navigateToRestaurantOnMap(selectedRestaurant != null ? selectedRestaurant : picked);
         });
     }
     
-    // Find restaurant by name
-    private Restaurant findRestaurantByName(String name) {
-        for (Restaurant restaurant : restaurants) {
-            if (restaurant.getName().equals(name)) {
-                return restaurant;
-            }
-        }
-        return null;
-    }
-    
     // Navigate to restaurant on map
     private void navigateToRestaurantOnMap(Restaurant restaurant) {
         if (googleMap == null) {
@@ -703,10 +794,15 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
                         // save sync time
                         prefs.edit().putLong("last_sync_time", System.currentTimeMillis()).apply();
                         
-                        if (summary.getNewCount() > 0 && googleMap != null) {
-                            googleMap.clear();
-                            restaurantMarkers.clear();
-                            addRestaurantMarkers();
+                        if (summary.getNewCount() > 0) {
+                            // Only the new places are added to the catalog file and the map
+                            RestaurantRepository.getInstance().addRestaurants(summary.getNewRestaurants());
+                            if (googleMap != null) {
+                                for (Restaurant restaurant : summary.getNewRestaurants()) {
+                                    addRestaurantMarker(restaurant);
+                                    loadCrowdDensityForMarker(restaurant.getId());
+                                }
+                            }
                             loadRestaurants();
                         }
                         Log.d(TAG, "Sync complete: " + summary.getNewCount() + " new, " + summary.getProcessedCount() + " total");
@@ -906,6 +1002,8 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
     @Override
     public void onResume() {
         super.onResume();
+        // Hidden tabs are resumed too, only the visible map may take over the status bar
+        if (isHidden()) return;
         makeStatusBarTransparent();
     }
     
@@ -914,6 +1012,7 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
         super.onPause();
         // Restore default status bar when leaving map
         restoreStatusBar();
+        prefetcher.stop();
     }
     
     @Override
@@ -922,6 +1021,7 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
         if (hidden) {
             // Fragment is hidden, restore status bar
             restoreStatusBar();
+            prefetcher.stop();
         } else if (isAdded()) {
             // Fragment is visible, make status bar transparent
             makeStatusBarTransparent();
@@ -25,12 +25,20 @@ import com.example.food.adapters.ActivityAdapter;
 import com.example.food.adapters.GroupedActivityAdapter;
 import com.example.food.adapters.ReviewWidgetAdapter;
 import com.example.food.cache.ProfileCacheManager;
+import com.example.food.cache.UserReviewsCache;
 import com.example.food.data.ActivityItem;
 import com.example.food.data.Review;
+import com.example.food.data.ReviewCodec;
 import com.example.food.data.UserProfile;
 import com.example.food.dialogs.ReviewDetailsDialog;
 import com.example.food.model.Restaurant;
+import com.example.food.service.CommentService;
+import com.example.food.service.RestaurantRepository;
+import com.example.food.service.ReviewService;
+import com.example.food.service.SnapshotListenerHub;
+import com.example.food.service.UserDirectory;
 import com.example.food.services.UserStatsService;
+import com.example.food.utils.BackgroundDecoder;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.tabs.TabLayout;
 import com.google.firebase.auth.FirebaseAuth;
@@ -39,6 +47,7 @@ import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +57,7 @@ public class ProfileFragment extends Fragment {
     private static final String TAG = "ProfileFragment";
     private static final String ARG_USER_ID = "user_id";
     private static final String ARG_VIEW_MODE = "view_mode";
+    private static final long STALE_AFTER = 60 * 1000; // Profile cache TTL, the tab refreshes when shown after this
     
     // Views
     private de.hdodenhof.circleimageview.CircleImageView ivProfilePicture;
@@ -78,9 +88,13 @@ public class ProfileFragment extends Fragment {
     // Firebase
     private FirebaseAuth auth;
     private FirebaseFirestore db;
-    private ListenerRegistration profileListener;
     private ListenerRegistration activityListener;
+    private ListenerRegistration commentActivityListener;
     private ProfileCacheManager cacheManager;
+    private ReviewService reviewService;
+    private CommentService commentService;
+    private boolean reviewsLoaded;
+    private long lastRefreshAt;
     
     // view mode control
     private String targetUserId;
@@ -125,8 +139,24 @@ public class ProfileFragment extends Fragment {
     @Override
     public void onResume() {
         super.onResume();
+        // Hidden tabs are resumed too, onHiddenChanged refreshes this one once it is shown
+        if (isHidden()) return;
         // refresh user data when returning to profile
+        lastRefreshAt = System.currentTimeMillis();
         loadUserData();
+        refreshReviews();
+    }
+
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        // The tab is kept while hidden, refresh on show only once what it shows may be out of date
+        if (!hidden && isAdded() && (System.currentTimeMillis() - lastRefreshAt > STALE_AFTER
+                || ReviewService.getLastLocalWriteAt() > lastRefreshAt)) {
+            lastRefreshAt = System.currentTimeMillis();
+            loadUserProfileOnce();
+            refreshReviews();
+        }
     }
 
     private void initViews(View view) {
@@ -172,6 +202,8 @@ public class ProfileFragment extends Fragment {
         auth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
         cacheManager = ProfileCacheManager.getInstance(requireContext());
+        reviewService = new ReviewService();
+        commentService = new CommentService();
     }
 
     private void setupCardClickListeners() {
@@ -453,12 +485,7 @@ public class ProfileFragment extends Fragment {
                         }
                     } else {
                         // view someone else's profile
-                        ProfileFragment profileFragment = ProfileFragment.newInstance(userId);
-                        getActivity().getSupportFragmentManager()
-                            .beginTransaction()
-                            .replace(R.id.fragment_container, profileFragment)
-                            .addToBackStack(null)
-                            .commit();
+                        ((MainActivity) getActivity()).openUserProfile(userId);
                     }
                 }
             }
@@ -584,10 +611,6 @@ public class ProfileFragment extends Fragment {
             return;
         }
 
-        if (!isViewingOtherUser) {
-            loadCachedData();
-        }
-        
         tvCredibilityScore.setText(getString(R.string.credibility_placeholder));
         tvExperienceScore.setText(getString(R.string.experience_placeholder));
         tvEngagementScore.setText(getString(R.string.engagement_placeholder));
@@ -595,39 +618,31 @@ public class ProfileFragment extends Fragment {
         loadUserProfileOnce();
     }
 
-    private void loadCachedData() {
-        UserProfile cachedProfile = cacheManager.getCachedUserProfile();
-        if (cachedProfile != null) {
-            userProfile = cachedProfile;
-            updateUserUI();
-        }
-    }
-
     private void loadUserProfileOnce() {
         if (auth.getCurrentUser() == null) return;
 
         String userId = isViewingOtherUser ? targetUserId : auth.getCurrentUser().getUid();
-        db.collection("users").document(userId)
-            .get()
-            .addOnSuccessListener(documentSnapshot -> {
-                if (documentSnapshot != null && documentSnapshot.exists()) {
-                    userProfile = documentSnapshot.toObject(UserProfile.class);
-                    if (userProfile != null) {
-                        if (!isViewingOtherUser) {
-                            cacheManager.cacheUserProfile(userProfile);
-                        }
-                        updateUserUI();
+        // A cached profile shows straight away, even a stale one, Firestore is only read to revalidate it
+        cacheManager.getUserProfile(userId, new ProfileCacheManager.ProfileCallback() {
+            @Override
+            public void onProfileLoaded(UserProfile profile, boolean fromNetwork) {
+                if (!isAdded()) return;
+                if (profile != null) {
+                    userProfile = profile;
+                    updateUserUI();
+                    if (fromNetwork) {
                         UserStatsService.updateUserScores(userId);
                     }
-                } else {
-                    if (!isViewingOtherUser) {
-                        createDefaultProfile();
-                    }
+                } else if (fromNetwork && !isViewingOtherUser) {
+                    createDefaultProfile();
                 }
-            })
-            .addOnFailureListener(e -> {
+            }
+
+            @Override
+            public void onError(Exception e) {
                 Log.e(TAG, "Error loading user profile", e);
-            });
+            }
+        });
     }
 
     private void updateUserUI() {
@@ -730,47 +745,98 @@ public class ProfileFragment extends Fragment {
             return;
         }
 
-        String userId = isViewingOtherUser ? targetUserId : auth.getCurrentUser().getUid();
+        String userId = getProfileUserId();
+
+        // Reviews seen earlier in this session show at once, onResume fetches what changed since
+        List<Review> cachedReviews = UserReviewsCache.getInstance().get(userId);
+        if (cachedReviews != null) {
+            reviews.clear();
+            reviews.addAll(cachedReviews);
+            reviewsLoaded = true;
+            showReviews();
+            return;
+        }
 
         reviewAdapter.setLoading(true);
 
-        if (profileListener != null) {
-            profileListener.remove();
+        // The grid only needs the card projection, not votes or comments
+        reviewService.getReviewCardsByUser(userId, new ReviewService.OnReviewsLoadedListener() {
+            @Override
+            public void onReviewsLoaded(List<Review> loadedReviews) {
+                if (!isAdded()) return;
+
+                reviews.clear();
+                reviews.addAll(loadedReviews);
+                UserReviewsCache.getInstance().put(userId, reviews);
+                reviewsLoaded = true;
+
+                reviewAdapter.setLoading(false);
+                showReviews();
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Error loading reviews: " + error);
+                if (!isAdded()) return;
+                reviewAdapter.setLoading(false);
+                showEmptyState();
+            }
+        });
+    }
+
+    /**
+     * Fetch only the reviews created or updated after the newest one already shown
+     */
+    private void refreshReviews() {
+        if (!reviewsLoaded || auth.getCurrentUser() == null) return;
+
+        String userId = getProfileUserId();
+        Date watermark = ReviewService.getWatermark(reviews);
+        if (watermark == null) {
+            setupReviews();
+            return;
         }
-        profileListener = db.collection("reviews")
-            .whereEqualTo("userId", userId)
-            .limit(200)
-            .addSnapshotListener((queryDocumentSnapshots, e) -> {
-                if (e != null) {
-                    Log.e(TAG, "Error listening to reviews", e);
-                    reviewAdapter.setLoading(false);
-                    showEmptyState();
-                    return;
-                }
 
-                if (queryDocumentSnapshots != null) {
-                    reviews.clear();
-                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        try {
-                            Review review = document.toObject(Review.class);
-                            review.setId(document.getId());
-                            review.refreshAccuracyFromVotes(); // Calculate accuracy from votes
-                            reviews.add(review);
-                        } catch (Exception ex) {
-                            Log.e(TAG, "Error parsing review document", ex);
-                        }
-                    }
+        reviewService.getReviewsByUserUpdatedSince(userId, watermark, new ReviewService.OnReviewsLoadedListener() {
+            @Override
+            public void onReviewsLoaded(List<Review> changes) {
+                if (!isAdded() || changes.isEmpty()) return;
+                ReviewService.mergeReviews(reviews, changes);
+                UserReviewsCache.getInstance().merge(userId, changes);
+                showReviews();
+            }
 
-                    reviewAdapter.setLoading(false);
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Error refreshing reviews: " + error);
+            }
+        });
+    }
 
-                    if (reviews.isEmpty()) {
-                        showEmptyState();
-                    } else {
-                        hideEmptyState();
-                        loadRestaurants();
-                    }
-                }
-            });
+    private void showReviews() {
+        if (reviews.isEmpty()) {
+            showEmptyState();
+        } else {
+            hideEmptyState();
+            loadRestaurants();
+        }
+    }
+
+    private void removeDeletedReview(Review deletedReview) {
+        for (int i = 0; i < reviews.size(); i++) {
+            if (reviews.get(i).getId().equals(deletedReview.getId())) {
+                reviews.remove(i);
+                reviewAdapter.notifyItemRemoved(i);
+                break;
+            }
+        }
+        if (reviews.isEmpty()) {
+            showEmptyState();
+        }
+    }
+
+    private String getProfileUserId() {
+        return isViewingOtherUser ? targetUserId : auth.getCurrentUser().getUid();
     }
 
     private void loadRestaurants() {
@@ -788,29 +854,12 @@ public class ProfileFragment extends Fragment {
             return;
         }
 
-        for (String restaurantId : restaurantIds) {
-            db.collection("restaurants")
-                .document(restaurantId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        try {
-                            Restaurant restaurant = documentSnapshot.toObject(Restaurant.class);
-                            if (restaurant != null) {
-                                restaurant.setId(documentSnapshot.getId());
-                                restaurantMap.put(restaurantId, restaurant);
-                            }
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error parsing restaurant document", e);
-                        }
-                    }
-                    updateReviews();
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading restaurant: " + restaurantId, e);
-                    updateReviews();
-                });
-        }
+        RestaurantRepository repository = RestaurantRepository.getInstance();
+        repository.whenReady(() -> {
+            if (!isAdded()) return;
+            restaurantMap.putAll(repository.getRestaurants(restaurantIds));
+            updateReviews();
+        });
     }
 
     private void updateReviews() {
@@ -832,6 +881,7 @@ public class ProfileFragment extends Fragment {
                 }
             }
         });
+        dialog.setOnReviewDeletedListener(this::removeDeletedReview);
         dialog.show();
     }
     
@@ -849,6 +899,7 @@ public class ProfileFragment extends Fragment {
                 }
             }
         });
+        dialog.setOnReviewDeletedListener(this::removeDeletedReview);
         dialog.show();
         
         // Open comments section after a short delay so that dialog is fully loaded
@@ -895,19 +946,18 @@ public class ProfileFragment extends Fragment {
     }
     
     private void loadInitialActivities(String userId) {
-        // Query all reviews by current user
+        // Query all reviews by current user, decoding and building activities off the main thread
         db.collection("reviews")
             .whereEqualTo("userId", userId)
             .get()
-            .addOnSuccessListener(queryDocumentSnapshots -> {
+            .addOnSuccessListener(BackgroundDecoder.executor(), queryDocumentSnapshots -> {
                 List<ActivityItem> allActivities = new ArrayList<>();
+                List<Review> decodedReviews = new ArrayList<>();
                 
                 for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
                     try {
-                        Review review = document.toObject(Review.class);
-                        review.setId(document.getId());
-                        review.refreshAccuracyFromVotes(); // Calculate accuracy from votes
-                        reviewMap.put(review.getId(), review);
+                        Review review = ReviewCodec.decode(document.getId(), document.getData());
+                        decodedReviews.add(review);
                         
                         // Process votes - only show accurate votes
                         if (review.getVotes() != null) {
@@ -978,19 +1028,13 @@ public class ProfileFragment extends Fragment {
                 
                 // Filter to only show last 30 days no more than that
                 long thirtyDaysAgo = System.currentTimeMillis() - (30L * 24 * 60 * 60 * 1000);
-                List<ActivityItem> recentActivities = new ArrayList<>();
-                for (ActivityItem activity : allActivities) {
-                    if (activity.getTimestamp() != null && activity.getTimestamp().getTime() >= thirtyDaysAgo) {
-                        recentActivities.add(activity);
+                BackgroundDecoder.postToMain(() -> {
+                    if (!isAdded()) return;
+                    for (Review review : decodedReviews) {
+                        reviewMap.put(review.getId(), review);
                     }
-                }
-
-                // Sort by timestamp descending (most recent first)
-                recentActivities.sort((a, b) -> b.getTimestamp().compareTo(a.getTimestamp()));
-                
-                // Load restaurant data for activities
-                loadRestaurantsForActivities(recentActivities);
-                
+                    loadReceivedComments(userId, new java.util.Date(thirtyDaysAgo), allActivities);
+                });
             })
             .addOnFailureListener(e -> {
                 Log.e(TAG, "Error loading activity feed", e);
@@ -998,16 +1042,84 @@ public class ProfileFragment extends Fragment {
             });
     }
     
+    private void loadReceivedComments(String userId, java.util.Date since, List<ActivityItem> allActivities) {
+        // Comments now live in each review's comments subcollection, one collection group query covers them all
+        commentService.receivedCommentsQuery(userId, since)
+            .get()
+            .addOnSuccessListener(queryDocumentSnapshots -> {
+                for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
+                    ActivityItem activity = buildCommentActivity(document, userId);
+                    if (activity != null) {
+                        allActivities.add(activity);
+                    }
+                }
+                showRecentActivities(allActivities, since);
+            })
+            .addOnFailureListener(e -> {
+                Log.e(TAG, "Error loading comment activity", e);
+                showRecentActivities(allActivities, since);
+            });
+    }
+
+    private void showRecentActivities(List<ActivityItem> allActivities, java.util.Date since) {
+        if (!isAdded()) return;
+
+        List<ActivityItem> recentActivities = new ArrayList<>();
+        for (ActivityItem activity : allActivities) {
+            if (activity.getTimestamp() != null && !activity.getTimestamp().before(since)) {
+                recentActivities.add(activity);
+            }
+        }
+
+        // Sort by timestamp descending (most recent first)
+        recentActivities.sort((a, b) -> b.getTimestamp().compareTo(a.getTimestamp()));
+
+        // Load restaurant data for activities
+        loadRestaurantsForActivities(recentActivities);
+    }
+
+    private ActivityItem buildCommentActivity(com.google.firebase.firestore.DocumentSnapshot document, String userId) {
+        try {
+            com.example.food.data.Comment comment = document.toObject(com.example.food.data.Comment.class);
+            String reviewId = document.getString("reviewId");
+            // Skip if it's the review author commenting on their own review
+            if (comment == null || reviewId == null || userId.equals(comment.getUserId())) {
+                return null;
+            }
+
+            Review review = reviewMap.get(reviewId);
+            ActivityItem activity = new ActivityItem(
+                ActivityItem.ActivityType.COMMENT,
+                comment.getUserId(),
+                null, // Will be filled later
+                null, // Will be filled later
+                reviewId,
+                review != null ? review.getCaption() : null,
+                review != null ? review.getRestaurantName() : null,
+                comment.getCreatedAt()
+            );
+            activity.setCommentText(comment.getText());
+            if (review != null && review.getImageUrls() != null && !review.getImageUrls().isEmpty()) {
+                activity.setReviewFirstImageUrl(review.getImageUrls().get(0));
+            }
+            return activity;
+        } catch (Exception e) {
+            Log.e(TAG, "Error parsing comment document", e);
+            return null;
+        }
+    }
+
     private void setupActivityListener(String userId) {
         // Remove existing listener if any
         if (activityListener != null) {
             activityListener.remove();
         }
         
-        // Set up real-time listener for reviews by current user so that we can update the activity feed in real time
-        activityListener = db.collection("reviews")
-            .whereEqualTo("userId", userId)
-            .addSnapshotListener((queryDocumentSnapshots, error) -> {
+        // Set up real-time listener for reviews by current user so that we can update the activity feed in real time,
+        // shared with any other screen listening to the same query
+        activityListener = SnapshotListenerHub.getInstance().listenForChanges(
+            db.collection("reviews").whereEqualTo("userId", userId),
+            (queryDocumentSnapshots, error) -> {
                 if (error != null) {
                     Log.e(TAG, "Error in activity listener", error);
                     return;
@@ -1019,15 +1131,38 @@ public class ProfileFragment extends Fragment {
                     processActivityChanges(queryDocumentSnapshots, userId);
                 }
             });
+
+        if (commentActivityListener != null) {
+            commentActivityListener.remove();
+        }
+
+        // Only comments posted from now on, older ones come from loadInitialActivities
+        commentActivityListener = SnapshotListenerHub.getInstance().listenForChanges(
+            commentService.receivedCommentsQuery(userId, new java.util.Date()),
+            (queryDocumentSnapshots, error) -> {
+                if (error != null) {
+                    Log.e(TAG, "Error in comment activity listener", error);
+                    return;
+                }
+
+                if (queryDocumentSnapshots != null && isAdded()) {
+                    for (com.google.firebase.firestore.DocumentChange change : queryDocumentSnapshots.getDocumentChanges()) {
+                        if (change.getType() == com.google.firebase.firestore.DocumentChange.Type.ADDED) {
+                            ActivityItem newActivity = buildCommentActivity(change.getDocument(), userId);
+                            if (newActivity != null) {
+                                appendNewActivity(newActivity);
+                            }
+                        }
+                    }
+                }
+            });
     }
     
     private void processActivityChanges(com.google.firebase.firestore.QuerySnapshot queryDocumentSnapshots, String userId) {
         for (com.google.firebase.firestore.DocumentChange change : queryDocumentSnapshots.getDocumentChanges()) {
             if (change.getType() == com.google.firebase.firestore.DocumentChange.Type.MODIFIED) {
                 try {
-                    Review review = change.getDocument().toObject(Review.class);
-                    review.setId(change.getDocument().getId());
-                    review.refreshAccuracyFromVotes(); // Calculate accuracy from votes
+                    Review review = ReviewCodec.decode(change.getDocument().getId(), change.getDocument().getData());
                     
                     Log.d(TAG, "Processing modified review: " + review.getId() + " with " + (review.getVotes() != null ? review.getVotes().size() : 0) + " votes");
                     
@@ -1087,47 +1222,7 @@ public class ProfileFragment extends Fragment {
                         }
                     }
                     
-                    // Check for new comments
-                    if (review.getComments() != null) {
-                        for (com.example.food.data.Comment comment : review.getComments()) {
-                            // Skip if the review author is commenting on their own review
-                            if (!comment.getUserId().equals(userId)) {
-                                // Check if this comment activity already exists
-                                boolean commentExists = false;
-                                for (ActivityItem existingActivity : activities) {
-                                    if (existingActivity.getType() == ActivityItem.ActivityType.COMMENT &&
-                                        existingActivity.getReviewId().equals(review.getId()) &&
-                                        existingActivity.getUserId().equals(comment.getUserId()) &&
-                                        existingActivity.getCommentText() != null &&
-                                        existingActivity.getCommentText().equals(comment.getText())) {
-                                        commentExists = true;
-                                        break;
-                                    }
-                                }
-                                
-                                if (!commentExists) {
-                                    // Create new comment activity
-                                    ActivityItem newActivity = new ActivityItem(
-                                        ActivityItem.ActivityType.COMMENT,
-                                        comment.getUserId(),
-                                        null, // Will be filled later name
-                                        null, // Will be filled later avatar url
-                                        review.getId(),
-                                        review.getCaption(),
-                                        review.getRestaurantName(),
-                                        comment.getCreatedAt()
-                                    );
-                                    newActivity.setCommentText(comment.getText());
-                                    if (review.getImageUrls() != null && !review.getImageUrls().isEmpty()) {
-                                        newActivity.setReviewFirstImageUrl(review.getImageUrls().get(0));
-                                    }
-                                    
-                                    // Append to activities list
-                                    appendNewActivity(newActivity);
-                                }
-                            }
-                        }
-                    }
+                    // New comments arrive through commentActivityListener, the legacy array no longer changes
                     
                 } catch (Exception e) {
                     Log.e(TAG, "Error processing activity change", e);
@@ -1159,27 +1254,19 @@ public class ProfileFragment extends Fragment {
     }
     
     private void loadUserDetailsForNewActivity(ActivityItem activity) {
-        db.collection("users").document(activity.getUserId())
-            .get()
-            .addOnSuccessListener(documentSnapshot -> {
-                if (documentSnapshot.exists()) {
-                    String userName = documentSnapshot.getString("name");
-                    String userAvatarUrl = documentSnapshot.getString("profilePictureUrl");
-                    
-                    if (userName != null) {
-                        activity.setUserName(userName);
-                    }
-                    if (userAvatarUrl != null) {
-                        activity.setUserAvatarUrl(userAvatarUrl);
-                    }
-                    
-                    // Update the adapter to reflect the new user details
-                    activityAdapter.notifyDataSetChanged();
-                }
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Error fetching user details for new activity", e);
-            });
+        UserDirectory.getInstance().getUser(activity.getUserId(), (uid, user) -> {
+            if (user == null || !isAdded()) return;
+            
+            if (user.getName() != null) {
+                activity.setUserName(user.getName());
+            }
+            if (user.getAvatarUrl() != null) {
+                activity.setUserAvatarUrl(user.getAvatarUrl());
+            }
+            
+            // Update the adapter to reflect the new user details
+            activityAdapter.notifyDataSetChanged();
+        });
     }
     
     private void loadRestaurantDetailsForNewActivity(ActivityItem activity) {
@@ -1200,32 +1287,15 @@ public class ProfileFragment extends Fragment {
             return;
         }
         
-        // Load restaurant data
-        db.collection("restaurants")
-            .document(restaurantId)
-            .get()
-            .addOnSuccessListener(documentSnapshot -> {
-                if (documentSnapshot.exists()) {
-                    try {
-                        Restaurant restaurant = documentSnapshot.toObject(Restaurant.class);
-                        if (restaurant != null) {
-                            restaurant.setId(documentSnapshot.getId());
-                            restaurantMap.put(restaurantId, restaurant);
-                            
-                            // Update the activity with restaurant name
-                            activity.setRestaurantName(restaurant.getName());
-                            
-                            // Update the adapter to reflect the new restaurant details
-                            activityAdapter.notifyDataSetChanged();
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error parsing restaurant document for new activity", e);
-                    }
-                }
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Error fetching restaurant details for new activity", e);
-            });
+        RestaurantRepository repository = RestaurantRepository.getInstance();
+        repository.whenReady(() -> {
+            Restaurant restaurant = repository.getRestaurant(restaurantId);
+            if (restaurant != null && isAdded()) {
+                restaurantMap.put(restaurantId, restaurant);
+                activity.setRestaurantName(restaurant.getName());
+                activityAdapter.notifyDataSetChanged();
+            }
+        });
     }
 
     private void loadRestaurantsForActivities(List<ActivityItem> recentActivities) {
@@ -1248,50 +1318,24 @@ public class ProfileFragment extends Fragment {
             return;
         }
         
-        // Load restaurant data
-        for (String restaurantId : restaurantIds) {
-            db.collection("restaurants")
-                .document(restaurantId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        try {
-                            Restaurant restaurant = documentSnapshot.toObject(Restaurant.class);
-                            if (restaurant != null) {
-                                restaurant.setId(documentSnapshot.getId());
-                                restaurantMap.put(restaurantId, restaurant);
-                                
-                                // Update activities with restaurant names
-                                for (ActivityItem activity : recentActivities) {
-                                    Review review = reviewMap.get(activity.getReviewId());
-                                    if (review != null && restaurantId.equals(review.getRestaurantId())) {
-                                        activity.setRestaurantName(restaurant.getName());
-                                    }
-                                }
-                            }
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error parsing restaurant document", e);
-                        }
-                    }
-                    
-                    // Check if all restaurants are loaded
-                    boolean allRestaurantsLoaded = true;
-                    for (String id : restaurantIds) {
-                        if (!restaurantMap.containsKey(id)) {
-                            allRestaurantsLoaded = false;
-                            break;
-                        }
-                    }
-                    
-                    if (allRestaurantsLoaded) {
-                        fetchUserDetailsForActivities(recentActivities);
+        RestaurantRepository repository = RestaurantRepository.getInstance();
+        repository.whenReady(() -> {
+            if (!isAdded()) return;
+            restaurantMap.putAll(repository.getRestaurants(restaurantIds));
+
+            // Update activities with restaurant names
+            for (ActivityItem activity : recentActivities) {
+                Review review = reviewMap.get(activity.getReviewId());
+                if (review != null) {
+                    Restaurant restaurant = restaurantMap.get(review.getRestaurantId());
+                    if (restaurant != null) {
+                        activity.setRestaurantName(restaurant.getName());
                     }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading restaurant: " + restaurantId, e);
-                    fetchUserDetailsForActivities(recentActivities);
-                });
-        }
+                }
+            }
+
+            fetchUserDetailsForActivities(recentActivities);
+        });
     }
 
     private void fetchUserDetailsForActivities(List<ActivityItem> recentActivities) {
@@ -1306,52 +1350,30 @@ public class ProfileFragment extends Fragment {
             userIds.add(activity.getUserId());
         }
         
-        // Fetch user details for each unique user
-        for (String userId : userIds) {
-            db.collection("users")
-                .document(userId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        String userName = documentSnapshot.getString("name");
-                        String userAvatarUrl = documentSnapshot.getString("avatarUrl");
-                        
-                        // Update all activities for this user
-                        for (ActivityItem activity : recentActivities) {
-                            if (activity.getUserId().equals(userId)) {
-                                activity.setUserName(userName);
-                                activity.setUserAvatarUrl(userAvatarUrl);
-                            }
-                        }
-                        
-                        // Check if all user details are loaded
-                        boolean allLoaded = true;
-                        for (ActivityItem activity : recentActivities) {
-                            if (activity.getUserName() == null) {
-                                allLoaded = false;
-                                break;
-                            }
-                        }
-                        
-                        if (allLoaded) {
-                            activities.clear();
-                            activities.addAll(recentActivities);
-                            activityAdapter.setActivities(activities);
-                            activityAdapter.setReviewMap(reviewMap);
-                            activityAdapter.setRestaurantMap(restaurantMap);
-                            
-                            if (activities.isEmpty()) {
-                                showEmptyActivityState();
-                            } else {
-                                hideEmptyActivityState();
-                            }
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error fetching user details for activity", e);
-                });
-        }
+        // Resolve all authors in one batched lookup
+        UserDirectory.getInstance().getUsers(userIds, users -> {
+            if (!isAdded()) return;
+            
+            for (ActivityItem activity : recentActivities) {
+                UserDirectory.UserInfo user = users.get(activity.getUserId());
+                if (user != null) {
+                    activity.setUserName(user.getName());
+                    activity.setUserAvatarUrl(user.getAvatarUrl());
+                }
+            }
+            
+            activities.clear();
+            activities.addAll(recentActivities);
+            activityAdapter.setActivities(activities);
+            activityAdapter.setReviewMap(reviewMap);
+            activityAdapter.setRestaurantMap(restaurantMap);
+            
+            if (activities.isEmpty()) {
+                showEmptyActivityState();
+            } else {
+                hideEmptyActivityState();
+            }
+        });
     }
 
     private void showEmptyActivityState() {
@@ -1386,9 +1408,7 @@ public class ProfileFragment extends Fragment {
 
                     if (freshProfile != null) {
                         userProfile = freshProfile;
-                        if (!isViewingOtherUser) {
-                            cacheManager.cacheUserProfile(freshProfile);
-                        }
+                        cacheManager.cacheUserProfile(userId, freshProfile);
                         loadAnalyticsData();
                     }
                 }
@@ -1589,12 +1609,12 @@ public class ProfileFragment extends Fragment {
     @Override
     public void onDestroy() {
         super.onDestroy();
-        if (profileListener != null) {
-            profileListener.remove();
-        }
         if (activityListener != null) {
             activityListener.remove();
         }
+        if (commentActivityListener != null) {
+            commentActivityListener.remove();
+        }
     }
 }
 
@@ -16,6 +16,9 @@ import androidx.fragment.app.Fragment;
 import com.bumptech.glide.Glide;
 import com.example.food.data.UserProfile;
 import com.example.food.cache.ProfileCacheManager;
+import com.example.food.service.AuthorSnapshotFanout;
+import com.example.food.service.SnapshotListenerHub;
+import com.example.food.service.UserDirectory;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.textfield.TextInputEditText;
@@ -163,8 +166,9 @@ public class SettingsFragment extends Fragment {
 
         // Load fresh data from Firebase in background
         executorService.execute(() -> {
-            profileListener = db.collection("users").document(currentUser.getUid())
-                    .addSnapshotListener((documentSnapshot, e) -> {
+            profileListener = SnapshotListenerHub.getInstance().listen(
+                    db.collection("users").document(currentUser.getUid()),
+                    (documentSnapshot, e) -> {
                         if (e != null) {
                             Log.e(TAG, "Listen failed.", e);
                             return;
@@ -174,7 +178,7 @@ public class SettingsFragment extends Fragment {
                             userProfile = documentSnapshot.toObject(UserProfile.class);
                             if (userProfile != null) {
                                 // Cache the fresh data
-                                cacheManager.cacheUserProfile(userProfile);
+                                cacheManager.cacheUserProfile(currentUser.getUid(), userProfile);
                                 // Update UI on main thread
                                 if (getActivity() != null) {
                                     getActivity().runOnUiThread(this::updateUI);
@@ -188,11 +192,20 @@ public class SettingsFragment extends Fragment {
     }
     
     private void loadCachedData() {
-        UserProfile cachedProfile = cacheManager.getCachedUserProfile();
-        if (cachedProfile != null) {
-            userProfile = cachedProfile;
-            updateUI();
-        }
+        cacheManager.getUserProfile(currentUser.getUid(), new ProfileCacheManager.ProfileCallback() {
+            @Override
+            public void onProfileLoaded(UserProfile profile, boolean fromNetwork) {
+                // The users listener may already have delivered a newer profile
+                if (!isAdded() || profile == null || userProfile != null) return;
+                userProfile = profile;
+                updateUI();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Error loading cached profile", e);
+            }
+        });
     }
 
     private void loadProfilePicture() {
@@ -242,7 +255,7 @@ public class SettingsFragment extends Fragment {
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "User profile created successfully");
                     // Cache the new profile
-                    cacheManager.cacheUserProfile(userProfile);
+                    cacheManager.cacheUserProfile(currentUser.getUid(), userProfile);
                     updateUI();
                 })
                 .addOnFailureListener(e -> {
@@ -289,6 +302,8 @@ public class SettingsFragment extends Fragment {
 
         setUpdatingState(true);
 
+        final String previousName = userProfile != null ? userProfile.getName() : null;
+        final android.content.Context appContext = requireContext().getApplicationContext();
         DocumentReference userDoc = db.collection("users").document(currentUser.getUid());
         Map<String, Object> updates = new HashMap<>();
         updates.put("name", name);
@@ -304,7 +319,11 @@ public class SettingsFragment extends Fragment {
                         if (userProfile != null) {
                             userProfile.setName(name);
                             userProfile.setBio(bio);
-                            cacheManager.cacheUserProfile(userProfile);
+                            cacheManager.cacheUserProfile(currentUser.getUid(), userProfile);
+                        }
+                        UserDirectory.getInstance().invalidate(currentUser.getUid());
+                        if (!name.equals(previousName)) {
+                            AuthorSnapshotFanout.schedule(appContext, currentUser.getUid());
                         }
                         showToast(getString(R.string.profile_updated_successfully));
                         clearErrors();
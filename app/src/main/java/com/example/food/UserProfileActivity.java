@@ -15,12 +15,14 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.example.food.adapters.ReviewWidgetAdapter;
+import com.example.food.cache.ProfileCacheManager;
+import com.example.food.cache.UserReviewsCache;
 import com.example.food.data.Review;
 import com.example.food.data.UserProfile;
 import com.example.food.dialogs.ReviewDetailsDialog;
 import com.example.food.model.Restaurant;
+import com.example.food.service.RestaurantRepository;
 import com.example.food.service.ReviewService;
-import com.google.firebase.firestore.FirebaseFirestore;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -33,7 +35,6 @@ public class UserProfileActivity extends AppCompatActivity {
     
     private String userId;
     private UserProfile userProfile;
-    private FirebaseFirestore db;
     
     // Views
     private ImageView ivProfilePicture;
@@ -48,6 +49,7 @@ public class UserProfileActivity extends AppCompatActivity {
     private List<Review> userReviews;
     private Map<String, Restaurant> restaurantMap;
     private ReviewService reviewService;
+    private boolean reviewsLoaded;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -68,6 +70,13 @@ public class UserProfileActivity extends AppCompatActivity {
         loadUserReviews();
     }
     
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Coming back from a review or another profile only needs what changed
+        refreshUserReviews();
+    }
+    
     private void initViews() {
         ivProfilePicture = findViewById(R.id.ivProfilePicture);
         tvUserName = findViewById(R.id.tvUserName);
@@ -89,6 +98,10 @@ public class UserProfileActivity extends AppCompatActivity {
             public void onReviewClick(Review review, Restaurant restaurant) {
                 // Open review details dialog
                 ReviewDetailsDialog dialog = new ReviewDetailsDialog(UserProfileActivity.this, review, restaurant);
+                dialog.setOnReviewDeletedListener(deletedReview -> {
+                    userReviews.removeIf(r -> deletedReview.getId().equals(r.getId()));
+                    showUserReviews();
+                });
                 dialog.show();
             }
             
@@ -106,27 +119,31 @@ public class UserProfileActivity extends AppCompatActivity {
     }
     
     private void initData() {
-        db = FirebaseFirestore.getInstance();
         reviewService = new ReviewService();
     }
     
     private void loadUserProfile() {
-        db.collection("users").document(userId)
-            .get()
-            .addOnSuccessListener(documentSnapshot -> {
-                if (documentSnapshot.exists()) {
-                    userProfile = documentSnapshot.toObject(UserProfile.class);
-                    if (userProfile != null) {
-                        updateUserUI();
-                    }
-                } else {
+        // Profiles seen before come from the cache, stale ones are refreshed in the background
+        ProfileCacheManager.getInstance(this).getUserProfile(userId, new ProfileCacheManager.ProfileCallback() {
+            @Override
+            public void onProfileLoaded(UserProfile profile, boolean fromNetwork) {
+                if (isFinishing() || isDestroyed()) return;
+                if (profile != null) {
+                    userProfile = profile;
+                    updateUserUI();
+                } else if (fromNetwork) {
                     showUserNotFound();
                 }
-            })
-            .addOnFailureListener(e -> {
+            }
+
+            @Override
+            public void onError(Exception e) {
                 Log.e(TAG, "Error loading user profile", e);
-                Toast.makeText(this, "Failed to load user profile", Toast.LENGTH_SHORT).show();
-            });
+                if (!isFinishing()) {
+                    Toast.makeText(UserProfileActivity.this, "Failed to load user profile", Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
     }
     
     private void updateUserUI() {
@@ -170,19 +187,24 @@ public class UserProfileActivity extends AppCompatActivity {
     }
     
     private void loadUserReviews() {
-        reviewService.getReviewsByUser(userId, new ReviewService.OnReviewsLoadedListener() {
+        // Reviews already fetched this session are shown straight away and refreshed by delta
+        List<Review> cachedReviews = UserReviewsCache.getInstance().get(userId);
+        if (cachedReviews != null) {
+            userReviews.clear();
+            userReviews.addAll(cachedReviews);
+            reviewsLoaded = true;
+            showUserReviews();
+            return;
+        }
+        
+        reviewService.getReviewCardsByUser(userId, new ReviewService.OnReviewsLoadedListener() {
             @Override
             public void onReviewsLoaded(List<Review> reviews) {
                 userReviews.clear();
                 userReviews.addAll(reviews);
-                
-                // Update reviews count
-                tvReviewsCount.setText(String.format(Locale.getDefault(), "%d reviews", reviews.size()));
-                
-                // Load restaurant information for reviews
-                loadRestaurantInfoForReviews(reviews);
-                
-                reviewAdapter.notifyDataSetChanged();
+                UserReviewsCache.getInstance().put(userId, reviews);
+                reviewsLoaded = true;
+                showUserReviews();
             }
             
             @Override
@@ -193,29 +215,57 @@ public class UserProfileActivity extends AppCompatActivity {
         });
     }
     
+    /**
+     * Fetch only reviews created or updated after the newest one shown
+     */
+    private void refreshUserReviews() {
+        if (!reviewsLoaded) return;
+        
+        java.util.Date watermark = ReviewService.getWatermark(userReviews);
+        if (watermark == null) return;
+        
+        reviewService.getReviewsByUserUpdatedSince(userId, watermark, new ReviewService.OnReviewsLoadedListener() {
+            @Override
+            public void onReviewsLoaded(List<Review> changes) {
+                if (isFinishing() || changes.isEmpty()) return;
+                ReviewService.mergeReviews(userReviews, changes);
+                UserReviewsCache.getInstance().merge(userId, changes);
+                showUserReviews();
+            }
+            
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Error refreshing user reviews: " + error);
+            }
+        });
+    }
+    
+    private void showUserReviews() {
+        // Update reviews count
+        tvReviewsCount.setText(String.format(Locale.getDefault(), "%d reviews", userReviews.size()));
+        
+        // Load restaurant information for reviews
+        loadRestaurantInfoForReviews(userReviews);
+        
+        reviewAdapter.notifyDataSetChanged();
+    }
+    
     private void loadRestaurantInfoForReviews(List<Review> reviews) {
         restaurantMap.clear();
         
+        java.util.Set<String> restaurantIds = new java.util.HashSet<>();
         for (Review review : reviews) {
-            String restaurantId = review.getRestaurantId();
-            if (restaurantId != null && !restaurantMap.containsKey(restaurantId)) {
-                // Load restaurant info from Firestore
-                db.collection("restaurants").document(restaurantId)
-                    .get()
-                    .addOnSuccessListener(documentSnapshot -> {
-                        if (documentSnapshot.exists()) {
-                            Restaurant restaurant = documentSnapshot.toObject(Restaurant.class);
-                            if (restaurant != null) {
-                                restaurantMap.put(restaurantId, restaurant);
-                                reviewAdapter.setRestaurantMap(restaurantMap);
-                            }
-                        }
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Error loading restaurant: " + restaurantId, e);
-                    });
+            if (review.getRestaurantId() != null) {
+                restaurantIds.add(review.getRestaurantId());
             }
         }
+        
+        RestaurantRepository repository = RestaurantRepository.getInstance();
+        repository.whenReady(() -> {
+            if (isFinishing()) return;
+            restaurantMap.putAll(repository.getRestaurants(restaurantIds));
+            reviewAdapter.setRestaurantMap(restaurantMap);
+        });
     }
     
     private void showUserNotFound() {
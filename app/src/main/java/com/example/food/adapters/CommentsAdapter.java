@@ -12,7 +12,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
 import com.example.food.R;
 import com.example.food.data.Comment;
-import com.google.firebase.firestore.FirebaseFirestore;
+import com.example.food.service.UserDirectory;
 
 import java.util.List;
 
@@ -20,11 +20,9 @@ import de.hdodenhof.circleimageview.CircleImageView;
 
 public class CommentsAdapter extends RecyclerView.Adapter<CommentsAdapter.CommentViewHolder> {
     private List<Comment> comments;
-    private FirebaseFirestore db;
 
     public CommentsAdapter(List<Comment> comments) {
         this.comments = comments;
-        this.db = FirebaseFirestore.getInstance();
     }
 
     @NonNull
@@ -39,7 +37,7 @@ public class CommentsAdapter extends RecyclerView.Adapter<CommentsAdapter.Commen
     public void onBindViewHolder(@NonNull CommentViewHolder holder, int position) {
         Comment comment = comments.get(position);
         if (comment != null) {
-            holder.bind(comment, db);
+            holder.bind(comment);
         }
     }
 
@@ -53,6 +51,19 @@ public class CommentsAdapter extends RecyclerView.Adapter<CommentsAdapter.Commen
         notifyDataSetChanged();
     }
 
+    // Append a page of older comments at the bottom
+    public void addComments(List<Comment> more) {
+        int start = comments.size();
+        comments.addAll(more);
+        notifyItemRangeInserted(start, more.size());
+    }
+
+    // A freshly posted comment goes on top since the list is newest first
+    public void addCommentAtTop(Comment comment) {
+        comments.add(0, comment);
+        notifyItemInserted(0);
+    }
+
     static class CommentViewHolder extends RecyclerView.ViewHolder {
         private CircleImageView ivAvatar;
         private TextView tvUserName;
@@ -67,7 +78,7 @@ public class CommentsAdapter extends RecyclerView.Adapter<CommentsAdapter.Commen
             tvCommentText = itemView.findViewById(R.id.tv_comment_content);
         }
 
-        public void bind(Comment comment, FirebaseFirestore db) {
+        public void bind(Comment comment) {
             if (tvUserName != null) {
                 tvUserName.setText(comment.getUserName());
             }
@@ -88,35 +99,28 @@ public class CommentsAdapter extends RecyclerView.Adapter<CommentsAdapter.Commen
                     return;
                 }
 
-                db.collection("users").document(userId)
-                    .get()
-                    .addOnSuccessListener(doc -> {
-                        if (doc.exists()) {
-                            String avatarUrl = doc.getString("avatarUrl");
-                            if (avatarUrl != null && !avatarUrl.trim().isEmpty()) {
-                                ivAvatar.setBorderWidth(2);
-                                ivAvatar.setBorderColor(ContextCompat.getColor(itemView.getContext(), R.color.logo_primary));
-                                Glide.with(itemView.getContext())
-                                    .load(avatarUrl)
-                                    .placeholder(R.drawable.ic_person)
-                                    .error(R.drawable.ic_person)
-                                    .diskCacheStrategy(com.bumptech.glide.load.engine.DiskCacheStrategy.ALL)
-                                    .centerCrop()
-                                    .override(72, 72)
-                                    .into(ivAvatar);
-                            } else {
-                                ivAvatar.setBorderWidth(0);
-                                ivAvatar.setImageResource(R.drawable.ic_person);
-                            }
-                        } else {
-                            ivAvatar.setBorderWidth(0);
-                            ivAvatar.setImageResource(R.drawable.ic_person);
-                        }
-                    })
-                    .addOnFailureListener(e -> {
+                // Recycled holders may be rebound before the lookup returns
+                itemView.setTag(userId);
+                UserDirectory.getInstance().getUser(userId, (uid, user) -> {
+                    if (!uid.equals(itemView.getTag())) {
+                        return;
+                    }
+                    if (user != null && user.hasAvatar()) {
+                        ivAvatar.setBorderWidth(2);
+                        ivAvatar.setBorderColor(ContextCompat.getColor(itemView.getContext(), R.color.logo_primary));
+                        Glide.with(itemView.getContext())
+                            .load(user.getAvatarUrl())
+                            .placeholder(R.drawable.ic_person)
+                            .error(R.drawable.ic_person)
+                            .diskCacheStrategy(com.bumptech.glide.load.engine.DiskCacheStrategy.ALL)
+                            .centerCrop()
+                            .override(72, 72)
+                            .into(ivAvatar);
+                    } else {
                         ivAvatar.setBorderWidth(0);
                         ivAvatar.setImageResource(R.drawable.ic_person);
-                    });
+                    }
+                });
             }
         }
     }
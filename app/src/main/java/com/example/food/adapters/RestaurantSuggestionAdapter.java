@@ -0,0 +1,112 @@
+package com.example.food.adapters;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.Filter;
+import android.widget.Filterable;
+import android.widget.TextView;
+
+import com.example.food.R;
+import com.example.food.model.Restaurant;
+import com.example.food.search.RestaurantNameIndex;
+import com.example.food.service.RestaurantRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Autocomplete suggestions for an AutoCompleteTextView, matched through the shared
+ * RestaurantNameIndex on the filter thread. Items are Restaurants, so a selection is resolved by
+ * id and two places with the same name stay apart; those show their address as well.
+ */
+public class RestaurantSuggestionAdapter extends BaseAdapter implements Filterable {
+    private static final int MAX_SUGGESTIONS = 20;
+
+    private final LayoutInflater inflater;
+    private List<Restaurant> suggestions = new ArrayList<>();
+    private volatile RestaurantNameIndex index; // The one the current suggestions came from
+    // Written on the main thread, read on the filter thread
+    private volatile double originLatitude = Double.NaN;
+    private volatile double originLongitude = Double.NaN;
+
+    public RestaurantSuggestionAdapter(Context context) {
+        this.inflater = LayoutInflater.from(context);
+    }
+
+    /**
+     * Rank places near this point higher, e.g. the user's location or the map's center
+     */
+    public void setOrigin(double latitude, double longitude) {
+        this.originLatitude = latitude;
+        this.originLongitude = longitude;
+    }
+
+    @Override
+    public int getCount() {
+        return suggestions.size();
+    }
+
+    @Override
+    public Restaurant getItem(int position) {
+        return suggestions.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        TextView view = convertView != null ? (TextView) convertView
+                : (TextView) inflater.inflate(R.layout.simple_dropdown_item_white, parent, false);
+        Restaurant restaurant = getItem(position);
+        if (index != null && index.hasDuplicateName(restaurant) && restaurant.getAddress() != null) {
+            view.setText(restaurant.getName() + " · " + restaurant.getAddress());
+        } else {
+            view.setText(restaurant.getName());
+        }
+        return view;
+    }
+
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+
+    private final Filter filter = new Filter() {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            FilterResults results = new FilterResults();
+            List<Restaurant> matches = new ArrayList<>();
+            if (constraint != null && constraint.length() > 0) {
+                RestaurantNameIndex current = RestaurantRepository.getInstance().getNameIndex();
+                matches = current.search(constraint.toString(), originLatitude, originLongitude, MAX_SUGGESTIONS);
+                index = current;
+            }
+            results.values = matches;
+            results.count = matches.size();
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            suggestions = results.values != null ? (List<Restaurant>) results.values : new ArrayList<>();
+            if (results.count > 0) {
+                notifyDataSetChanged();
+            } else {
+                notifyDataSetInvalidated();
+            }
+        }
+
+        @Override
+        public CharSequence convertResultToString(Object resultValue) {
+            // The text box shows the plain name once a suggestion is picked
+            return resultValue instanceof Restaurant ? ((Restaurant) resultValue).getName() : super.convertResultToString(resultValue);
+        }
+    };
+}
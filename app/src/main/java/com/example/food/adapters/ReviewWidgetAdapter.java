@@ -8,13 +8,16 @@ import android.widget.TextView;
 import android.util.TypedValue;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.example.food.R;
 import com.example.food.data.Review;
 import com.example.food.model.Restaurant;
+import com.example.food.utils.BackgroundDecoder;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -29,6 +32,7 @@ public class ReviewWidgetAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
     private OnReviewClickListener listener;
     private boolean isLoading = false;
     private boolean showUserInfo = true;
+    private int listGeneration; // Bumped by every list change, a diff computed for an older list is dropped
 
 
     public interface OnReviewClickListener {
@@ -92,11 +96,58 @@ public class ReviewWidgetAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
     }
 
     public void setReviews(List<Review> reviews) {
+        listGeneration++;
         this.reviews = reviews;
         notifyDataSetChanged();
     }
 
+    /**
+     * Show a new list, animating only the rows that were added, removed or moved.
+     * The diff is computed off the main thread; onApplied runs once the list is showing.
+     */
+    public void submitReviews(List<Review> newReviews, Runnable onApplied) {
+        if (isLoading || reviews == null) {
+            setReviews(newReviews);
+            if (onApplied != null) onApplied.run();
+            return;
+        }
+        int generation = ++listGeneration;
+        List<Review> oldSnapshot = new ArrayList<>(reviews);
+        List<Review> newSnapshot = new ArrayList<>(newReviews);
+        BackgroundDecoder.executor().execute(() -> {
+            DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new ReviewDiff(oldSnapshot, newSnapshot));
+            BackgroundDecoder.postToMain(() -> {
+                if (generation != listGeneration) return;
+                // Either list may have been changed in place while diffing, e.g. a page appended to the feed
+                boolean current = !isLoading && sameItems(reviews, oldSnapshot) && sameItems(newReviews, newSnapshot);
+                reviews = newReviews;
+                if (current) {
+                    diff.dispatchUpdatesTo(this);
+                } else {
+                    notifyDataSetChanged();
+                }
+                if (onApplied != null) onApplied.run();
+            });
+        });
+    }
+
+    /**
+     * Whether the adapter is bound to this exact list, so in-place changes to it can be notified by range
+     */
+    public boolean isShowing(List<Review> list) {
+        return reviews == list;
+    }
+
+    private static boolean sameItems(List<Review> list, List<Review> snapshot) {
+        if (list == null || list.size() != snapshot.size()) return false;
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (list.get(i) != snapshot.get(i)) return false;
+        }
+        return true;
+    }
+
     public void setLoading(boolean loading) {
+        listGeneration++;
         this.isLoading = loading;
         notifyDataSetChanged();
     }
@@ -111,6 +162,34 @@ public class ReviewWidgetAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
         notifyDataSetChanged();
     }
 
+    private static class ReviewDiff extends DiffUtil.Callback {
+        private final List<Review> oldList;
+        private final List<Review> newList;
+
+        ReviewDiff(List<Review> oldList, List<Review> newList) {
+            this.oldList = oldList;
+            this.newList = newList;
+        }
+
+        @Override
+        public int getOldListSize() { return oldList.size(); }
+
+        @Override
+        public int getNewListSize() { return newList.size(); }
+
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            String oldId = oldList.get(oldPosition).getId();
+            return oldId != null && oldId.equals(newList.get(newPosition).getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            // Reviews are updated in place and rebound by whoever changes them
+            return oldList.get(oldPosition) == newList.get(newPosition);
+        }
+    }
+
     class ReviewViewHolder extends RecyclerView.ViewHolder {
         private ImageView ivRestaurantImage;
         private TextView tvCaption;
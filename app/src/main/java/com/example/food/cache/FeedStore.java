@@ -0,0 +1,220 @@
+package com.example.food.cache;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.example.food.data.Review;
+import com.example.food.service.ReviewService;
+import com.example.food.utils.BackgroundDecoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Last few pages of the home feed kept on disk, so a cold start can show reviews before
+ * Firestore answers. Reviews are stored as cards with the author name, avatar and restaurant
+ * name already resolved. The snapshot is disposable: a newer format or an old snapshot is
+ * simply ignored and the feed loads from the network as before.
+ */
+public class FeedStore {
+    private static final String TAG = "FeedStore";
+    private static final String FILE_NAME = "feed_store.bin";
+    private static final int MAGIC = 0x46454544; // "FEED"
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_PAGES = 3;
+    private static final int MAX_REVIEWS = MAX_PAGES * ReviewService.FEED_PAGE_SIZE;
+    private static final int MAX_BYTES = 128 * 1024; // Reviews past this are evicted from the tail
+    private static final long MAX_AGE = 7L * 24 * 60 * 60 * 1000; // 7 days
+
+    private static FeedStore instance;
+    private final AtomicFile file;
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+
+    public interface FeedCallback {
+        void onFeedLoaded(List<Review> reviews);
+    }
+
+    private FeedStore(Context context) {
+        file = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    public static synchronized FeedStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new FeedStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Read the stored feed off the main thread, the callback gets an empty list when there is none
+     */
+    public void load(FeedCallback callback) {
+        BackgroundDecoder.executor().execute(() -> {
+            List<Review> reviews = read();
+            BackgroundDecoder.postToMain(() -> callback.onFeedLoaded(reviews));
+        });
+    }
+
+    /**
+     * Replace the stored feed with the head of the given list. Fields are copied on the
+     * caller's thread, the file is written in the background.
+     */
+    public void save(List<Review> reviews) {
+        byte[] data;
+        try {
+            data = encode(reviews);
+        } catch (IOException e) {
+            Log.w(TAG, "Error encoding feed", e);
+            return;
+        }
+        diskExecutor.execute(() -> {
+            FileOutputStream out = null;
+            try {
+                out = file.startWrite();
+                out.write(data);
+                file.finishWrite(out);
+            } catch (IOException e) {
+                Log.w(TAG, "Error writing feed", e);
+                if (out != null) {
+                    file.failWrite(out);
+                }
+            }
+        });
+    }
+
+    public void clear() {
+        diskExecutor.execute(file::delete);
+    }
+
+    private List<Review> read() {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(file.readFully()));
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != FORMAT_VERSION) {
+                return Collections.emptyList();
+            }
+            long savedAt = in.readLong();
+            if (System.currentTimeMillis() - savedAt > MAX_AGE) {
+                return Collections.emptyList();
+            }
+
+            int count = in.readInt();
+            List<Review> reviews = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                reviews.add(readReview(in));
+            }
+            Log.d(TAG, "Restored " + reviews.size() + " feed reviews");
+            return reviews;
+        } catch (FileNotFoundException e) {
+            return Collections.emptyList();
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Dropping unreadable feed", e);
+            file.delete();
+            return Collections.emptyList();
+        }
+    }
+
+    private static byte[] encode(List<Review> reviews) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream bodyOut = new DataOutputStream(body);
+        int count = 0;
+        for (Review review : reviews) {
+            if (count == MAX_REVIEWS) break;
+            int before = body.size();
+            writeReview(bodyOut, review);
+            if (body.size() > MAX_BYTES) {
+                // Over budget, drop this review and everything after it
+                byte[] kept = body.toByteArray();
+                body.reset();
+                body.write(kept, 0, before);
+                break;
+            }
+            count++;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.size() + 17);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(count);
+        body.writeTo(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeReview(DataOutputStream out, Review review) throws IOException {
+        writeString(out, review.getId());
+        writeString(out, review.getUserId());
+        writeString(out, review.getRestaurantId());
+        writeString(out, review.getCaption());
+        out.writeFloat(review.getRating());
+        out.writeDouble(review.getAccuracyPercent());
+        List<String> imageUrls = review.getImageUrls();
+        writeString(out, imageUrls != null && !imageUrls.isEmpty() ? imageUrls.get(0) : null);
+        writeString(out, review.getFirstImageType());
+        writeDate(out, review.getCreatedAt());
+        writeDate(out, review.getUpdatedAt());
+        // Resolved values, so the restored feed needs no users or restaurants lookup
+        writeString(out, review.getUserName());
+        writeString(out, review.getUserAvatarUrl());
+        writeString(out, review.getRestaurantName());
+    }
+
+    private static Review readReview(DataInputStream in) throws IOException {
+        Review review = new Review();
+        review.setId(readString(in));
+        review.setUserId(readString(in));
+        review.setRestaurantId(readString(in));
+        review.setCaption(readString(in));
+        review.setRating(in.readFloat());
+        review.setAccuracyPercent(in.readDouble());
+        List<String> imageUrls = new ArrayList<>();
+        String firstImageUrl = readString(in);
+        if (firstImageUrl != null) {
+            imageUrls.add(firstImageUrl);
+        }
+        review.setImageUrls(imageUrls);
+        review.setFirstImageType(readString(in));
+        review.setCreatedAt(readDate(in));
+        review.setUpdatedAt(readDate(in));
+        review.setAuthorName(readString(in));
+        review.setAuthorAvatarUrl(readString(in));
+        review.setRestaurantName(readString(in));
+        // Same shape as a review card, the details dialog loads the full review on open
+        review.setCardOnly(true);
+        return review;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDate(DataOutputStream out, Date value) throws IOException {
+        out.writeLong(value != null ? value.getTime() : -1L);
+    }
+
+    private static Date readDate(DataInputStream in) throws IOException {
+        long time = in.readLong();
+        return time >= 0 ? new Date(time) : null;
+    }
+}
@@ -1,24 +1,98 @@
 package com.example.food.cache;
 
 import android.content.Context;
-import android.content.SharedPreferences;
+import android.util.AtomicFile;
+import android.util.Log;
+
 import com.example.food.data.UserProfile;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.example.food.utils.BackgroundDecoder;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Profiles keyed by uid, held in a bounded in-memory LRU backed by one small binary file per
+ * uid (see ProfileCodec). A file is only read the first time its uid is asked for, on the disk
+ * thread like every write, which goes through AtomicFile.
+ * Entries are never dropped for being old: a stale profile is still handed out straight away
+ * and refreshed from Firestore in the background (stale-while-revalidate).
+ * A uid without a users document is remembered in memory for MISSING_TTL, during which it is
+ * answered as not found without a read.
+ */
 public class ProfileCacheManager {
-    private static final String PREFS_NAME = "profile_cache";
-    private static final String KEY_USER_PROFILE = "user_profile";
-    private static final String KEY_CACHE_TIMESTAMP = "cache_timestamp";
-    private static final long CACHE_EXPIRY_TIME = 5 * 60 * 1000; // 5 minutes
+    private static final String TAG = "ProfileCacheManager";
+    private static final String CACHE_DIR = "profile_cache";
+    private static final String FILE_SUFFIX = ".bin";
+    // SharedPreferences file used by the Gson cache this replaced
+    private static final String LEGACY_PREFS_NAME = "profile_cache";
+    private static final long CACHE_EXPIRY_TIME = 5 * 60 * 1000; // 5 minutes, after that entries are stale
+    private static final long MISSING_TTL = 2 * 60 * 1000; // Tombstones for uids without a profile
+    private static final int MAX_MEMORY_ENTRIES = 32;
+    private static final int MAX_DISK_ENTRIES = 100;
 
     private static ProfileCacheManager instance;
-    private SharedPreferences prefs;
-    private Gson gson;
+    private File cacheDir;
+    private FirebaseFirestore db;
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_MEMORY_ENTRIES;
+        }
+    };
+    // Callbacks waiting on a revalidation, so one uid is only fetched once at a time
+    private final Map<String, List<ProfileCallback>> inFlight = new HashMap<>();
+    // uid -> when its profile document was found missing
+    private final Map<String, Long> missing = new HashMap<>();
+
+    private int hitCount;
+    private int staleHitCount;
+    private int missCount;
+    private int tombstoneHitCount;
+
+    public interface ProfileCallback {
+        /**
+         * Called with the cached profile first if there is one, then again after a network fetch.
+         * profile is null when the user has no profile document, a remembered miss is delivered
+         * the same way without reading Firestore.
+         */
+        void onProfileLoaded(UserProfile profile, boolean fromNetwork);
+        void onError(Exception e);
+    }
+
+    private static class Entry {
+        final UserProfile profile;
+        final long cachedAt;
+
+        Entry(UserProfile profile, long cachedAt) {
+            this.profile = profile;
+            this.cachedAt = cachedAt;
+        }
+
+        boolean isFresh() {
+            return System.currentTimeMillis() - cachedAt <= CACHE_EXPIRY_TIME;
+        }
+    }
 
     private ProfileCacheManager(Context context) {
-        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        gson = new Gson();
+        cacheDir = new File(context.getFilesDir(), CACHE_DIR);
+        db = FirebaseFirestore.getInstance();
+        if (!cacheDir.exists()) {
+            // First start on the binary format
+            Context appContext = context.getApplicationContext();
+            diskExecutor.execute(() -> appContext.deleteSharedPreferences(LEGACY_PREFS_NAME));
+        }
     }
 
     public static synchronized ProfileCacheManager getInstance(Context context) {
@@ -28,49 +102,260 @@ public class ProfileCacheManager {
         return instance;
     }
 
-    public void cacheUserProfile(UserProfile userProfile) {
-        if (userProfile == null) return;
+    /**
+     * Deliver the cached profile (fresh or stale) and revalidate it from Firestore when it is
+     * stale or missing. A profile in memory is delivered immediately, one that has to be read
+     * from disk arrives on the main thread once read. A null uid is reported through onError.
+     * Must be called on the main thread.
+     */
+    public void getUserProfile(String uid, ProfileCallback callback) {
+        if (uid == null) {
+            callback.onError(new IllegalArgumentException("uid is null"));
+            return;
+        }
+        if (isKnownMissing(uid)) {
+            synchronized (this) {
+                tombstoneHitCount++;
+            }
+            callback.onProfileLoaded(null, true);
+            return;
+        }
+        Entry entry = fromMemory(uid);
+        if (entry != null) {
+            deliver(uid, entry, callback);
+            return;
+        }
+        diskExecutor.execute(() -> {
+            Entry fromDisk = readFromDisk(uid);
+            BackgroundDecoder.postToMain(() -> deliver(uid, remember(uid, fromDisk), callback));
+        });
+    }
 
-        String profileJson = gson.toJson(userProfile);
-        prefs.edit()
-                .putString(KEY_USER_PROFILE, profileJson)
-                .putLong(KEY_CACHE_TIMESTAMP, System.currentTimeMillis())
-                .apply();
+    /**
+     * Cached profile whether fresh or stale, or null if it is not in memory.
+     * Never reads the disk, use getUserProfile for a uid that may only be cached there.
+     */
+    public synchronized UserProfile getCachedUserProfile(String uid) {
+        Entry entry = memory.get(uid);
+        return entry != null ? entry.profile : null;
     }
 
-    public UserProfile getCachedUserProfile() {
-        long cacheTime = prefs.getLong(KEY_CACHE_TIMESTAMP, 0);
-        long currentTime = System.currentTimeMillis();
+    public synchronized void cacheUserProfile(String uid, UserProfile userProfile) {
+        if (uid == null || userProfile == null) return;
 
-        // Check if cache has expired
-        if (currentTime - cacheTime > CACHE_EXPIRY_TIME) {
-            clearCache();
-            return null;
+        missing.remove(uid);
+        store(uid, userProfile, System.currentTimeMillis());
+    }
+
+    /**
+     * Mark a profile stale so the next read revalidates it, the old value is still served meanwhile
+     */
+    public synchronized void invalidate(String uid) {
+        missing.remove(uid);
+        Entry entry = memory.get(uid);
+        if (entry != null) {
+            store(uid, entry.profile, 0);
+            return;
         }
+        // Only on disk, rewrite the file as stale on the disk thread
+        diskExecutor.execute(() -> {
+            Entry onDisk = readFromDisk(uid);
+            if (onDisk == null) return;
+            try {
+                writeToDisk(uid, ProfileCodec.encode(onDisk.profile, 0));
+            } catch (IOException e) {
+                Log.w(TAG, "Error encoding profile: " + uid, e);
+            }
+        });
+    }
 
-        String profileJson = prefs.getString(KEY_USER_PROFILE, null);
-        if (profileJson == null) {
-            return null;
+    public synchronized void clearCache() {
+        memory.clear();
+        missing.clear();
+        diskExecutor.execute(() -> {
+            File[] files = cacheDir.listFiles();
+            if (files == null) return;
+            for (File file : files) {
+                file.delete();
+            }
+        });
+    }
+
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized int getStaleHitCount() {
+        return staleHitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    public synchronized int getTombstoneHitCount() {
+        return tombstoneHitCount;
+    }
+
+    /**
+     * True if the uid had no profile document when it was last read, a short while ago
+     */
+    public synchronized boolean isKnownMissing(String uid) {
+        Long missingSince = missing.get(uid);
+        if (missingSince == null) return false;
+        if (System.currentTimeMillis() - missingSince > MISSING_TTL) {
+            missing.remove(uid);
+            return false;
         }
+        return true;
+    }
+
+    private synchronized Entry fromMemory(String uid) {
+        return uid != null ? memory.get(uid) : null;
+    }
+
+    /**
+     * Keep an entry read from disk, unless the profile was stored while the read was queued
+     */
+    private synchronized Entry remember(String uid, Entry fromDisk) {
+        Entry current = fromMemory(uid);
+        if (current != null) {
+            return current;
+        }
+        if (fromDisk != null) {
+            memory.put(uid, fromDisk);
+        }
+        return fromDisk;
+    }
+
+    private void deliver(String uid, Entry entry, ProfileCallback callback) {
+        synchronized (this) {
+            if (entry == null) {
+                missCount++;
+            } else if (entry.isFresh()) {
+                hitCount++;
+            } else {
+                staleHitCount++;
+            }
+        }
+        if (entry != null) {
+            callback.onProfileLoaded(entry.profile, false);
+            if (entry.isFresh()) {
+                return;
+            }
+        }
+        revalidate(uid, callback);
+    }
 
+    private void store(String uid, UserProfile profile, long cachedAt) {
+        memory.put(uid, new Entry(profile, cachedAt));
+        final byte[] data;
         try {
-            return gson.fromJson(profileJson, UserProfile.class);
-        } catch (Exception e) {
-            // If parsing fails, clear the cache
-            clearCache();
+            // Encode on the caller's thread, callers keep mutating their UserProfile afterwards
+            data = ProfileCodec.encode(profile, cachedAt);
+        } catch (IOException e) {
+            Log.w(TAG, "Error encoding profile: " + uid, e);
+            return;
+        }
+        diskExecutor.execute(() -> {
+            writeToDisk(uid, data);
+            trimDisk();
+        });
+    }
+
+    private File fileFor(String uid) {
+        return new File(cacheDir, uid + FILE_SUFFIX);
+    }
+
+    private Entry readFromDisk(String uid) {
+        AtomicFile file = new AtomicFile(fileFor(uid));
+        try {
+            ProfileCodec.Record record = ProfileCodec.decode(file.readFully());
+            return record != null ? new Entry(record.profile, record.cachedAt) : null;
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            // Unreadable entry, drop it
+            Log.w(TAG, "Error reading cached profile: " + uid, e);
+            file.delete();
             return null;
         }
     }
 
-    public void clearCache() {
-        prefs.edit()
-                .remove(KEY_USER_PROFILE)
-                .remove(KEY_CACHE_TIMESTAMP)
-                .apply();
+    private void writeToDisk(String uid, byte[] data) {
+        if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+            Log.w(TAG, "Could not create profile cache directory");
+            return;
+        }
+        AtomicFile file = new AtomicFile(fileFor(uid));
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            out.write(data);
+            file.finishWrite(out);
+        } catch (IOException e) {
+            Log.w(TAG, "Error writing cached profile: " + uid, e);
+            if (out != null) {
+                file.failWrite(out);
+            }
+        }
+    }
+
+    /**
+     * Drop the least recently written files once there are more than MAX_DISK_ENTRIES
+     */
+    private void trimDisk() {
+        File[] files = cacheDir.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+        if (files == null || files.length <= MAX_DISK_ENTRIES) return;
+
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < files.length - MAX_DISK_ENTRIES; i++) {
+            files[i].delete();
+        }
+    }
+
+    /**
+     * Fetch the profile from Firestore, a failed refresh is only reported when nothing is cached
+     */
+    private void revalidate(String uid, ProfileCallback callback) {
+        List<ProfileCallback> waiting = inFlight.get(uid);
+        if (waiting != null) {
+            waiting.add(callback);
+            return;
+        }
+        waiting = new ArrayList<>();
+        waiting.add(callback);
+        inFlight.put(uid, waiting);
+
+        db.collection("users").document(uid)
+                .get()
+                .addOnSuccessListener(documentSnapshot -> {
+                    UserProfile profile = documentSnapshot.exists() ? documentSnapshot.toObject(UserProfile.class) : null;
+                    if (profile != null) {
+                        cacheUserProfile(uid, profile);
+                    } else {
+                        markMissing(uid);
+                    }
+                    for (ProfileCallback waitingCallback : inFlight.remove(uid)) {
+                        waitingCallback.onProfileLoaded(profile, true);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Error revalidating profile: " + uid, e);
+                    boolean hasValue = hasEntry(uid);
+                    for (ProfileCallback waitingCallback : inFlight.remove(uid)) {
+                        if (!hasValue) {
+                            waitingCallback.onError(e);
+                        }
+                    }
+                });
+    }
+
+    private synchronized void markMissing(String uid) {
+        missing.put(uid, System.currentTimeMillis());
     }
 
-    public boolean hasCachedProfile() {
-        return prefs.contains(KEY_USER_PROFILE) && 
-               (System.currentTimeMillis() - prefs.getLong(KEY_CACHE_TIMESTAMP, 0)) <= CACHE_EXPIRY_TIME;
+    private synchronized boolean hasEntry(String uid) {
+        return memory.containsKey(uid) || fileFor(uid).exists();
     }
 }
@@ -0,0 +1,224 @@
+package com.example.food.cache;
+
+import com.example.food.data.UserProfile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary layout for one cached profile.
+ *
+ * Header: magic, format version, cachedAt. Then a run of fields, each written as
+ * tag, type, value and closed by TAG_END. Readers skip tags they do not know, so new fields
+ * can be added without a version bump. Changing what an existing tag means needs a new
+ * FORMAT_VERSION, older files are then treated as a cache miss.
+ * Stats entries use a one-byte id for the keys listed in STAT_KEYS and keep their value type,
+ * so counts come back as Long rather than the Double Gson used to produce.
+ */
+final class ProfileCodec {
+    static final int MAGIC = 0x50524F46; // "PROF"
+    static final int FORMAT_VERSION = 1;
+
+    private static final int TAG_END = 0;
+    private static final int TAG_UID = 1;
+    private static final int TAG_NAME = 2;
+    private static final int TAG_EMAIL = 3;
+    private static final int TAG_BIO = 4;
+    private static final int TAG_AVATAR_URL = 5;
+    private static final int TAG_CREATED_AT = 6;
+    private static final int TAG_UPDATED_AT = 7;
+    private static final int TAG_CREDIBILITY = 8;
+    private static final int TAG_EXPERIENCE = 9;
+    private static final int TAG_STAT = 16;
+
+    private static final int TYPE_STRING = 1;
+    private static final int TYPE_LONG = 2;
+    private static final int TYPE_DOUBLE = 3;
+    private static final int TYPE_STRING_LIST = 4;
+    private static final int TYPE_BOOLEAN = 5;
+
+    // Keys written by ScoreCalculator, id is index + 1 and 0 means the key follows as a string.
+    // Only append to this list, ids are part of the format.
+    private static final String[] STAT_KEYS = {
+            "totalReviews", "daysActive", "totalVotes", "accurateVotes", "inaccurateVotes",
+            "avgAccuracyPercent", "uniqueRestaurants", "uniqueCategories", "uniqueRegions",
+            "categoriesList", "regionsList", "repeatedRestaurants", "totalCommentsMade",
+            "totalCommentsReceived", "totalCommentLikesReceived"
+    };
+    private static final Map<String, Integer> STAT_IDS = new HashMap<>();
+
+    static {
+        for (int i = 0; i < STAT_KEYS.length; i++) {
+            STAT_IDS.put(STAT_KEYS[i], i + 1);
+        }
+    }
+
+    static class Record {
+        final UserProfile profile;
+        final long cachedAt;
+
+        Record(UserProfile profile, long cachedAt) {
+            this.profile = profile;
+            this.cachedAt = cachedAt;
+        }
+    }
+
+    private ProfileCodec() {
+    }
+
+    static byte[] encode(UserProfile profile, long cachedAt) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeLong(cachedAt);
+
+        writeString(out, TAG_UID, profile.getUid());
+        writeString(out, TAG_NAME, profile.getName());
+        writeString(out, TAG_EMAIL, profile.getEmail());
+        writeString(out, TAG_BIO, profile.getBio());
+        writeString(out, TAG_AVATAR_URL, profile.getAvatarUrl());
+        writeLong(out, TAG_CREATED_AT, profile.getCreatedAt());
+        writeLong(out, TAG_UPDATED_AT, profile.getUpdatedAt());
+        writeDouble(out, TAG_CREDIBILITY, profile.getCredibilityScore());
+        writeDouble(out, TAG_EXPERIENCE, profile.getExperienceScore());
+
+        if (profile.getStats() != null) {
+            for (Map.Entry<String, Object> stat : profile.getStats().entrySet()) {
+                writeStat(out, stat.getKey(), stat.getValue());
+            }
+        }
+        out.writeByte(TAG_END);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a cached profile, null if the data is not a profile or was written by a newer format
+     */
+    static Record decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != MAGIC || in.readUnsignedByte() != FORMAT_VERSION) {
+            return null;
+        }
+        long cachedAt = in.readLong();
+
+        UserProfile profile = new UserProfile();
+        Map<String, Object> stats = null;
+        int tag;
+        while ((tag = in.readUnsignedByte()) != TAG_END) {
+            if (tag == TAG_STAT) {
+                int statId = in.readUnsignedByte();
+                String key = statId == 0 ? in.readUTF() : (statId <= STAT_KEYS.length ? STAT_KEYS[statId - 1] : null);
+                Object value = readValue(in, in.readUnsignedByte());
+                if (key != null) {
+                    if (stats == null) {
+                        stats = new HashMap<>();
+                    }
+                    stats.put(key, value);
+                }
+                continue;
+            }
+
+            Object value = readValue(in, in.readUnsignedByte());
+            switch (tag) {
+                case TAG_UID: profile.setUid((String) value); break;
+                case TAG_NAME: profile.setName((String) value); break;
+                case TAG_EMAIL: profile.setEmail((String) value); break;
+                case TAG_BIO: profile.setBio((String) value); break;
+                case TAG_AVATAR_URL: profile.setAvatarUrl((String) value); break;
+                case TAG_CREATED_AT: profile.setCreatedAt((Long) value); break;
+                case TAG_UPDATED_AT: profile.setUpdatedAt((Long) value); break;
+                case TAG_CREDIBILITY: profile.setCredibilityScore((Double) value); break;
+                case TAG_EXPERIENCE: profile.setExperienceScore((Double) value); break;
+                default: break; // Field from a newer writer
+            }
+        }
+        profile.setStats(stats);
+        return new Record(profile, cachedAt);
+    }
+
+    private static void writeString(DataOutputStream out, int tag, String value) throws IOException {
+        if (value == null) return;
+        out.writeByte(tag);
+        out.writeByte(TYPE_STRING);
+        out.writeUTF(value);
+    }
+
+    private static void writeLong(DataOutputStream out, int tag, long value) throws IOException {
+        out.writeByte(tag);
+        out.writeByte(TYPE_LONG);
+        out.writeLong(value);
+    }
+
+    private static void writeDouble(DataOutputStream out, int tag, double value) throws IOException {
+        out.writeByte(tag);
+        out.writeByte(TYPE_DOUBLE);
+        out.writeDouble(value);
+    }
+
+    private static void writeStat(DataOutputStream out, String key, Object value) throws IOException {
+        int type;
+        if (value instanceof Double || value instanceof Float) {
+            type = TYPE_DOUBLE;
+        } else if (value instanceof Number) {
+            type = TYPE_LONG;
+        } else if (value instanceof String) {
+            type = TYPE_STRING;
+        } else if (value instanceof Boolean) {
+            type = TYPE_BOOLEAN;
+        } else if (value instanceof List) {
+            type = TYPE_STRING_LIST;
+        } else {
+            return; // Nothing in stats uses other types
+        }
+
+        out.writeByte(TAG_STAT);
+        Integer statId = STAT_IDS.get(key);
+        if (statId != null) {
+            out.writeByte(statId);
+        } else {
+            out.writeByte(0);
+            out.writeUTF(key);
+        }
+        out.writeByte(type);
+        switch (type) {
+            case TYPE_DOUBLE: out.writeDouble(((Number) value).doubleValue()); break;
+            case TYPE_LONG: out.writeLong(((Number) value).longValue()); break;
+            case TYPE_STRING: out.writeUTF((String) value); break;
+            case TYPE_BOOLEAN: out.writeBoolean((Boolean) value); break;
+            default:
+                List<?> list = (List<?>) value;
+                out.writeInt(list.size());
+                for (Object item : list) {
+                    out.writeUTF(String.valueOf(item));
+                }
+                break;
+        }
+    }
+
+    private static Object readValue(DataInputStream in, int type) throws IOException {
+        switch (type) {
+            case TYPE_STRING: return in.readUTF();
+            case TYPE_LONG: return in.readLong();
+            case TYPE_DOUBLE: return in.readDouble();
+            case TYPE_BOOLEAN: return in.readBoolean();
+            case TYPE_STRING_LIST:
+                int size = in.readInt();
+                List<String> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(in.readUTF());
+                }
+                return list;
+            default:
+                throw new IOException("Unknown value type " + type);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.food.cache;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory cache of decoded Firestore query results for the process lifetime.
+ * Results are keyed by collection, equality filters, order, limit and cursor, and expire after
+ * the TTL of their QueryClass. Services call invalidateWrite after each of their own writes,
+ * which drops only the entries the written document could appear in.
+ * A document read that found nothing can be stored as a tombstone with putMissing, it lives for
+ * the shorter missing TTL and is reported by isMissing rather than get.
+ */
+public class QueryCache {
+    private static final String TAG = "QueryCache";
+    private static final int MAX_ENTRIES = 200;
+    private static final long DEFAULT_MISSING_TTL = 30 * 1000;
+    private static final Object TOMBSTONE = new Object();
+
+    /**
+     * Kinds of query with their own TTL
+     */
+    public enum QueryClass {
+        RESTAURANT_STATS(60 * 1000),
+        RESTAURANT_REVIEWS(2 * 60 * 1000),
+        REVIEW_DETAILS(60 * 1000),
+        COMMENTS(30 * 1000),
+        FEED_FIRST_PAGE(30 * 1000),
+        CROWD_DENSITY(60 * 1000);
+
+        final long defaultTtl;
+
+        QueryClass(long defaultTtl) {
+            this.defaultTtl = defaultTtl;
+        }
+    }
+
+    /**
+     * Identifies one query. Two keys are equal when they would send the same query.
+     */
+    public static class Key {
+        private final QueryClass queryClass;
+        private final String collection;
+        private final Map<String, Object> filters = new TreeMap<>();
+        private String order;
+        private int limit;
+        private String cursor;
+
+        private Key(QueryClass queryClass, String collection) {
+            this.queryClass = queryClass;
+            this.collection = collection;
+        }
+
+        public static Key of(QueryClass queryClass, String collection) {
+            return new Key(queryClass, collection);
+        }
+
+        /**
+         * A single document read, e.g. reviews/{id}
+         */
+        public static Key document(QueryClass queryClass, String collection, String documentId) {
+            return new Key(queryClass, collection).whereEqualTo("__name__", documentId);
+        }
+
+        public Key whereEqualTo(String field, Object value) {
+            filters.put(field, value);
+            return this;
+        }
+
+        public Key whereIn(String field, List<?> values) {
+            filters.put(field + " in", new ArrayList<>(values));
+            return this;
+        }
+
+        public Key orderBy(String field, boolean descending) {
+            order = field + (descending ? " desc" : " asc");
+            return this;
+        }
+
+        public Key limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        /**
+         * Id of the document the page starts after, null for the first page
+         */
+        public Key startAfter(String documentId) {
+            cursor = documentId;
+            return this;
+        }
+
+        /**
+         * True if a document with these field values could be part of this query's result
+         */
+        boolean couldContain(Map<String, Object> fields) {
+            for (Map.Entry<String, Object> filter : filters.entrySet()) {
+                String field = filter.getKey();
+                if (field.equals("__name__") || field.endsWith(" in")) {
+                    // Id based queries are matched through the document ids they returned
+                    return false;
+                }
+                if (fields.containsKey(field) && !Objects.equals(fields.get(field), filter.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && toString().equals(o.toString());
+        }
+
+        @Override
+        public int hashCode() {
+            return toString().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return queryClass + ":" + collection + filters + (order != null ? " order " + order : "")
+                    + (limit > 0 ? " limit " + limit : "") + (cursor != null ? " after " + cursor : "");
+        }
+    }
+
+    private static class Entry {
+        final Key key;
+        final Object value;
+        final Set<String> documentIds;
+        final long expiresAt;
+
+        Entry(Key key, Object value, Set<String> documentIds, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.documentIds = documentIds;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static QueryCache instance;
+    private final Map<QueryClass, Long> ttls = new EnumMap<>(QueryClass.class);
+    private long missingTtl = DEFAULT_MISSING_TTL;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private int hitCount;
+    private int missCount;
+    private int expiredCount;
+    private int invalidatedCount;
+    private int tombstoneHitCount;
+
+    private QueryCache() {
+        for (QueryClass queryClass : QueryClass.values()) {
+            ttls.put(queryClass, queryClass.defaultTtl);
+        }
+    }
+
+    public static synchronized QueryCache getInstance() {
+        if (instance == null) {
+            instance = new QueryCache();
+        }
+        return instance;
+    }
+
+    public synchronized void setTtl(QueryClass queryClass, long ttlMillis) {
+        ttls.put(queryClass, ttlMillis);
+    }
+
+    public synchronized void setMissingTtl(long ttlMillis) {
+        missingTtl = ttlMillis;
+    }
+
+    /**
+     * Cached result for the key, or null on a miss or once its TTL has passed
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.value == TOMBSTONE) {
+            missCount++;
+            return null;
+        }
+        if (System.currentTimeMillis() > entry.expiresAt) {
+            entries.remove(key);
+            expiredCount++;
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return (T) entry.value;
+    }
+
+    /**
+     * Store a result together with the ids of the documents it was built from
+     */
+    public synchronized void put(Key key, Object value, Collection<String> documentIds) {
+        long ttl = ttls.get(key.queryClass);
+        entries.put(key, new Entry(key, value, new HashSet<>(documentIds), System.currentTimeMillis() + ttl));
+    }
+
+    /**
+     * Remember that the document behind a single document key does not exist
+     */
+    public synchronized void putMissing(Key key, String documentId) {
+        entries.put(key, new Entry(key, TOMBSTONE, Collections.singleton(documentId),
+                System.currentTimeMillis() + missingTtl));
+    }
+
+    /**
+     * True while a tombstone for the key is alive, the caller can report not found without a read
+     */
+    public synchronized boolean isMissing(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.value != TOMBSTONE) {
+            return false;
+        }
+        if (System.currentTimeMillis() > entry.expiresAt) {
+            entries.remove(key);
+            expiredCount++;
+            return false;
+        }
+        tombstoneHitCount++;
+        return true;
+    }
+
+    /**
+     * Drop every entry the written document could affect: results that contained it and queries
+     * on the same collection whose filters its fields match. fields may be null when only the
+     * id is known, a deleted document should pass the fields it had.
+     */
+    public synchronized void invalidateWrite(String collection, String documentId, Map<String, Object> fields) {
+        int removed = 0;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (!entry.key.collection.equals(collection)) continue;
+            boolean containedIt = documentId != null && entry.documentIds.contains(documentId);
+            boolean couldNowContainIt = fields != null && entry.key.couldContain(fields);
+            if (containedIt || couldNowContainIt) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        invalidatedCount += removed;
+        if (removed > 0) {
+            Log.d(TAG, "Invalidated " + removed + " " + collection + " queries, " + getMetrics());
+        }
+    }
+
+    /**
+     * Drop everything cached for a collection, for bulk rewrites
+     */
+    public synchronized void invalidateCollection(String collection) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().key.collection.equals(collection)) {
+                iterator.remove();
+                invalidatedCount++;
+            }
+        }
+    }
+
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    public synchronized int getExpiredCount() {
+        return expiredCount;
+    }
+
+    public synchronized int getInvalidatedCount() {
+        return invalidatedCount;
+    }
+
+    public synchronized int getTombstoneHitCount() {
+        return tombstoneHitCount;
+    }
+
+    public synchronized String getMetrics() {
+        return "hits=" + hitCount + " misses=" + missCount + " tombstones=" + tombstoneHitCount
+                + " expired=" + expiredCount + " invalidated=" + invalidatedCount + " size=" + entries.size();
+    }
+}
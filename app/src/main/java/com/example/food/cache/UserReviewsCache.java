@@ -0,0 +1,82 @@
+package com.example.food.cache;
+
+import com.example.food.data.Review;
+import com.example.food.service.ReviewService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory copy of each user's reviews for the lifetime of the process.
+ * Profile screens show the cached list straight away and then only ask Firestore
+ * for reviews updated after the newest one held here.
+ */
+public class UserReviewsCache {
+    // Deletions made elsewhere are only picked up by a full reload
+    private static final long FULL_RELOAD_INTERVAL = 30 * 60 * 1000; // 30 minutes
+
+    private static UserReviewsCache instance;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private static class Entry {
+        final List<Review> reviews;
+        final long loadedAt;
+
+        Entry(List<Review> reviews, long loadedAt) {
+            this.reviews = reviews;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private UserReviewsCache() {
+    }
+
+    public static synchronized UserReviewsCache getInstance() {
+        if (instance == null) {
+            instance = new UserReviewsCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Copy of the cached reviews, or null when a full load is needed
+     */
+    public synchronized List<Review> get(String userId) {
+        Entry entry = entries.get(userId);
+        if (entry == null || System.currentTimeMillis() - entry.loadedAt > FULL_RELOAD_INTERVAL) {
+            return null;
+        }
+        return new ArrayList<>(entry.reviews);
+    }
+
+    /**
+     * Store the result of a full load
+     */
+    public synchronized void put(String userId, List<Review> reviews) {
+        entries.put(userId, new Entry(new ArrayList<>(reviews), System.currentTimeMillis()));
+    }
+
+    /**
+     * Apply a delta on top of the cached list, does nothing if the user is not cached
+     */
+    public synchronized void merge(String userId, List<Review> changes) {
+        Entry entry = entries.get(userId);
+        if (entry != null) {
+            ReviewService.mergeReviews(entry.reviews, changes);
+        }
+    }
+
+    public synchronized void removeReview(String userId, String reviewId) {
+        Entry entry = entries.get(userId);
+        if (entry == null || reviewId == null) return;
+
+        for (int i = 0; i < entry.reviews.size(); i++) {
+            if (reviewId.equals(entry.reviews.get(i).getId())) {
+                entry.reviews.remove(i);
+                return;
+            }
+        }
+    }
+}
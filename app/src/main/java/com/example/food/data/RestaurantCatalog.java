@@ -0,0 +1,193 @@
+package com.example.food.data;
+
+import com.example.food.model.Restaurant;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Restaurant catalog in a compact binary file, read whole at startup.
+ *
+ * Layout, all big-endian:
+ * header   magic, version, row count, string count, builtAt
+ * strings  int offsets[stringCount + 1] into the UTF-8 bytes that follow, each string stored once
+ * columns  int id[], int name[], int address[] (string indexes), double lat[], double lng[],
+ *          int category[], int region[] (string indexes, categories and regions repeat a lot)
+ *
+ * Every string is decoded once and shared by the rows that use it. The file is always rewritten
+ * whole through a temp file and rename, so a reader never sees half a catalog.
+ */
+public final class RestaurantCatalog {
+    private static final int MAGIC = 0x52434154; // "RCAT"
+    private static final int VERSION = 1;
+
+    private final List<Restaurant> restaurants;
+    private final long builtAt;
+
+    private RestaurantCatalog(List<Restaurant> restaurants, long builtAt) {
+        this.restaurants = restaurants;
+        this.builtAt = builtAt;
+    }
+
+    /**
+     * Read an existing catalog file, throws if it is missing, truncated or from another version
+     */
+    public static RestaurantCatalog read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a restaurant catalog or unsupported version");
+            }
+            int count = in.readInt();
+            int stringCount = in.readInt();
+            long builtAt = in.readLong();
+            if (count < 0 || stringCount < 0 || 24 + (long) count * 36 + stringCount * 4L > file.length()) {
+                throw new IOException("Truncated restaurant catalog");
+            }
+
+            int[] offsets = readInts(in, stringCount + 1);
+            byte[] stringData = new byte[offsets[stringCount]];
+            in.readFully(stringData);
+            String[] strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                strings[i] = new String(stringData, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+            }
+
+            int[] ids = readInts(in, count);
+            int[] names = readInts(in, count);
+            int[] addresses = readInts(in, count);
+            double[] latitudes = readDoubles(in, count);
+            double[] longitudes = readDoubles(in, count);
+            int[] categories = readInts(in, count);
+            int[] regions = readInts(in, count);
+
+            List<Restaurant> restaurants = new ArrayList<>(count);
+            for (int row = 0; row < count; row++) {
+                restaurants.add(new Restaurant(string(strings, ids[row]), string(strings, names[row]),
+                        string(strings, addresses[row]), latitudes[row], longitudes[row],
+                        string(strings, categories[row]), string(strings, regions[row])));
+            }
+            return new RestaurantCatalog(restaurants, builtAt);
+        } catch (EOFException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated restaurant catalog", e);
+        }
+    }
+
+    /**
+     * Write the restaurants as a new catalog file, replacing any existing one
+     */
+    public static void write(File file, List<Restaurant> restaurants, long builtAt) throws IOException {
+        List<String> stringList = new ArrayList<>();
+        Map<String, Integer> stringIndex = new HashMap<>();
+        int count = restaurants.size();
+        int[] ids = new int[count];
+        int[] names = new int[count];
+        int[] addresses = new int[count];
+        int[] categories = new int[count];
+        int[] regions = new int[count];
+        for (int i = 0; i < count; i++) {
+            Restaurant restaurant = restaurants.get(i);
+            ids[i] = intern(restaurant.getId(), stringList, stringIndex);
+            names[i] = intern(restaurant.getName(), stringList, stringIndex);
+            addresses[i] = intern(restaurant.getAddress(), stringList, stringIndex);
+            categories[i] = intern(restaurant.getCategory(), stringList, stringIndex);
+            regions[i] = intern(restaurant.getRegion(), stringList, stringIndex);
+        }
+
+        ByteArrayOutputStream stringData = new ByteArrayOutputStream();
+        int[] offsets = new int[stringList.size() + 1];
+        for (int i = 0; i < stringList.size(); i++) {
+            offsets[i] = stringData.size();
+            byte[] bytes = stringList.get(i).getBytes(StandardCharsets.UTF_8);
+            stringData.write(bytes, 0, bytes.length);
+        }
+        offsets[stringList.size()] = stringData.size();
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(count);
+            out.writeInt(stringList.size());
+            out.writeLong(builtAt);
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            stringData.writeTo(out);
+            writeInts(out, ids);
+            writeInts(out, names);
+            writeInts(out, addresses);
+            for (Restaurant restaurant : restaurants) {
+                out.writeDouble(restaurant.getLatitude());
+            }
+            for (Restaurant restaurant : restaurants) {
+                out.writeDouble(restaurant.getLongitude());
+            }
+            writeInts(out, categories);
+            writeInts(out, regions);
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not replace restaurant catalog");
+        }
+    }
+
+    public List<Restaurant> getRestaurants() {
+        return restaurants;
+    }
+
+    public long getBuiltAt() {
+        return builtAt;
+    }
+
+    private static String string(String[] strings, int index) {
+        return index < 0 ? null : strings[index];
+    }
+
+    private static int[] readInts(DataInputStream in, int count) throws IOException {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static double[] readDoubles(DataInputStream in, int count) throws IOException {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+
+    private static int intern(String value, List<String> stringList, Map<String, Integer> stringIndex) {
+        if (value == null) {
+            return -1;
+        }
+        Integer index = stringIndex.get(value);
+        if (index == null) {
+            index = stringList.size();
+            stringList.add(value);
+            stringIndex.put(value, index);
+        }
+        return index;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.food.data;
+
+import com.example.food.model.Restaurant;
+
+import java.util.Map;
+
+/**
+ * Builds Restaurant objects straight from a document's data map, see ReviewCodec.
+ */
+public final class RestaurantCodec {
+
+    private RestaurantCodec() {
+    }
+
+    public static Restaurant decode(String id, Map<String, Object> data) {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setId(id);
+        restaurant.setName(ReviewCodec.getString(data, "name"));
+        restaurant.setAddress(ReviewCodec.getString(data, "address"));
+        restaurant.setLatitude(ReviewCodec.getDouble(data, "latitude"));
+        restaurant.setLongitude(ReviewCodec.getDouble(data, "longitude"));
+        restaurant.setCategory(ReviewCodec.getString(data, "category"));
+        restaurant.setRegion(ReviewCodec.getString(data, "region"));
+        return restaurant;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.food.data;
+
+import com.google.firebase.firestore.Exclude;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregate for one restaurant, stored in restaurantStats under the restaurant id.
+ * Kept up to date on review save, delete and vote so the map bottom sheet can show
+ * its header from a single small read.
+ */
+public class RestaurantStats {
+    private int reviewCount;
+    private double ratingSum;
+    private double accuracySum;
+    private List<String> latestReviewIds; // Newest first, at most RestaurantStatsService.LATEST_LIMIT
+
+    public RestaurantStats() {
+        // Default constructor required for Firestore
+        this.latestReviewIds = new ArrayList<>();
+    }
+
+    public int getReviewCount() { return reviewCount; }
+    public void setReviewCount(int reviewCount) { this.reviewCount = reviewCount; }
+
+    public double getRatingSum() { return ratingSum; }
+    public void setRatingSum(double ratingSum) { this.ratingSum = ratingSum; }
+
+    public double getAccuracySum() { return accuracySum; }
+    public void setAccuracySum(double accuracySum) { this.accuracySum = accuracySum; }
+
+    public List<String> getLatestReviewIds() { return latestReviewIds; }
+    public void setLatestReviewIds(List<String> latestReviewIds) { this.latestReviewIds = latestReviewIds; }
+
+    @Exclude
+    public double getAverageRating() {
+        return reviewCount > 0 ? ratingSum / reviewCount : 0.0;
+    }
+
+    @Exclude
+    public double getAverageAccuracy() {
+        return reviewCount > 0 ? accuracySum / reviewCount : 0.0;
+    }
+}
@@ -25,7 +25,17 @@ public class Review {
     private Date updatedAt;
     private int helpfulCount;
     private java.util.Map<String, java.util.Map<String, Object>> votes;
-    private List<Comment> comments;
+    private int accurateCount; // Maintained by ReviewService.vote alongside votes.<uid>
+    private int totalVotes;
+    private List<Comment> comments; // Legacy array, new comments live in the comments subcollection
+    private int commentCount;
+    private Date lastCommentAt;
+    // Author snapshot written on save and refreshed by AuthorSnapshotFanout, lists need no users lookup
+    private String authorName;
+    private String authorAvatarUrl;
+    private long authorAvatarVersion;
+    @Exclude
+    private boolean cardOnly; // Built from a reviewCards projection, description/votes/comments not loaded
 
     public Review() {
         // Default constructor required for Firestore
@@ -62,10 +72,10 @@ public class Review {
     public String getUserId() { return userId; }
     public void setUserId(String userId) { this.userId = userId; }
 
-    public String getUserName() { return userName; }
+    public String getUserName() { return userName != null ? userName : authorName; }
     public void setUserName(String userName) { this.userName = userName; }
 
-    public String getUserAvatarUrl() { return userAvatarUrl; }
+    public String getUserAvatarUrl() { return userAvatarUrl != null ? userAvatarUrl : authorAvatarUrl; }
     public void setUserAvatarUrl(String userAvatarUrl) { this.userAvatarUrl = userAvatarUrl; }
 
     public String getRestaurantId() { return restaurantId; }
@@ -107,9 +117,38 @@ public class Review {
     public java.util.Map<String, java.util.Map<String, Object>> getVotes() { return votes; }
     public void setVotes(java.util.Map<String, java.util.Map<String, Object>> votes) { this.votes = votes; }
 
+    public int getAccurateCount() { return accurateCount; }
+    public void setAccurateCount(int accurateCount) { this.accurateCount = accurateCount; }
+
+    public int getTotalVotes() { return totalVotes; }
+    public void setTotalVotes(int totalVotes) { this.totalVotes = totalVotes; }
+
     public List<Comment> getComments() { return comments; }
     public void setComments(List<Comment> comments) { this.comments = comments; }
 
+    public int getCommentCount() { return commentCount; }
+    public void setCommentCount(int commentCount) { this.commentCount = commentCount; }
+
+    public Date getLastCommentAt() { return lastCommentAt; }
+    public void setLastCommentAt(Date lastCommentAt) { this.lastCommentAt = lastCommentAt; }
+
+    public String getAuthorName() { return authorName; }
+    public void setAuthorName(String authorName) { this.authorName = authorName; }
+
+    public String getAuthorAvatarUrl() { return authorAvatarUrl; }
+    public void setAuthorAvatarUrl(String authorAvatarUrl) { this.authorAvatarUrl = authorAvatarUrl; }
+
+    public long getAuthorAvatarVersion() { return authorAvatarVersion; }
+    public void setAuthorAvatarVersion(long authorAvatarVersion) { this.authorAvatarVersion = authorAvatarVersion; }
+
+    @Exclude
+    public boolean hasAuthorSnapshot() { return authorName != null; }
+
+    @Exclude
+    public boolean isCardOnly() { return cardOnly; }
+    @Exclude
+    public void setCardOnly(boolean cardOnly) { this.cardOnly = cardOnly; }
+
     //if the first image is portrait based on stored image type
     //return true if the first image is portrait, false otherwise
     public boolean isFirstImagePortrait() {
@@ -129,33 +168,57 @@ public class Review {
     }
 
     /**
-     * Calculate and update accuracy percentage from votes map
-     * Call this method whenever votes change to keep accuracyPercent in sync
+     * Update accuracyPercent from the vote counters
+     * Reviews written before the counters existed get them seeded from the votes map once
      */
     public void refreshAccuracyFromVotes() {
-        this.accuracyPercent = calculateAccuracyFromVotes(this.votes);
+        if (totalVotes == 0 && votes != null && !votes.isEmpty()) {
+            int accurate = 0;
+            for (java.util.Map<String, Object> voteData : votes.values()) {
+                if (Boolean.TRUE.equals(voteData.get("accurate"))) {
+                    accurate++;
+                }
+            }
+            this.accurateCount = accurate;
+            this.totalVotes = votes.size();
+        }
+        this.accuracyPercent = calculateAccuracy(accurateCount, totalVotes);
     }
 
     /**
-     * Static utility to calculate accuracy percentage from votes
-     * @param votes the votes map
-     * @return accuracy percentage (0-100)
+     * Apply one user's vote locally, null removes it. Keeps votes, counters and accuracy in step
      */
-    public static double calculateAccuracyFromVotes(java.util.Map<String, java.util.Map<String, Object>> votes) {
-        if (votes == null || votes.isEmpty()) {
-            return 0.0;
+    public void applyVote(String userId, Boolean accurate) {
+        if (votes == null) {
+            votes = new java.util.HashMap<>();
         }
+        refreshAccuracyFromVotes();
 
-        int accurateVotes = 0;
-        int totalVotes = votes.size();
-
-        for (java.util.Map<String, Object> voteData : votes.values()) {
-            Boolean vote = (Boolean) voteData.get("accurate");
-            if (vote != null && vote) {
-                accurateVotes++;
+        java.util.Map<String, Object> previous = votes.remove(userId);
+        if (previous != null) {
+            totalVotes--;
+            if (Boolean.TRUE.equals(previous.get("accurate"))) {
+                accurateCount--;
             }
         }
+        if (accurate != null) {
+            java.util.Map<String, Object> voteData = new java.util.HashMap<>();
+            voteData.put("accurate", accurate);
+            voteData.put("timestamp", new Date());
+            votes.put(userId, voteData);
+            totalVotes++;
+            if (accurate) {
+                accurateCount++;
+            }
+        }
+        this.accuracyPercent = calculateAccuracy(accurateCount, totalVotes);
+    }
 
+    /**
+     * Static utility to calculate accuracy percentage from vote counters
+     * @return accuracy percentage (0-100)
+     */
+    public static double calculateAccuracy(int accurateVotes, int totalVotes) {
         return totalVotes > 0 ? (accurateVotes * 100.0) / totalVotes : 0.0;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,55 @@
+package com.example.food.data;
+
+import com.example.food.search.SearchTokens;
+import com.google.firebase.firestore.FieldValue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Feed projection of a review, stored in the reviewCards collection under the review's id.
+ * Holds only what ReviewWidgetAdapter shows so lists never download votes or comments.
+ * Cards are read back with ReviewCodec.decodeCard.
+ */
+public final class ReviewCard {
+
+    private ReviewCard() {
+    }
+
+    /**
+     * Card fields taken from raw review document data, used when saving and backfilling
+     */
+    public static Map<String, Object> fromReviewData(Map<String, Object> reviewData) {
+        Map<String, Object> cardData = new HashMap<>();
+        cardData.put("userId", reviewData.get("userId"));
+        cardData.put("restaurantId", reviewData.get("restaurantId"));
+        cardData.put("caption", reviewData.get("caption"));
+        cardData.put("rating", reviewData.get("rating"));
+        cardData.put("accuracyPercent", reviewData.get("accuracyPercent"));
+        Object imageUrls = reviewData.get("imageUrls");
+        if (imageUrls instanceof List && !((List<?>) imageUrls).isEmpty()) {
+            cardData.put("firstImageUrl", ((List<?>) imageUrls).get(0));
+        } else {
+            cardData.put("firstImageUrl", null);
+        }
+        cardData.put("firstImageType", reviewData.get("firstImageType"));
+        cardData.put("createdAt", reviewData.get("createdAt"));
+        putAuthorSnapshot(cardData, reviewData.get("authorName"), reviewData.get("authorAvatarUrl"),
+                reviewData.get("authorAvatarVersion"));
+        if (reviewData.get(SearchTokens.FIELD) != null) {
+            cardData.put(SearchTokens.FIELD, reviewData.get(SearchTokens.FIELD));
+        }
+        Object updatedAt = reviewData.get("updatedAt");
+        cardData.put("updatedAt", updatedAt != null ? updatedAt : FieldValue.serverTimestamp());
+        return cardData;
+    }
+
+    // Legacy reviews have no snapshot, leave the fields out so a merge never clears one
+    private static void putAuthorSnapshot(Map<String, Object> cardData, Object name, Object avatarUrl, Object avatarVersion) {
+        if (name == null) return;
+        cardData.put("authorName", name);
+        cardData.put("authorAvatarUrl", avatarUrl);
+        cardData.put("authorAvatarVersion", avatarVersion != null ? avatarVersion : 0L);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.food.data;
+
+import com.google.firebase.Timestamp;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds Review objects straight from a document's data map.
+ * Replaces DocumentSnapshot.toObject(Review.class), which maps every field through reflection,
+ * on the list paths that decode hundreds of documents at a time.
+ * Field names must stay in step with Review and ReviewCard.fromReviewData.
+ */
+public final class ReviewCodec {
+
+    private ReviewCodec() {
+    }
+
+    /**
+     * Decode a full reviews document
+     */
+    public static Review decode(String id, Map<String, Object> data) {
+        Review review = new Review();
+        review.setId(id);
+        review.setUserId(getString(data, "userId"));
+        review.setRestaurantId(getString(data, "restaurantId"));
+        review.setCaption(getString(data, "caption"));
+        review.setDescription(getString(data, "description"));
+        review.setRating((float) getDouble(data, "rating"));
+        review.setAccuracy((int) getLong(data, "accuracy"));
+        review.setAccuracyPercent(getDouble(data, "accuracyPercent"));
+        review.setImageUrls(getStringList(data, "imageUrls"));
+        review.setFirstImageType(getString(data, "firstImageType"));
+        review.setCreatedAt(getDate(data, "createdAt"));
+        review.setUpdatedAt(getDate(data, "updatedAt"));
+        review.setHelpfulCount((int) getLong(data, "helpfulCount"));
+        review.setVotes(getVotes(data));
+        review.setAccurateCount((int) getLong(data, "accurateCount"));
+        review.setTotalVotes((int) getLong(data, "totalVotes"));
+        review.setComments(getComments(data));
+        review.setCommentCount((int) getLong(data, "commentCount"));
+        review.setLastCommentAt(getDate(data, "lastCommentAt"));
+        readAuthorSnapshot(review, data);
+        review.refreshAccuracyFromVotes();
+        return review;
+    }
+
+    /**
+     * Decode a reviewCards document (see ReviewCard) into a card-only Review, the full document
+     * is loaded when it is opened
+     */
+    public static Review decodeCard(String id, Map<String, Object> data) {
+        Review review = new Review();
+        review.setId(id);
+        review.setUserId(getString(data, "userId"));
+        review.setRestaurantId(getString(data, "restaurantId"));
+        review.setCaption(getString(data, "caption"));
+        review.setRating((float) getDouble(data, "rating"));
+        review.setAccuracyPercent(getDouble(data, "accuracyPercent"));
+        List<String> imageUrls = new ArrayList<>();
+        String firstImageUrl = getString(data, "firstImageUrl");
+        if (firstImageUrl != null) {
+            imageUrls.add(firstImageUrl);
+        }
+        review.setImageUrls(imageUrls);
+        review.setFirstImageType(getString(data, "firstImageType"));
+        review.setCreatedAt(getDate(data, "createdAt"));
+        review.setUpdatedAt(getDate(data, "updatedAt"));
+        readAuthorSnapshot(review, data);
+        review.setCardOnly(true);
+        return review;
+    }
+
+    private static void readAuthorSnapshot(Review review, Map<String, Object> data) {
+        review.setAuthorName(getString(data, "authorName"));
+        review.setAuthorAvatarUrl(getString(data, "authorAvatarUrl"));
+        review.setAuthorAvatarVersion(getLong(data, "authorAvatarVersion"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Map<String, Object>> getVotes(Map<String, Object> data) {
+        Map<String, Map<String, Object>> votes = new HashMap<>();
+        Object value = data.get("votes");
+        if (value instanceof Map) {
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                if (entry.getValue() instanceof Map) {
+                    votes.put(entry.getKey(), (Map<String, Object>) entry.getValue());
+                }
+            }
+        }
+        return votes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Comment> getComments(Map<String, Object> data) {
+        List<Comment> comments = new ArrayList<>();
+        Object value = data.get("comments");
+        if (value instanceof List) {
+            for (Object item : (List<Object>) value) {
+                if (item instanceof Map) {
+                    Map<String, Object> commentData = (Map<String, Object>) item;
+                    Comment comment = new Comment(getString(commentData, "id"), getString(commentData, "userId"),
+                            getString(commentData, "userName"), getString(commentData, "text"),
+                            getDate(commentData, "createdAt"));
+                    comments.add(comment);
+                }
+            }
+        }
+        return comments;
+    }
+
+    static String getString(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        return value instanceof String ? (String) value : null;
+    }
+
+    static double getDouble(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    static long getLong(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    static Date getDate(Map<String, Object> data, String field) {
+        Object value = data.get(field);
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toDate();
+        }
+        return value instanceof Date ? (Date) value : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<String> getStringList(Map<String, Object> data, String field) {
+        List<String> strings = new ArrayList<>();
+        Object value = data.get(field);
+        if (value instanceof List) {
+            for (Object item : (List<Object>) value) {
+                if (item instanceof String) {
+                    strings.add((String) item);
+                }
+            }
+        }
+        return strings;
+    }
+}
@@ -34,18 +34,24 @@ import androidx.viewpager2.widget.ViewPager2;
 import com.example.food.R;
 import com.example.food.adapters.CommentsAdapter;
 import com.example.food.adapters.ImagePagerAdapter;
+import com.example.food.cache.UserReviewsCache;
+import com.example.food.data.Comment;
 import com.example.food.data.Review;
 import com.example.food.model.Restaurant;
+import com.example.food.service.CommentService;
+import com.example.food.service.RestaurantRepository;
+import com.example.food.service.ReviewService;
+import com.example.food.service.UserDirectory;
 import com.example.food.services.UserStatsService;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.google.android.material.button.MaterialButton;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -57,6 +63,8 @@ public class ReviewDetailsDialog extends Dialog {
     private Review review;
     private Restaurant restaurant;
     private FirebaseFirestore db;
+    private CommentService commentService;
+    private CommentPager commentPager; // Pager of the open comments sheet, null when closed
 
     // UI Components
     private ImageView btnClose;
@@ -93,26 +101,37 @@ public class ReviewDetailsDialog extends Dialog {
     private String currentUserId;
     private Boolean currentUserVote;
     private OnReviewUpdatedListener onReviewUpdatedListener;
+    private OnReviewDeletedListener onReviewDeletedListener;
+    private boolean reviewDeleted;
 
     public interface OnReviewUpdatedListener {
         void onReviewUpdated(Review review);
     }
 
+    public interface OnReviewDeletedListener {
+        void onReviewDeleted(Review review);
+    }
+
     public ReviewDetailsDialog(@NonNull Context context, Review review, Restaurant restaurant) {
         super(context, R.style.FullScreenDialog);
         this.review = review;
         this.restaurant = restaurant;
         this.db = FirebaseFirestore.getInstance();
+        this.commentService = new CommentService();
     }
 
     public void setOnReviewUpdatedListener(OnReviewUpdatedListener listener) {
         this.onReviewUpdatedListener = listener;
     }
 
+    public void setOnReviewDeletedListener(OnReviewDeletedListener listener) {
+        this.onReviewDeletedListener = listener;
+    }
+
     @Override
     public void dismiss() {
         // Notify listener before dismissing
-        if (onReviewUpdatedListener != null) {
+        if (onReviewUpdatedListener != null && !reviewDeleted) {
             onReviewUpdatedListener.onReviewUpdated(review);
         }
         super.dismiss();
@@ -154,6 +173,34 @@ public class ReviewDetailsDialog extends Dialog {
         initViews();
         populateData();
         setupClickListeners();
+
+        // Lists only hold the card projection, fetch the rest of the review now
+        if (review.isCardOnly()) {
+            loadFullReview();
+        }
+    }
+
+    private void loadFullReview() {
+        new ReviewService().loadFullReview(review.getId(), new ReviewService.ReviewLoadCallback() {
+            @Override
+            public void onSuccess(Review fullReview) {
+                if (!isShowing()) return;
+                // Keep the display fields that were resolved for the card
+                fullReview.setUserName(review.getUserName());
+                fullReview.setUserAvatarUrl(review.getUserAvatarUrl());
+                fullReview.setRestaurantName(review.getRestaurantName());
+                review = fullReview;
+                populateData();
+                if (commentPager != null) {
+                    commentPager.onFullReviewLoaded();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error loading full review", e);
+            }
+        });
     }
 
     private void initViews() {
@@ -292,23 +339,22 @@ public class ReviewDetailsDialog extends Dialog {
     }
 
     private void updateAccuracyDisplay() {
-        // Use the Review class's static utility to calculate accuracy
-        review.refreshAccuracyFromVotes();
+        // O(1) from the vote counters, a card keeps the accuracy it was stored with
+        if (!review.isCardOnly()) {
+            review.refreshAccuracyFromVotes();
+        }
         double accuracy = review.getAccuracyPercent();
         tvDialogAccuracyPercent.setText(String.format(Locale.getDefault(), "%.0f%%", accuracy));
     }
 
     private void updateVoteDisplay() {
         if (tvVoteCount != null) {
-            if (review.getVotes() != null) {
-                int voteCount = review.getVotes().size();
-                String text = voteCount == 1 ?
-                    "1 person found this accurate" :
-                    voteCount + " people found this accurate";
-                tvVoteCount.setText(text);
-            } else {
-                tvVoteCount.setText("0 people found this accurate");
-            }
+            // Counter is maintained with each vote, a card-only review reads 0 until it loads
+            int voteCount = review.getTotalVotes();
+            String text = voteCount == 1 ?
+                "1 person found this accurate" :
+                voteCount + " people found this accurate";
+            tvVoteCount.setText(text);
         }
     }
 
@@ -318,51 +364,38 @@ public class ReviewDetailsDialog extends Dialog {
             return;
         }
 
-        db.collection("users")
-            .document(review.getUserId())
-            .get()
-            .addOnSuccessListener(documentSnapshot -> {
-                if (documentSnapshot.exists()) {
-                 
-                    String name = documentSnapshot.getString("name");
-                    if (name != null && !name.trim().isEmpty()) {
-                        tvAuthorName.setText(name);
-                    } else {
-                   
-                        String username = documentSnapshot.getString("username");
-                        if (username != null && !username.trim().isEmpty()) {
-                            tvAuthorName.setText(username);
-                        } else {
-                            tvAuthorName.setText(getContext().getString(R.string.username_placeholder));
-                        }
-                    }
+        // The author snapshot on the review is enough, no users lookup needed
+        if (review.hasAuthorSnapshot()) {
+            showAuthor(review.getUserName(), review.getUserAvatarUrl());
+            return;
+        }
 
-                    // Load avatar
-                    String avatarUrl = documentSnapshot.getString("avatarUrl");
-                    if (ivAuthorAvatar != null) {
-                        if (avatarUrl != null && !avatarUrl.trim().isEmpty()) {
-                            com.bumptech.glide.Glide.with(getContext())
-                                .load(avatarUrl)
-                                .placeholder(R.drawable.ic_person)
-                                .error(R.drawable.ic_person)
-                                .into(ivAuthorAvatar);
-                        } else {
-                            ivAuthorAvatar.setImageResource(R.drawable.ic_person);
-                        }
-                    }
-                } else {
-                    tvAuthorName.setText(getContext().getString(R.string.username_placeholder));
-                    if (ivAuthorAvatar != null) {
-                        ivAuthorAvatar.setImageResource(R.drawable.ic_person);
-                    }
-                }
-            })
-            .addOnFailureListener(e -> {
-                tvAuthorName.setText(getContext().getString(R.string.username_placeholder));
-                if (ivAuthorAvatar != null) {
-                    ivAuthorAvatar.setImageResource(R.drawable.ic_person);
-                }
-            });
+        UserDirectory.getInstance().getUser(review.getUserId(), (uid, user) -> {
+            if (getContext() == null) return;
+            showAuthor(user != null && user.hasName() ? user.getName() : null,
+                user != null && user.hasAvatar() ? user.getAvatarUrl() : null);
+        });
+    }
+
+    private void showAuthor(String name, String avatarUrl) {
+        if (name != null && !name.isEmpty()) {
+            tvAuthorName.setText(name);
+        } else {
+            tvAuthorName.setText(getContext().getString(R.string.username_placeholder));
+        }
+
+        // Load avatar
+        if (ivAuthorAvatar != null) {
+            if (avatarUrl != null && !avatarUrl.trim().isEmpty()) {
+                com.bumptech.glide.Glide.with(getContext())
+                    .load(avatarUrl)
+                    .placeholder(R.drawable.ic_person)
+                    .error(R.drawable.ic_person)
+                    .into(ivAuthorAvatar);
+            } else {
+                ivAuthorAvatar.setImageResource(R.drawable.ic_person);
+            }
+        }
     }
 
     private void updateVoteButtons() {
@@ -478,8 +511,12 @@ public class ReviewDetailsDialog extends Dialog {
         } else {
             // view someone else's profile
             Log.d(TAG, "Opening other user's profile: " + userId);
-            com.example.food.ProfileFragment profileFragment = com.example.food.ProfileFragment.newInstance(userId);
             dismiss();
+            if (activity instanceof com.example.food.MainActivity) {
+                ((com.example.food.MainActivity) activity).openUserProfile(userId);
+                return;
+            }
+            com.example.food.ProfileFragment profileFragment = com.example.food.ProfileFragment.newInstance(userId);
             activity.getSupportFragmentManager()
                 .beginTransaction()
                 .replace(R.id.fragment_container, profileFragment)
@@ -497,18 +534,26 @@ public class ReviewDetailsDialog extends Dialog {
         EditText etCommentInput = view.findViewById(R.id.etCommentInput);
         ImageView btnSendComment = view.findViewById(R.id.btnSendComment);
 
-        CommentsAdapter adapter = new CommentsAdapter(review.getComments() != null ? review.getComments() : new ArrayList<>());
-        commentsList.setLayoutManager(new LinearLayoutManager(getContext()));
+        List<Comment> comments = new ArrayList<>();
+        CommentsAdapter adapter = new CommentsAdapter(comments);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        commentsList.setLayoutManager(layoutManager);
         commentsList.setAdapter(adapter);
-
-        if (review.getComments() != null && !review.getComments().isEmpty()) {
-            adapter.setComments(review.getComments());
-            commentsList.setVisibility(View.VISIBLE);
-            empty.setVisibility(View.GONE);
-        } else {
-            commentsList.setVisibility(View.GONE);
-            empty.setVisibility(View.VISIBLE);
-        }
+        commentsList.setVisibility(View.GONE);
+        empty.setVisibility(View.GONE);
+
+        // Comments are paged newest first from the subcollection, legacy array comments follow at the end
+        CommentPager pager = new CommentPager(adapter, comments, commentsList, empty);
+        commentPager = pager;
+        pager.loadNextPage();
+        commentsList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - 5) {
+                    pager.loadNextPage();
+                }
+            }
+        });
 
         // change navigation bar color to white when bottom sheet opens
         sheet.setOnShowListener(dialog -> {
@@ -532,6 +577,10 @@ public class ReviewDetailsDialog extends Dialog {
 
         // restore nav bar color when closed
         sheet.setOnDismissListener(dialog -> {
+            if (commentPager == pager) {
+                commentPager = null;
+            }
+
             // restore activity window navigation bar to match theme
             FragmentActivity activity = getHostActivity();
             if (activity != null && activity.getWindow() != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
@@ -566,56 +615,42 @@ public class ReviewDetailsDialog extends Dialog {
             // Disable send button
             btnSendComment.setEnabled(false);
 
-            // Fetch username from Firestore users collection
-            db.collection("users").document(currentUserId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    String username;
-                    if (documentSnapshot.exists() && documentSnapshot.getString("name") != null) {
-                        username = documentSnapshot.getString("name");
-                    } else {
-                        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
-                        username = user != null && user.getEmail() != null ?
-                            user.getEmail().split("@")[0] : "Anonymous";
+            // Resolve username through the shared user directory
+            UserDirectory.getInstance().getUser(currentUserId, (uid, userInfo) -> {
+                String username;
+                if (userInfo != null && userInfo.hasName()) {
+                    username = userInfo.getName();
+                } else {
+                    FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+                    username = user != null && user.getEmail() != null ?
+                        user.getEmail().split("@")[0] : "Anonymous";
+                }
+
+                commentService.addComment(review, currentUserId, username, commentText, new CommentService.CommentSaveCallback() {
+                    @Override
+                    public void onSuccess(Comment comment) {
+                        // Clear input
+                        etCommentInput.setText("");
+                        btnSendComment.setEnabled(true);
+
+                        review.setCommentCount(review.getCommentCount() + 1);
+                        review.setLastCommentAt(comment.getCreatedAt());
+                        adapter.addCommentAtTop(comment);
+                        commentsList.scrollToPosition(0);
+                        commentsList.setVisibility(View.VISIBLE);
+                        empty.setVisibility(View.GONE);
+
+                        Toast.makeText(getContext(), "Comment added", Toast.LENGTH_SHORT).show();
                     }
 
-                    // Create comment data map
-                    Map<String, Object> commentData = new HashMap<>();
-                    commentData.put("userId", currentUserId);
-                    commentData.put("userName", username);
-                    commentData.put("text", commentText);
-                    commentData.put("createdAt", com.google.firebase.Timestamp.now());
-
-                    // Add comment to reviews document's comments array
-                    Map<String, Object> updates = new HashMap<>();
-                    updates.put("comments", com.google.firebase.firestore.FieldValue.arrayUnion(commentData));
-
-                    db.collection("reviews").document(review.getId())
-                        .update(updates)
-                        .addOnSuccessListener(aVoid -> {
-                            // Clear input
-                            etCommentInput.setText("");
-                            btnSendComment.setEnabled(true);
-                            
-                            // Immediately add the new comment to the current review object
-                            addCommentToCurrentReview(commentData);
-                            
-                            // Refresh the comments in the bottom sheet
-                            refreshCommentsInBottomSheet(adapter, commentsList, empty);
-                            
-                            Toast.makeText(getContext(), "Comment added", Toast.LENGTH_SHORT).show();
-                        })
-                        .addOnFailureListener(e -> {
-                            Log.e(TAG, "Error adding comment", e);
-                            btnSendComment.setEnabled(true);
-                            Toast.makeText(getContext(), "Failed to add comment: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                        });
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error fetching username", e);
-                    btnSendComment.setEnabled(true);
-                    Toast.makeText(getContext(), "Failed to fetch user info", Toast.LENGTH_SHORT).show();
+                    @Override
+                    public void onError(Exception e) {
+                        Log.e(TAG, "Error adding comment", e);
+                        btnSendComment.setEnabled(true);
+                        Toast.makeText(getContext(), "Failed to add comment: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    }
                 });
+            });
         });
 
         sheet.setContentView(view);
@@ -627,89 +662,80 @@ public class ReviewDetailsDialog extends Dialog {
         openCommentsBottomSheet();
     }
 
-    private void addCommentToCurrentReview(Map<String, Object> commentData) {
-        // Convert the comment data to Comment object
-        com.example.food.data.Comment newComment = new com.example.food.data.Comment();
-        newComment.setUserId((String) commentData.get("userId"));
-        newComment.setUserName((String) commentData.get("userName"));
-        newComment.setText((String) commentData.get("text"));
-        com.google.firebase.Timestamp timestamp = (com.google.firebase.Timestamp) commentData.get("createdAt");
-        newComment.setCreatedAt(timestamp != null ? timestamp.toDate() : null);
-        
-        // Add to current review's comments list
-        if (review.getComments() == null) {
-            review.setComments(new ArrayList<>());
+    /**
+     * Pages through one review's comments for the comments sheet
+     */
+    private class CommentPager {
+        private final CommentsAdapter adapter;
+        private final List<Comment> comments;
+        private final RecyclerView commentsList;
+        private final TextView empty;
+        private DocumentSnapshot lastDocument;
+        private boolean hasMore = true;
+        private boolean loading;
+        private boolean legacyAdded;
+
+        CommentPager(CommentsAdapter adapter, List<Comment> comments, RecyclerView commentsList, TextView empty) {
+            this.adapter = adapter;
+            this.comments = comments;
+            this.commentsList = commentsList;
+            this.empty = empty;
         }
-        review.getComments().add(newComment);
-        
-        // Sort comments by timestamp (newest first)
-        review.getComments().sort((c1, c2) -> {
-            if (c1.getCreatedAt() == null) return 1;
-            if (c2.getCreatedAt() == null) return -1;
-            return c2.getCreatedAt().compareTo(c1.getCreatedAt());
-        });
-    }
 
-    private void refreshCommentsInBottomSheet(CommentsAdapter adapter, RecyclerView commentsList, TextView empty) {
-        // First try to use comments from current review object (for immediate updates)
-        if (review.getComments() != null && !review.getComments().isEmpty()) {
-            adapter.setComments(review.getComments());
-            
-            if (review.getComments().isEmpty()) {
-                commentsList.setVisibility(View.GONE);
-                empty.setVisibility(View.VISIBLE);
-            } else {
-                commentsList.setVisibility(View.VISIBLE);
-                empty.setVisibility(View.GONE);
+        void loadNextPage() {
+            if (loading || legacyAdded) return;
+            if (!hasMore) {
+                addLegacyComments();
+                return;
             }
-            return;
-        }
-        
-        // If no comments in current review object, load from Firestore
-        db.collection("reviews").document(review.getId())
-            .get()
-            .addOnSuccessListener(documentSnapshot -> {
-                if (documentSnapshot.exists()) {
-                    List<Map<String, Object>> commentsData = 
-                        (List<Map<String, Object>>) documentSnapshot.get("comments");
-                    
-                    List<com.example.food.data.Comment> comments = new ArrayList<>();
-                    if (commentsData != null) {
-                        for (Map<String, Object> commentMap : commentsData) {
-                            com.example.food.data.Comment comment = new com.example.food.data.Comment();
-                            comment.setUserId((String) commentMap.get("userId"));
-                            comment.setUserName((String) commentMap.get("userName"));
-                            comment.setText((String) commentMap.get("text"));
-                            com.google.firebase.Timestamp timestamp = (com.google.firebase.Timestamp) commentMap.get("createdAt");
-                            comment.setCreatedAt(timestamp != null ? timestamp.toDate() : null);
-                            comments.add(comment);
-                        }
+            loading = true;
+            commentService.loadComments(review.getId(), lastDocument, new CommentService.CommentPageCallback() {
+                @Override
+                public void onSuccess(CommentService.CommentPage page) {
+                    loading = false;
+                    lastDocument = page.getLastDocument();
+                    hasMore = page.hasMore();
+                    if (!page.getComments().isEmpty()) {
+                        adapter.addComments(page.getComments());
                     }
-
-                    // Sort comments by timestamp (newest first)
-                    comments.sort((c1, c2) -> {
-                        if (c1.getCreatedAt() == null) return 1;
-                        if (c2.getCreatedAt() == null) return -1;
-                        return c2.getCreatedAt().compareTo(c1.getCreatedAt());
-                    });
-
-                    // Update the current review object with loaded comments
-                    review.setComments(comments);
-                    
-                    adapter.setComments(comments);
-                    
-                    if (comments.isEmpty()) {
-                        commentsList.setVisibility(View.GONE);
-                        empty.setVisibility(View.VISIBLE);
-                    } else {
-                        commentsList.setVisibility(View.VISIBLE);
-                        empty.setVisibility(View.GONE);
+                    if (!hasMore) {
+                        addLegacyComments();
                     }
+                    updateEmptyState();
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    loading = false;
+                    Log.e(TAG, "Error loading comments", e);
+                    updateEmptyState();
                 }
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Error refreshing comments", e);
             });
+        }
+
+        // Legacy comments are skipped while the review is still card-only, add them once it loads
+        void onFullReviewLoaded() {
+            if (!hasMore && !loading) {
+                addLegacyComments();
+                updateEmptyState();
+            }
+        }
+
+        private void addLegacyComments() {
+            // The array is only present on the full document, wait until it has loaded
+            if (legacyAdded || review.isCardOnly()) return;
+            legacyAdded = true;
+            List<Comment> legacy = CommentService.getLegacyComments(review);
+            if (!legacy.isEmpty()) {
+                adapter.addComments(legacy);
+            }
+        }
+
+        private void updateEmptyState() {
+            boolean hasComments = !comments.isEmpty();
+            commentsList.setVisibility(hasComments ? View.VISIBLE : View.GONE);
+            empty.setVisibility(hasComments ? View.GONE : View.VISIBLE);
+        }
     }
 
     private void vote(boolean accurate) {
@@ -718,63 +744,53 @@ public class ReviewDetailsDialog extends Dialog {
             return;
         }
 
-        // Update local state first for immediate UI feedback
-        if (review.getVotes() == null) {
-            review.setVotes(new HashMap<>());
+        // Votes are not known until the full review behind the card has loaded
+        if (review.isCardOnly()) {
+            return;
         }
 
-        boolean wasPreviouslyVoted = review.getVotes().containsKey(currentUserId);
         final Boolean previousVote;
-        if (wasPreviouslyVoted && review.getVotes().get(currentUserId) != null) {
+        if (review.getVotes() != null && review.getVotes().get(currentUserId) != null) {
             previousVote = (Boolean) review.getVotes().get(currentUserId).get("accurate");
         } else {
             previousVote = null;
         }
 
-        // If clicking the same button, remove vote
-        if (wasPreviouslyVoted && ((previousVote != null && previousVote == accurate))) {
-            review.getVotes().remove(currentUserId);
-        } else {
-            Map<String, Object> voteData = new HashMap<>();
-            voteData.put("accurate", accurate);
-            voteData.put("timestamp", new java.util.Date());
-            review.getVotes().put(currentUserId, voteData);
-        }
+        // Clicking the same button again removes the vote
+        Boolean newVote = previousVote != null && previousVote == accurate ? null : accurate;
 
-            // Update UI immediately
-            updateVoteDisplay();
-            updateVoteButtons();
-            updateAccuracyDisplay(); // Recalculate accuracy after vote
-
-            // Update in Firebase
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("votes", review.getVotes());
-        updates.put("accuracyPercent", review.getAccuracyPercent());
-
-        db.collection("reviews").document(review.getId())
-                .update(updates)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Vote and accuracy updated successfully");
-                    // Update the review author's scores when their review gets voted on
-                    UserStatsService.updateUserScoresOnVoteChange(review.getId());
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error updating vote", e);
-                    Toast.makeText(getContext(), "Failed to update vote", Toast.LENGTH_SHORT).show();
-
-                    // Revert local changes on error
-                    if (wasPreviouslyVoted) {
-                        Map<String, Object> voteData = new HashMap<>();
-                        voteData.put("accurate", previousVote);
-                        voteData.put("timestamp", new java.util.Date());
-                        review.getVotes().put(currentUserId, voteData);
-                    } else {
-                        review.getVotes().remove(currentUserId);
-                    }
-                    updateVoteDisplay();
-                    updateVoteButtons();
-                    updateAccuracyDisplay();
-                });
+        // Update local state first for immediate UI feedback
+        review.applyVote(currentUserId, newVote);
+        updateVoteDisplay();
+        updateVoteButtons();
+        updateAccuracyDisplay();
+
+        // Only this user's vote and the counters are written, in a transaction
+        new ReviewService().vote(review.getId(), currentUserId, newVote, new ReviewService.VoteCallback() {
+            @Override
+            public void onSuccess(int accurateCount, int totalVotes) {
+                Log.d(TAG, "Vote and accuracy updated successfully");
+                // Pick up votes other users made since the review was loaded
+                review.setAccurateCount(accurateCount);
+                review.setTotalVotes(totalVotes);
+                updateVoteDisplay();
+                updateAccuracyDisplay();
+                // Update the review author's scores when their review gets voted on
+                UserStatsService.updateUserScoresOnVoteChange(review.getId());
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error updating vote", e);
+                Toast.makeText(getContext(), "Failed to update vote", Toast.LENGTH_SHORT).show();
+
+                // Revert local changes on error
+                review.applyVote(currentUserId, previousVote);
+                updateVoteDisplay();
+                updateVoteButtons();
+                updateAccuracyDisplay();
+            }
+        });
     }
 
     private void setStarRating(double rating) {
@@ -885,51 +901,44 @@ public class ReviewDetailsDialog extends Dialog {
             return;
         }
 
-        db.collection("restaurants")
-            .document(restaurantId)
-            .get()
-            .addOnSuccessListener(documentSnapshot -> {
-                if (documentSnapshot.exists()) {
-                    // Set restaurant name
-                    String restaurantName = documentSnapshot.getString("name");
-                    if (restaurantName != null && !restaurantName.trim().isEmpty()) {
-                        tvRestaurantName.setText(restaurantName);
-                    } else {
-                        tvRestaurantName.setText(getContext().getString(R.string.restaurant_placeholder));
-                    }
+        RestaurantRepository repository = RestaurantRepository.getInstance();
+        repository.whenReady(() -> {
+            Restaurant cached = repository.getRestaurant(restaurantId);
+            if (cached != null) {
+                // Set restaurant name
+                String restaurantName = cached.getName();
+                if (restaurantName != null && !restaurantName.trim().isEmpty()) {
+                    tvRestaurantName.setText(restaurantName);
+                } else {
+                    tvRestaurantName.setText(getContext().getString(R.string.restaurant_placeholder));
+                }
 
-                    // Set restaurant address
-                    String address = documentSnapshot.getString("address");
-                    if (tvRestaurantAddress != null) {
-                        tvRestaurantAddress.setText(address != null && !address.trim().isEmpty() ? address : "Address not available");
-                    }
+                // Set restaurant address
+                String address = cached.getAddress();
+                if (tvRestaurantAddress != null) {
+                    tvRestaurantAddress.setText(address != null && !address.trim().isEmpty() ? address : "Address not available");
+                }
 
-                    // Set restaurant category
-                    String category = documentSnapshot.getString("category");
-                    if (tvRestaurantCategory != null) {
-                        tvRestaurantCategory.setText(category != null && !category.trim().isEmpty() ? category : "Restaurant");
-                    }
+                // Set restaurant category
+                String category = cached.getCategory();
+                if (tvRestaurantCategory != null) {
+                    tvRestaurantCategory.setText(category != null && !category.trim().isEmpty() ? category : "Restaurant");
+                }
 
-                    // Set restaurant location/region
-                    String region = documentSnapshot.getString("region");
-                    if (tvRestaurantLocation != null) {
-                        tvRestaurantLocation.setText(region != null && !region.trim().isEmpty() ? region : "Location");
-                    }
-                } else {
-                    tvRestaurantName.setText(getContext().getString(R.string.restaurant_placeholder));
-                    if (tvRestaurantAddress != null) {
-                        tvRestaurantAddress.setText("Address not available");
-                    }
-                    tvRestaurantCategory.setText("Restaurant");
-                    tvRestaurantLocation.setText("Location");
+                // Set restaurant location/region
+                String region = cached.getRegion();
+                if (tvRestaurantLocation != null) {
+                    tvRestaurantLocation.setText(region != null && !region.trim().isEmpty() ? region : "Location");
                 }
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Error fetching restaurant name", e);
+            } else {
                 tvRestaurantName.setText(getContext().getString(R.string.restaurant_placeholder));
+                if (tvRestaurantAddress != null) {
+                    tvRestaurantAddress.setText("Address not available");
+                }
                 tvRestaurantCategory.setText("Restaurant");
                 tvRestaurantLocation.setText("Location");
-            });
+            }
+        });
     }
 
     private void setupCaptionDisplay() {
@@ -1064,20 +1073,27 @@ public class ReviewDetailsDialog extends Dialog {
         // Show loading state
         Toast.makeText(getContext(), "Deleting review...", Toast.LENGTH_SHORT).show();
 
-        // Delete from Firestore
-        db.collection("reviews")
-            .document(review.getId())
-            .delete()
-            .addOnSuccessListener(aVoid -> {
-                Log.d(TAG, "Review deleted successfully");
+        // Delete the review and its feed card from Firestore
+        new ReviewService().deleteReview(review, new ReviewService.ReviewSaveCallback() {
+            @Override
+            public void onSuccess() {
                 Toast.makeText(getContext(), "Review deleted successfully", Toast.LENGTH_SHORT).show();
                 
+                // Delta refreshes cannot see deletions, so tell the screens directly
+                reviewDeleted = true;
+                UserReviewsCache.getInstance().removeReview(review.getUserId(), review.getId());
+                if (onReviewDeletedListener != null) {
+                    onReviewDeletedListener.onReviewDeleted(review);
+                }
+                
                 // Close the dialog
                 dismiss();
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Error deleting review", e);
+            }
+
+            @Override
+            public void onError(Exception e) {
                 Toast.makeText(getContext(), "Failed to delete review: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-            });
+            }
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,175 @@
+package com.example.food.search;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.food.data.Review;
+import com.example.food.utils.BackgroundDecoder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps a ReviewSearchIndex of the home feed on its own background thread.
+ * Index updates and searches run in the order they are called, so a search always sees every
+ * review indexed before it. Fields are copied on the caller's thread, results arrive on the
+ * main thread and only for the latest search. A search that is still queued when a newer one
+ * arrives is skipped, and a query that narrows the previous one only rechecks its results.
+ * Matches are ordered by ReviewRanker, best first.
+ */
+public class FeedSearch {
+    public static final long DEFAULT_DEBOUNCE = 150;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ReviewSearchIndex index = new ReviewSearchIndex();
+    private final ReviewRanker ranker = new ReviewRanker();
+    private volatile int generation;
+    private long debounceMillis = DEFAULT_DEBOUNCE;
+    private Runnable pendingSearch;
+
+    // Confined to the executor thread
+    private int indexVersion;
+    private String lastQuery;
+    private List<String> lastResult;
+    private int lastResultVersion = -1;
+
+    public interface ResultCallback {
+        /**
+         * Ids of the matching reviews, most relevant first
+         */
+        void onResults(List<String> reviewIds);
+    }
+
+    /**
+     * Add or refresh reviews, e.g. a new page or reviews whose author or restaurant name arrived
+     */
+    public void index(Collection<Review> reviews) {
+        List<String[]> entries = new ArrayList<>(reviews.size());
+        long[] createdAt = new long[reviews.size()];
+        double[] accuracy = new double[reviews.size()];
+        for (Review review : reviews) {
+            if (review.getId() == null) continue;
+            createdAt[entries.size()] = review.getCreatedAt() != null ? review.getCreatedAt().getTime() : 0;
+            accuracy[entries.size()] = review.getAccuracyPercent();
+            entries.add(new String[] {review.getId(), review.getDescription(), review.getCaption(),
+                    review.getRestaurantName(), review.getUserName(), review.getUserId()});
+        }
+        executor.execute(() -> {
+            for (int i = 0; i < entries.size(); i++) {
+                String[] entry = entries.get(i);
+                index.put(entry[0], entry[1], entry[2], entry[3], entry[4]);
+                ranker.put(entry[0], entry[2], entry[1], entry[3], entry[4], createdAt[i], accuracy[i], entry[5]);
+            }
+            indexVersion++;
+        });
+    }
+
+    public void remove(String reviewId) {
+        executor.execute(() -> {
+            index.remove(reviewId);
+            ranker.remove(reviewId);
+            indexVersion++;
+        });
+    }
+
+    public void clear() {
+        executor.execute(() -> {
+            index.clear();
+            ranker.clear();
+            indexVersion++;
+        });
+    }
+
+    /**
+     * Authors' stored credibility scores, used as a ranking signal
+     */
+    public void setCredibility(Map<String, Double> scores) {
+        Map<String, Double> copy = new HashMap<>(scores);
+        executor.execute(() -> {
+            for (Map.Entry<String, Double> entry : copy.entrySet()) {
+                ranker.setCredibility(entry.getKey(), entry.getValue());
+            }
+        });
+    }
+
+    /**
+     * How long searchDebounced waits for typing to pause
+     */
+    public void setDebounceMillis(long debounceMillis) {
+        this.debounceMillis = Math.max(0, debounceMillis);
+    }
+
+    /**
+     * Search once the query has been left alone for the debounce time, for use while typing.
+     * Must be called on the main thread.
+     */
+    public void searchDebounced(String query, ResultCallback callback) {
+        cancel();
+        pendingSearch = () -> {
+            pendingSearch = null;
+            search(query, callback);
+        };
+        handler.postDelayed(pendingSearch, debounceMillis);
+    }
+
+    /**
+     * Must be called on the main thread, a newer search cancels the delivery of older ones
+     */
+    public void search(String query, ResultCallback callback) {
+        clearPending();
+        int current = ++generation;
+        executor.execute(() -> {
+            if (current != generation) {
+                return; // Superseded while queued
+            }
+            List<String> matches = ranker.rank(run(query), query, System.currentTimeMillis());
+            BackgroundDecoder.postToMain(() -> {
+                if (current == generation) {
+                    callback.onResults(matches);
+                }
+            });
+        });
+    }
+
+    /**
+     * Drop a debounced, queued or running search, e.g. once the query was cleared
+     */
+    public void cancel() {
+        clearPending();
+        generation++;
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdown();
+    }
+
+    private void clearPending() {
+        if (pendingSearch != null) {
+            handler.removeCallbacks(pendingSearch);
+            pendingSearch = null;
+        }
+    }
+
+    private List<String> run(String query) {
+        String needle = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        List<String> result;
+        if (lastQuery != null && lastResultVersion == indexVersion && !needle.isEmpty() && needle.contains(lastQuery)) {
+            // Anything containing the longer query contains the previous one, so only its hits can match
+            result = index.refine(lastResult, needle);
+        } else {
+            result = index.search(needle);
+        }
+        lastQuery = needle.isEmpty() ? null : needle;
+        lastResult = result;
+        lastResultVersion = indexVersion;
+        return result;
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.food.search;
+
+import com.example.food.model.Restaurant;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Trigram index over restaurant names for autocomplete, tolerant of typos.
+ *
+ * Every word of a name is padded the way pg_trgm does ("  word ") so the first letters of a word
+ * form trigrams of their own, and a query of one or two characters still finds the words they
+ * start. The last query word is left open at the end since it is usually still being typed.
+ * A restaurant's similarity is the share of the query's trigrams its name has, so one wrong
+ * letter only costs the few trigrams around it. Names containing the query as typed rank above
+ * those that only share its trigrams, and a small bonus for being near the origin, when there is
+ * one, orders matches of the same quality.
+ *
+ * Immutable once built, so it can be searched from any thread.
+ */
+public final class RestaurantNameIndex {
+    private static final double MIN_SIMILARITY = 0.45;
+    private static final double PROXIMITY_WEIGHT = 0.05; // Reorders equally good matches, rarely outranks a better one
+    private static final double NEAR_KM = 2.0; // Proximity bonus halves at this distance
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final Restaurant[] restaurants;
+    private final String[] names; // normalized, for the exact substring bonus
+    private final GramTable grams;  // trigram -> slot
+    private final int[] offsets;    // slot -> start of its docs, one extra entry for the end
+    private final int[] docs;       // docs of every trigram, sorted within each slot
+    private final Set<String> duplicateNames;
+
+    public RestaurantNameIndex(Collection<Restaurant> catalog) {
+        List<Restaurant> named = new ArrayList<>(catalog.size());
+        for (Restaurant restaurant : catalog) {
+            if (restaurant.getId() != null && restaurant.getName() != null) {
+                named.add(restaurant);
+            }
+        }
+        restaurants = named.toArray(new Restaurant[0]);
+        names = new String[restaurants.length];
+
+        // Two passes into flat arrays: count the docs per trigram, then fill each trigram's range
+        long[][] docGrams = new long[restaurants.length][];
+        GramTable table = new GramTable(restaurants.length * 8);
+        int[] counts = new int[1024];
+        Set<String> seen = new HashSet<>();
+        Set<String> duplicates = new HashSet<>();
+        for (int doc = 0; doc < restaurants.length; doc++) {
+            names[doc] = normalize(restaurants[doc].getName());
+            if (!seen.add(names[doc])) {
+                duplicates.add(names[doc]);
+            }
+            docGrams[doc] = trigrams(names[doc], true);
+            for (long gram : docGrams[doc]) {
+                int slot = table.slotOrAdd(gram);
+                if (slot == counts.length) {
+                    counts = Arrays.copyOf(counts, slot * 2);
+                }
+                counts[slot]++;
+            }
+        }
+        offsets = new int[table.size() + 1];
+        for (int slot = 0; slot < table.size(); slot++) {
+            offsets[slot + 1] = offsets[slot] + counts[slot];
+        }
+        docs = new int[offsets[table.size()]];
+        int[] filled = Arrays.copyOf(offsets, table.size());
+        for (int doc = 0; doc < restaurants.length; doc++) {
+            for (long gram : docGrams[doc]) {
+                docs[filled[table.slot(gram)]++] = doc;
+            }
+        }
+        grams = table;
+        duplicateNames = duplicates;
+    }
+
+    public int size() {
+        return restaurants.length;
+    }
+
+    /**
+     * Whether another restaurant has the same name, so a suggestion needs its address to tell them apart
+     */
+    public boolean hasDuplicateName(Restaurant restaurant) {
+        return restaurant.getName() != null && duplicateNames.contains(normalize(restaurant.getName()));
+    }
+
+    /**
+     * Best matches for the query, at most limit of them. Pass NaN coordinates when there is no origin.
+     */
+    public List<Restaurant> search(String query, double originLatitude, double originLongitude, int limit) {
+        List<Restaurant> result = new ArrayList<>();
+        String needle = normalize(query == null ? "" : query);
+        if (needle.isEmpty()) {
+            return result;
+        }
+        long[] queryGrams = trigrams(needle, false);
+        if (queryGrams.length == 0) {
+            return result;
+        }
+
+        int[] shared = new int[restaurants.length];
+        int[] touched = new int[restaurants.length];
+        int touchedCount = 0;
+        for (long gram : queryGrams) {
+            int slot = grams.slot(gram);
+            if (slot < 0) continue;
+            for (int i = offsets[slot]; i < offsets[slot + 1]; i++) {
+                if (shared[docs[i]]++ == 0) {
+                    touched[touchedCount++] = docs[i];
+                }
+            }
+        }
+
+        boolean hasOrigin = !Double.isNaN(originLatitude) && !Double.isNaN(originLongitude);
+        List<double[]> scored = new ArrayList<>();
+        for (int t = 0; t < touchedCount; t++) {
+            int doc = touched[t];
+            double similarity = (double) shared[doc] / queryGrams.length;
+            if (names[doc].contains(needle)) {
+                similarity = names[doc].startsWith(needle) ? 1.1 : 1.05;
+            } else if (similarity < MIN_SIMILARITY) {
+                continue;
+            }
+            double score = similarity;
+            if (hasOrigin) {
+                double km = distanceKm(originLatitude, originLongitude,
+                        restaurants[doc].getLatitude(), restaurants[doc].getLongitude());
+                score *= 1 + PROXIMITY_WEIGHT * NEAR_KM / (NEAR_KM + km);
+            }
+            scored.add(new double[] {score, doc});
+        }
+        scored.sort((a, b) -> a[0] != b[0] ? Double.compare(b[0], a[0]) : Double.compare(a[1], b[1]));
+        for (int i = 0; i < scored.size() && i < limit; i++) {
+            result.add(restaurants[(int) scored.get(i)[1]]);
+        }
+        return result;
+    }
+
+    static String normalize(String text) {
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD))
+                .replaceAll("");
+        StringBuilder normalized = new StringBuilder(folded.length());
+        boolean space = true;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+                space = false;
+            } else if (!space) {
+                normalized.append(' ');
+                space = true;
+            }
+        }
+        int end = normalized.length();
+        return space && end > 0 ? normalized.substring(0, end - 1) : normalized.toString();
+    }
+
+    /**
+     * Distinct padded trigrams of each word. closeLast is false for a query, whose last word may be unfinished.
+     */
+    private static long[] trigrams(String normalized, boolean closeLast) {
+        if (normalized.isEmpty()) {
+            return new long[0];
+        }
+        String[] words = normalized.split(" ");
+        long[] packed = new long[normalized.length() + words.length];
+        int count = 0;
+        for (int w = 0; w < words.length; w++) {
+            boolean close = closeLast || w < words.length - 1;
+            String padded = "  " + words[w] + (close ? " " : "");
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                packed[count++] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+            }
+        }
+        Arrays.sort(packed, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || packed[i] != packed[distinct - 1]) {
+                packed[distinct++] = packed[i];
+            }
+        }
+        return Arrays.copyOf(packed, distinct);
+    }
+
+    private static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        return EARTH_RADIUS_KM * Math.sqrt(dLat * dLat + dLng * dLng);
+    }
+
+    /**
+     * Open addressing map from a packed trigram to a dense slot number, without boxing.
+     * No trigram packs to 0, since every one holds at least one letter or digit.
+     */
+    private static final class GramTable {
+        private long[] keys;
+        private int[] slots;
+        private int size;
+
+        GramTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected) * 2);
+            keys = new long[capacity];
+            slots = new int[capacity];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int slot(long gram) {
+            int mask = keys.length - 1;
+            for (int i = hash(gram) & mask; keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == gram) return slots[i];
+            }
+            return -1;
+        }
+
+        int slotOrAdd(long gram) {
+            int mask = keys.length - 1;
+            int i = hash(gram) & mask;
+            for (; keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == gram) return slots[i];
+            }
+            keys[i] = gram;
+            slots[i] = size;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return size - 1;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldSlots = slots;
+            keys = new long[oldKeys.length * 2];
+            slots = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] == 0) continue;
+                int i = hash(oldKeys[j]) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                slots[i] = oldSlots[j];
+            }
+        }
+
+        private static int hash(long gram) {
+            long h = gram * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.food.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders review search matches by relevance instead of feed order.
+ *
+ * Text relevance is BM25F over caption, description, restaurant name and author name, the
+ * fields FeedSearch matches on: each field's term frequency is normalized by that field's length
+ * against the corpus average and weighted, the sum is saturated with K1 and multiplied by the
+ * term's idf. The normalized frequencies are
+ * computed when a review is indexed and kept per document, so scoring a page of matches is a
+ * few lookups per query word. They are rebuilt only when an average field length drifts by
+ * more than NORM_DRIFT.
+ *
+ * Relevance is then scaled by the review's priors: recency with a half-life, accuracyPercent
+ * and the author's credibilityScore. Matches with no whole-word hit, e.g. a query inside a
+ * longer word, rank after every scored one, by their priors.
+ *
+ * Not thread-safe, FeedSearch confines it to its index thread.
+ */
+public final class ReviewRanker {
+    private static final int FIELDS = 4; // caption, description, restaurant name, author name
+    private static final double[] FIELD_WEIGHTS = {2.0, 1.0, 1.5, 1.0};
+    private static final double[] FIELD_B = {0.75, 0.75, 0.5, 0.25};
+    private static final double K1 = 1.2;
+    private static final double NORM_DRIFT = 0.1;
+    private static final double PREFIX_DISCOUNT = 0.5; // A half-typed word counts less than a whole one
+
+    private static final double RECENCY_WEIGHT = 0.5;
+    private static final double ACCURACY_WEIGHT = 0.3;
+    private static final double CREDIBILITY_WEIGHT = 0.3;
+    private static final double RECENCY_HALF_LIFE_DAYS = 30;
+    private static final double CREDIBILITY_HALF = 50; // Credibility scores are open ended, this one counts as 0.5
+    private static final double UNKNOWN_ACCURACY = 0.5;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private static final class Doc {
+        final String[] terms;   // sorted, distinct
+        final int[] frequencies; // terms.length * FIELDS, frequency of each term in each field
+        final int[] lengths;    // words per field
+        final float[] weights;  // normalized, field-weighted frequency per term
+        final long createdAt;
+        final double accuracy;
+        final String authorId;
+
+        Doc(String[] terms, int[] frequencies, int[] lengths, long createdAt, double accuracy, String authorId) {
+            this.terms = terms;
+            this.frequencies = frequencies;
+            this.lengths = lengths;
+            this.weights = new float[terms.length];
+            this.createdAt = createdAt;
+            this.accuracy = accuracy;
+            this.authorId = authorId;
+        }
+    }
+
+    private final Map<String, Doc> docs = new HashMap<>();
+    private final Map<String, Integer> documentFrequency = new HashMap<>();
+    private final Map<String, Double> credibility = new HashMap<>();
+    private final long[] totalLength = new long[FIELDS];
+    private final double[] normAverage = new double[FIELDS]; // averages the stored weights were built with
+
+    /**
+     * Index a review, replacing what was indexed for it before.
+     * accuracyPercent of 0 or less means no votes yet; createdAt of 0 means unknown.
+     */
+    public void put(String key, String caption, String description, String restaurantName, String authorName,
+                    long createdAt, double accuracyPercent, String authorId) {
+        remove(key);
+        Map<String, int[]> counts = new HashMap<>();
+        int[] lengths = new int[FIELDS];
+        String[] fields = {caption, description, restaurantName, authorName};
+        for (int field = 0; field < FIELDS; field++) {
+            for (String word : SearchTokens.words(fields[field])) {
+                int[] perField = counts.get(word);
+                if (perField == null) {
+                    perField = new int[FIELDS];
+                    counts.put(word, perField);
+                }
+                perField[field]++;
+                lengths[field]++;
+            }
+        }
+
+        String[] terms = counts.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        int[] frequencies = new int[terms.length * FIELDS];
+        for (int t = 0; t < terms.length; t++) {
+            System.arraycopy(counts.get(terms[t]), 0, frequencies, t * FIELDS, FIELDS);
+            Integer df = documentFrequency.get(terms[t]);
+            documentFrequency.put(terms[t], df == null ? 1 : df + 1);
+        }
+        double accuracy = accuracyPercent > 0 ? Math.min(1.0, accuracyPercent / 100.0) : UNKNOWN_ACCURACY;
+        Doc doc = new Doc(terms, frequencies, lengths, createdAt, accuracy, authorId);
+        docs.put(key, doc);
+        for (int field = 0; field < FIELDS; field++) {
+            totalLength[field] += lengths[field];
+        }
+        if (docs.size() == 1) {
+            rebuildNorms();
+        } else {
+            computeWeights(doc);
+        }
+    }
+
+    public void remove(String key) {
+        Doc doc = docs.remove(key);
+        if (doc == null) return;
+        for (String term : doc.terms) {
+            int df = documentFrequency.get(term) - 1;
+            if (df == 0) {
+                documentFrequency.remove(term);
+            } else {
+                documentFrequency.put(term, df);
+            }
+        }
+        for (int field = 0; field < FIELDS; field++) {
+            totalLength[field] -= doc.lengths[field];
+        }
+    }
+
+    public void clear() {
+        docs.clear();
+        documentFrequency.clear();
+        Arrays.fill(totalLength, 0);
+        Arrays.fill(normAverage, 0);
+    }
+
+    public int size() {
+        return docs.size();
+    }
+
+    /**
+     * The author's stored credibilityScore, kept until replaced
+     */
+    public void setCredibility(String authorId, double credibilityScore) {
+        if (authorId != null) {
+            credibility.put(authorId, credibilityScore);
+        }
+    }
+
+    /**
+     * The keys ordered best first. Keys that were never indexed keep their relative order at the end.
+     */
+    public List<String> rank(Collection<String> keys, String query, long now) {
+        if (driftedNorms()) {
+            rebuildNorms();
+        }
+        List<String> words = SearchTokens.words(query);
+        List<String> unknown = new ArrayList<>();
+        List<Object[]> scored = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Doc doc = docs.get(key);
+            if (doc == null) {
+                unknown.add(key);
+                continue;
+            }
+            double relevance = relevance(doc, words);
+            double prior = prior(doc, now);
+            scored.add(new Object[] {key, relevance * (1 + prior), prior});
+        }
+        scored.sort((a, b) -> {
+            int byScore = Double.compare((double) b[1], (double) a[1]);
+            return byScore != 0 ? byScore : Double.compare((double) b[2], (double) a[2]);
+        });
+        List<String> ranked = new ArrayList<>(keys.size());
+        for (Object[] entry : scored) {
+            ranked.add((String) entry[0]);
+        }
+        ranked.addAll(unknown);
+        return ranked;
+    }
+
+    /**
+     * BM25F relevance of one indexed review. The last query word may be unfinished, so it also
+     * matches the best term it is a prefix of, at a discount.
+     */
+    private double relevance(Doc doc, List<String> words) {
+        double score = 0;
+        for (int w = 0; w < words.size(); w++) {
+            String word = words.get(w);
+            boolean last = w == words.size() - 1;
+            int t = Arrays.binarySearch(doc.terms, word);
+            if (t >= 0) {
+                score += termScore(doc, t);
+            } else if (last) {
+                double best = 0;
+                for (int p = -t - 1; p < doc.terms.length && doc.terms[p].startsWith(word); p++) {
+                    best = Math.max(best, termScore(doc, p));
+                }
+                score += PREFIX_DISCOUNT * best;
+            }
+        }
+        return score;
+    }
+
+    double relevance(String key, String query) {
+        Doc doc = docs.get(key);
+        return doc == null ? 0 : relevance(doc, SearchTokens.words(query));
+    }
+
+    /**
+     * Recency, accuracy and credibility folded into one boost, 0 for an old unknown review
+     */
+    private double prior(Doc doc, long now) {
+        double recency = 0;
+        if (doc.createdAt > 0) {
+            double ageDays = Math.max(0, now - doc.createdAt) / (double) DAY_MILLIS;
+            recency = Math.pow(0.5, ageDays / RECENCY_HALF_LIFE_DAYS);
+        }
+        Double authorScore = doc.authorId != null ? credibility.get(doc.authorId) : null;
+        double credible = authorScore != null && authorScore > 0 ? authorScore / (authorScore + CREDIBILITY_HALF) : 0;
+        return RECENCY_WEIGHT * recency + ACCURACY_WEIGHT * doc.accuracy + CREDIBILITY_WEIGHT * credible;
+    }
+
+    private double termScore(Doc doc, int t) {
+        double weight = doc.weights[t];
+        Integer df = documentFrequency.get(doc.terms[t]);
+        int n = docs.size();
+        double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+        return idf * weight / (K1 + weight);
+    }
+
+    private void computeWeights(Doc doc) {
+        for (int t = 0; t < doc.terms.length; t++) {
+            double weight = 0;
+            for (int field = 0; field < FIELDS; field++) {
+                int frequency = doc.frequencies[t * FIELDS + field];
+                if (frequency == 0) continue;
+                double average = normAverage[field] > 0 ? normAverage[field] : 1;
+                double norm = 1 - FIELD_B[field] + FIELD_B[field] * doc.lengths[field] / average;
+                weight += FIELD_WEIGHTS[field] * frequency / norm;
+            }
+            doc.weights[t] = (float) weight;
+        }
+    }
+
+    private boolean driftedNorms() {
+        if (docs.isEmpty()) return false;
+        for (int field = 0; field < FIELDS; field++) {
+            double average = totalLength[field] / (double) docs.size();
+            double built = normAverage[field];
+            if (built == 0 ? average > 0 : Math.abs(average - built) > NORM_DRIFT * built) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void rebuildNorms() {
+        for (int field = 0; field < FIELDS; field++) {
+            normAverage[field] = docs.isEmpty() ? 0 : totalLength[field] / (double) docs.size();
+        }
+        for (Doc doc : docs.values()) {
+            computeWeights(doc);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.food.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Trigram inverted index over the searchable text of loaded reviews, answering the same
+ * case-insensitive substring match the feed search always had.
+ *
+ * Each review's fields are lowercased once, joined with a separator no query can contain, and
+ * every distinct trigram of that text gets a posting. A query of three or more characters
+ * intersects the postings of its trigrams, smallest first, and checks only the surviving
+ * candidates with contains. Shorter queries scan the stored lowercase text.
+ *
+ * Updates never rewrite a posting list: a changed review gets a new doc number and the old one
+ * is marked dead, so postings stay sorted by appending. Dead entries are compacted away once
+ * they outnumber the live ones. Not thread-safe, FeedSearch confines it to one thread.
+ */
+public final class ReviewSearchIndex {
+    private static final char FIELD_SEPARATOR = '\u0000';
+    private static final int COMPACT_MIN_DEAD = 1024;
+
+    private final Map<String, Integer> docByKey = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();  // doc -> review id, null once dead
+    private final List<String> texts = new ArrayList<>(); // doc -> lowercase text, null once dead
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private int deadCount;
+
+    /**
+     * Index a review's searchable fields, replacing what was indexed for it before. Null fields are skipped.
+     */
+    public void put(String key, String... fields) {
+        String text = normalize(fields);
+        Integer existing = docByKey.get(key);
+        if (existing != null) {
+            if (text.equals(texts.get(existing))) {
+                return; // e.g. an author lookup that did not change the name
+            }
+            kill(existing);
+        }
+        putNormalized(key, text);
+        compactIfNeeded();
+    }
+
+    public void remove(String key) {
+        Integer doc = docByKey.remove(key);
+        if (doc != null) {
+            kill(doc);
+            compactIfNeeded();
+        }
+    }
+
+    public void clear() {
+        docByKey.clear();
+        keys.clear();
+        texts.clear();
+        postings.clear();
+        deadCount = 0;
+    }
+
+    public int size() {
+        return docByKey.size();
+    }
+
+    /**
+     * Ids of the reviews whose text contains the query, in the order they were last indexed.
+     * An empty query matches nothing, callers show the unfiltered list instead.
+     */
+    public List<String> search(String query) {
+        List<String> result = new ArrayList<>();
+        String needle = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        if (needle.isEmpty()) {
+            return result;
+        }
+
+        if (needle.length() < 3) {
+            for (int doc = 0; doc < texts.size(); doc++) {
+                String text = texts.get(doc);
+                if (text != null && text.contains(needle)) {
+                    result.add(keys.get(doc));
+                }
+            }
+            return result;
+        }
+
+        long[] grams = trigrams(needle);
+        Postings[] lists = new Postings[grams.length];
+        int i = 0;
+        for (long gram : grams) {
+            Postings list = postings.get(gram);
+            if (list == null) {
+                return result; // A trigram no review has
+            }
+            lists[i++] = list;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+        int[] candidates = Arrays.copyOf(lists[0].docs, lists[0].size);
+        int count = candidates.length;
+        for (int l = 1; l < lists.length && count > 0; l++) {
+            count = intersect(candidates, count, lists[l]);
+        }
+
+        // Trigrams can all be present without being adjacent, confirm on the text
+        for (int c = 0; c < count; c++) {
+            String text = texts.get(candidates[c]);
+            if (text != null && text.contains(needle)) {
+                result.add(keys.get(candidates[c]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The subset of an earlier result that also matches a narrower query, e.g. "rame" after "ram".
+     * Only valid while nothing was indexed in between, it never finds reviews outside previous.
+     */
+    public List<String> refine(List<String> previous, String query) {
+        String needle = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        List<String> result = new ArrayList<>();
+        if (needle.isEmpty()) {
+            return result;
+        }
+        for (String key : previous) {
+            Integer doc = docByKey.get(key);
+            if (doc != null && texts.get(doc).contains(needle)) {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Keep the candidates that are also in the list, both are sorted ascending. Returns the new count.
+     */
+    private static int intersect(int[] candidates, int count, Postings list) {
+        int kept = 0;
+        int j = 0;
+        for (int c = 0; c < count && j < list.size; c++) {
+            int doc = candidates[c];
+            while (j < list.size && list.docs[j] < doc) {
+                j++;
+            }
+            if (j < list.size && list.docs[j] == doc) {
+                candidates[kept++] = doc;
+            }
+        }
+        return kept;
+    }
+
+    private void kill(int doc) {
+        keys.set(doc, null);
+        texts.set(doc, null);
+        deadCount++;
+    }
+
+    private void compactIfNeeded() {
+        if (deadCount < COMPACT_MIN_DEAD || deadCount < docByKey.size()) {
+            return;
+        }
+        List<String> liveKeys = new ArrayList<>(docByKey.size());
+        List<String> liveTexts = new ArrayList<>(docByKey.size());
+        for (int doc = 0; doc < keys.size(); doc++) {
+            if (keys.get(doc) != null) {
+                liveKeys.add(keys.get(doc));
+                liveTexts.add(texts.get(doc));
+            }
+        }
+        clear();
+        for (int doc = 0; doc < liveKeys.size(); doc++) {
+            putNormalized(liveKeys.get(doc), liveTexts.get(doc));
+        }
+    }
+
+    private void putNormalized(String key, String text) {
+        int doc = keys.size();
+        keys.add(key);
+        texts.add(text);
+        docByKey.put(key, doc);
+        for (long gram : trigrams(text)) {
+            Postings list = postings.get(gram);
+            if (list == null) {
+                list = new Postings();
+                postings.put(gram, list);
+            }
+            list.add(doc);
+        }
+    }
+
+    private static String normalize(String[] fields) {
+        StringBuilder text = new StringBuilder();
+        for (String field : fields) {
+            if (field == null || field.isEmpty()) continue;
+            if (text.length() > 0) {
+                text.append(FIELD_SEPARATOR);
+            }
+            text.append(field.toLowerCase(Locale.ROOT));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Distinct trigrams of the text packed into longs, none spanning a field separator
+     */
+    private static long[] trigrams(String text) {
+        long[] grams = new long[Math.max(0, text.length() - 2)];
+        int count = 0;
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            char a = text.charAt(i);
+            char b = text.charAt(i + 1);
+            char c = text.charAt(i + 2);
+            if (a == FIELD_SEPARATOR || b == FIELD_SEPARATOR || c == FIELD_SEPARATOR) continue;
+            grams[count++] = ((long) a << 32) | ((long) b << 16) | c;
+        }
+        Arrays.sort(grams, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || grams[i] != grams[distinct - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    /**
+     * Growable sorted array of doc numbers
+     */
+    private static final class Postings {
+        int[] docs = new int[4];
+        int size;
+
+        void add(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+    }
+}
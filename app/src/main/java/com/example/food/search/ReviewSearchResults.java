@@ -0,0 +1,51 @@
+package com.example.food.search;
+
+import com.example.food.data.Review;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Search hits merged across result pages. Firestore returns matching cards newest first, so a
+ * later page can hold a better match than an earlier one; every page is merged in here and the
+ * whole list re-ranked by how many query words a review matched, then by recency.
+ */
+public class ReviewSearchResults {
+    private final Map<String, Review> reviews = new HashMap<>();
+    private final Map<String, Integer> matches = new HashMap<>();
+
+    public void add(Review review, int matched) {
+        if (review.getId() == null) return;
+        Integer previous = matches.get(review.getId());
+        if (previous == null || matched >= previous) {
+            reviews.put(review.getId(), review);
+            matches.put(review.getId(), matched);
+        }
+    }
+
+    public int size() {
+        return reviews.size();
+    }
+
+    public List<Review> getRanked() {
+        List<Review> ranked = new ArrayList<>(reviews.values());
+        Collections.sort(ranked, (a, b) -> {
+            int byMatches = Integer.compare(matches.get(b.getId()), matches.get(a.getId()));
+            if (byMatches != 0) return byMatches;
+            int byDate = compareDates(b.getCreatedAt(), a.getCreatedAt());
+            return byDate != 0 ? byDate : a.getId().compareTo(b.getId());
+        });
+        return ranked;
+    }
+
+    private static int compareDates(Date a, Date b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        return a.compareTo(b);
+    }
+}
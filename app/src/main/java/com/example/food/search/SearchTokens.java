@@ -0,0 +1,100 @@
+package com.example.food.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Normalized words stored on each review card as searchTokens, so search can ask Firestore for
+ * matching cards with array-contains-any instead of downloading every review.
+ *
+ * Text is lowercased and stripped of accents, then split on anything that is not a letter or
+ * digit. Every word is stored along with its prefixes from MIN_PREFIX characters, which lets a
+ * half-typed query word like "ram" find "ramen".
+ */
+public final class SearchTokens {
+    public static final String FIELD = "searchTokens";
+    /** Firestore rejects array-contains-any with more values than this */
+    public static final int MAX_QUERY_TOKENS = 10;
+    private static final int MIN_WORD = 2;
+    private static final int MIN_PREFIX = 3;
+    private static final int MAX_WORD = 20;
+    private static final int MAX_TOKENS = 150;
+
+    private SearchTokens() {
+    }
+
+    /**
+     * Tokens to store for a review's searchable fields. Null fields are skipped.
+     */
+    public static List<String> forFields(String... fields) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String field : fields) {
+            for (String word : words(field)) {
+                for (int length = MIN_PREFIX; length < word.length(); length++) {
+                    if (tokens.size() >= MAX_TOKENS) break;
+                    tokens.add(word.substring(0, length));
+                }
+                if (tokens.size() >= MAX_TOKENS) break;
+                tokens.add(word);
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * Distinct words of a query, at most MAX_QUERY_TOKENS of them
+     */
+    public static List<String> forQuery(String query) {
+        Set<String> tokens = new LinkedHashSet<>(words(query));
+        List<String> result = new ArrayList<>(tokens);
+        return result.size() > MAX_QUERY_TOKENS ? new ArrayList<>(result.subList(0, MAX_QUERY_TOKENS)) : result;
+    }
+
+    /**
+     * How many of the query tokens a stored token list contains
+     */
+    public static int countMatches(List<String> queryTokens, Collection<?> storedTokens) {
+        if (storedTokens == null) {
+            return 0;
+        }
+        int matched = 0;
+        for (String token : queryTokens) {
+            if (storedTokens.contains(token)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * Lowercased, accent-free words of the text, the unit both searchTokens and ReviewRanker work in
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return words;
+        }
+        String normalized = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "");
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= normalized.length(); i++) {
+            char c = i < normalized.length() ? normalized.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (word.length() < MAX_WORD) {
+                    word.append(c);
+                }
+            } else if (word.length() > 0) {
+                if (word.length() >= MIN_WORD) {
+                    words.add(word.toString());
+                }
+                word.setLength(0);
+            }
+        }
+        return words;
+    }
+}
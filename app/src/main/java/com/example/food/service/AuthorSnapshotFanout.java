@@ -0,0 +1,155 @@
+package com.example.food.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.food.cache.QueryCache;
+import com.example.food.data.ReviewCard;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites the author snapshot (authorName, authorAvatarUrl, authorAvatarVersion) on a user's
+ * reviews and review cards after they change their name or avatar.
+ * The job is remembered in SharedPreferences until it finishes, so an interrupted run is
+ * picked up again by resumePending on the next start.
+ */
+public class AuthorSnapshotFanout {
+    private static final String TAG = "AuthorSnapshotFanout";
+    private static final String PREFS_NAME = "author_snapshot";
+    private static final String KEY_PENDING_UID = "pending_uid";
+    // Each review is two writes (review + card), a batch allows 500
+    private static final int BATCH_SIZE = 200;
+
+    private static boolean running;
+    private static boolean rerunRequested; // Profile changed again while a run was in flight
+
+    /**
+     * Start a fan-out for the user, call after their users document has been updated
+     */
+    public static void schedule(Context context, String uid) {
+        SharedPreferences prefs = prefs(context);
+        prefs.edit().putString(KEY_PENDING_UID, uid).apply();
+        start(prefs, uid);
+    }
+
+    /**
+     * Continue a fan-out that did not finish in an earlier session
+     */
+    public static void resumePending(Context context) {
+        SharedPreferences prefs = prefs(context);
+        String uid = prefs.getString(KEY_PENDING_UID, null);
+        if (uid != null) {
+            start(prefs, uid);
+        }
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static synchronized void start(SharedPreferences prefs, String uid) {
+        if (running) {
+            rerunRequested = true;
+            return;
+        }
+        running = true;
+
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        // Read the profile when the job runs so a second quick edit is never overwritten by the first
+        db.collection("users").document(uid)
+                .get()
+                .addOnSuccessListener(user -> {
+                    String name = user.getString("name");
+                    if (name == null || name.isEmpty()) {
+                        name = user.getString("username");
+                    }
+                    Long avatarVersion = user.getLong("avatarVersion");
+
+                    Map<String, Object> snapshot = new HashMap<>();
+                    snapshot.put("authorName", name);
+                    snapshot.put("authorAvatarUrl", user.getString("avatarUrl"));
+                    snapshot.put("authorAvatarVersion", avatarVersion != null ? avatarVersion : 0L);
+                    // Bumped so watermark refreshes pick up the new name and avatar
+                    snapshot.put("updatedAt", FieldValue.serverTimestamp());
+                    rewritePage(db, prefs, uid, snapshot, null);
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Could not read profile for fan-out", e);
+                    finish(prefs, uid, false);
+                });
+    }
+
+    private static void rewritePage(FirebaseFirestore db, SharedPreferences prefs, String uid,
+                                    Map<String, Object> snapshot, DocumentSnapshot startAfter) {
+        Query query = db.collection("reviews")
+                .whereEqualTo("userId", uid)
+                .orderBy(FieldPath.documentId())
+                .limit(BATCH_SIZE);
+        if (startAfter != null) {
+            query = query.startAfter(startAfter);
+        }
+
+        query.get()
+                .addOnSuccessListener(result -> {
+                    List<DocumentSnapshot> documents = result.getDocuments();
+                    if (documents.isEmpty()) {
+                        finish(prefs, uid, true);
+                        return;
+                    }
+
+                    WriteBatch batch = db.batch();
+                    for (DocumentSnapshot document : documents) {
+                        batch.update(document.getReference(), snapshot);
+                        // Write the whole card in case the backfill has not reached this review yet
+                        Map<String, Object> reviewData = document.getData();
+                        if (reviewData != null) {
+                            Map<String, Object> cardData = ReviewCard.fromReviewData(reviewData);
+                            cardData.putAll(snapshot);
+                            batch.set(db.collection(ReviewService.COLLECTION_REVIEW_CARDS).document(document.getId()),
+                                    cardData, SetOptions.merge());
+                        }
+                    }
+                    batch.commit()
+                            .addOnSuccessListener(aVoid -> {
+                                Log.d(TAG, "Updated author snapshot on " + documents.size() + " reviews");
+                                // Bulk rewrite, cheaper to drop the cached review queries than to match each one
+                                QueryCache.getInstance().invalidateCollection("reviews");
+                                QueryCache.getInstance().invalidateCollection(ReviewService.COLLECTION_REVIEW_CARDS);
+                                if (documents.size() < BATCH_SIZE) {
+                                    finish(prefs, uid, true);
+                                } else {
+                                    rewritePage(db, prefs, uid, snapshot, documents.get(documents.size() - 1));
+                                }
+                            })
+                            .addOnFailureListener(e -> {
+                                Log.e(TAG, "Error writing author snapshots", e);
+                                finish(prefs, uid, false);
+                            });
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error reading reviews for fan-out", e);
+                    finish(prefs, uid, false);
+                });
+    }
+
+    private static synchronized void finish(SharedPreferences prefs, String uid, boolean done) {
+        running = false;
+        if (rerunRequested) {
+            rerunRequested = false;
+            start(prefs, prefs.getString(KEY_PENDING_UID, uid));
+        } else if (done && uid.equals(prefs.getString(KEY_PENDING_UID, null))) {
+            prefs.edit().remove(KEY_PENDING_UID).apply();
+        }
+    }
+}
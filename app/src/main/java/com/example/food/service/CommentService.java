@@ -0,0 +1,214 @@
+package com.example.food.service;
+
+import android.util.Log;
+
+import com.example.food.cache.QueryCache;
+import com.example.food.data.Comment;
+import com.example.food.data.Review;
+import com.example.food.utils.BackgroundDecoder;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service for review comments stored in the reviews/{id}/comments subcollection.
+ * The review document only keeps commentCount and lastCommentAt, so reading a
+ * review no longer pays for its comments.
+ */
+public class CommentService {
+    private static final String TAG = "CommentService";
+    private static final String COLLECTION_REVIEWS = "reviews";
+    public static final String COLLECTION_COMMENTS = "comments";
+    public static final int COMMENT_PAGE_SIZE = 20;
+    private static final int DELETE_BATCH_SIZE = 100;
+
+    private FirebaseFirestore db;
+    private final QueryCache queryCache = QueryCache.getInstance();
+
+    public CommentService() {
+        db = FirebaseFirestore.getInstance();
+    }
+
+    public interface CommentPageCallback {
+        void onSuccess(CommentPage page);
+        void onError(Exception e);
+    }
+
+    public interface CommentSaveCallback {
+        void onSuccess(Comment comment);
+        void onError(Exception e);
+    }
+
+    /**
+     * One page of comments plus the cursor for the next one
+     */
+    public static class CommentPage {
+        private final List<Comment> comments;
+        private final DocumentSnapshot lastDocument;
+        private final boolean hasMore;
+
+        public CommentPage(List<Comment> comments, DocumentSnapshot lastDocument, boolean hasMore) {
+            this.comments = comments;
+            this.lastDocument = lastDocument;
+            this.hasMore = hasMore;
+        }
+
+        public List<Comment> getComments() { return comments; }
+        public DocumentSnapshot getLastDocument() { return lastDocument; }
+        public boolean hasMore() { return hasMore; }
+    }
+
+    private CollectionReference commentsRef(String reviewId) {
+        return db.collection(COLLECTION_REVIEWS).document(reviewId).collection(COLLECTION_COMMENTS);
+    }
+
+    /**
+     * Load one page of comments newest first, pass null to start from the top
+     */
+    public void loadComments(String reviewId, DocumentSnapshot startAfter, CommentPageCallback callback) {
+        QueryCache.Key key = QueryCache.Key.of(QueryCache.QueryClass.COMMENTS, COLLECTION_COMMENTS)
+                .whereEqualTo("reviewId", reviewId)
+                .orderBy("createdAt", true)
+                .limit(COMMENT_PAGE_SIZE)
+                .startAfter(startAfter != null ? startAfter.getId() : null);
+        CommentPage cached = queryCache.get(key);
+        if (cached != null) {
+            BackgroundDecoder.postToMain(() -> callback.onSuccess(cached));
+            return;
+        }
+
+        Query query = commentsRef(reviewId).orderBy("createdAt", Query.Direction.DESCENDING);
+        if (startAfter != null) {
+            query = query.startAfter(startAfter);
+        }
+        query.limit(COMMENT_PAGE_SIZE)
+                .get()
+                .addOnCompleteListener(task -> {
+                    if (task.isSuccessful()) {
+                        List<Comment> comments = new ArrayList<>();
+                        List<String> ids = new ArrayList<>();
+                        List<DocumentSnapshot> documents = task.getResult().getDocuments();
+                        for (DocumentSnapshot document : documents) {
+                            try {
+                                Comment comment = document.toObject(Comment.class);
+                                comment.setId(document.getId());
+                                comments.add(comment);
+                                ids.add(document.getId());
+                            } catch (Exception e) {
+                                Log.w(TAG, "Error parsing comment: " + document.getId(), e);
+                            }
+                        }
+                        DocumentSnapshot lastDocument = documents.isEmpty() ? startAfter : documents.get(documents.size() - 1);
+                        boolean hasMore = documents.size() == COMMENT_PAGE_SIZE;
+                        CommentPage page = new CommentPage(comments, lastDocument, hasMore);
+                        queryCache.put(key, page, ids);
+                        callback.onSuccess(page);
+                        Log.d(TAG, "Loaded page of " + comments.size() + " comments for review: " + reviewId);
+                    } else {
+                        Log.w(TAG, "Error getting comments for review: " + reviewId, task.getException());
+                        callback.onError(task.getException());
+                    }
+                });
+    }
+
+    /**
+     * Add a comment and bump the review's commentCount/lastCommentAt in the same batch
+     */
+    public void addComment(Review review, String userId, String userName, String text, CommentSaveCallback callback) {
+        DocumentReference reviewRef = db.collection(COLLECTION_REVIEWS).document(review.getId());
+        DocumentReference commentRef = commentsRef(review.getId()).document();
+        Timestamp now = Timestamp.now();
+
+        Map<String, Object> commentData = new HashMap<>();
+        commentData.put("userId", userId);
+        commentData.put("userName", userName);
+        commentData.put("text", text);
+        commentData.put("createdAt", now);
+        // Lets the author's activity feed find comments with one collection group query
+        commentData.put("reviewId", review.getId());
+        commentData.put("reviewAuthorId", review.getUserId());
+
+        Map<String, Object> reviewUpdates = new HashMap<>();
+        reviewUpdates.put("commentCount", FieldValue.increment(1));
+        reviewUpdates.put("lastCommentAt", now);
+        reviewUpdates.put("updatedAt", FieldValue.serverTimestamp());
+
+        WriteBatch batch = db.batch();
+        batch.set(commentRef, commentData);
+        batch.update(reviewRef, reviewUpdates);
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    Log.d(TAG, "Comment added to review: " + review.getId());
+                    queryCache.invalidateWrite(COLLECTION_COMMENTS, commentRef.getId(), commentData);
+                    queryCache.invalidateWrite(COLLECTION_REVIEWS, review.getId(), null);
+                    callback.onSuccess(new Comment(commentRef.getId(), userId, userName, text, now.toDate()));
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error adding comment", e);
+                    callback.onError(e);
+                });
+    }
+
+    /**
+     * Comments received on the author's reviews since the given time, newest first
+     * Needs the collection group index comments(reviewAuthorId ASC, createdAt DESC)
+     */
+    public Query receivedCommentsQuery(String reviewAuthorId, Date since) {
+        return db.collectionGroup(COLLECTION_COMMENTS)
+                .whereEqualTo("reviewAuthorId", reviewAuthorId)
+                .whereGreaterThan("createdAt", since)
+                .orderBy("createdAt", Query.Direction.DESCENDING);
+    }
+
+    /**
+     * Delete a deleted review's comments subcollection, DELETE_BATCH_SIZE at a time.
+     * Otherwise they would keep matching receivedCommentsQuery. Failures are only logged.
+     */
+    public void deleteComments(String reviewId) {
+        CollectionReference commentsRef = db.collection(COLLECTION_REVIEWS).document(reviewId).collection(COLLECTION_COMMENTS);
+        commentsRef.limit(DELETE_BATCH_SIZE)
+                .get()
+                .addOnSuccessListener(snapshot -> {
+                    if (snapshot.isEmpty()) return;
+                    WriteBatch batch = db.batch();
+                    for (DocumentSnapshot document : snapshot.getDocuments()) {
+                        batch.delete(document.getReference());
+                    }
+                    batch.commit()
+                            .addOnSuccessListener(aVoid -> {
+                                for (DocumentSnapshot document : snapshot.getDocuments()) {
+                                    queryCache.invalidateWrite(COLLECTION_COMMENTS, document.getId(), document.getData());
+                                }
+                                if (snapshot.size() == DELETE_BATCH_SIZE) {
+                                    deleteComments(reviewId);
+                                }
+                            })
+                            .addOnFailureListener(e -> Log.w(TAG, "Error deleting comments of review: " + reviewId, e));
+                })
+                .addOnFailureListener(e -> Log.w(TAG, "Error reading comments of deleted review: " + reviewId, e));
+    }
+
+    /**
+     * Comments written before the subcollection existed, still stored in the review's array
+     */
+    public static List<Comment> getLegacyComments(Review review) {
+        List<Comment> comments = new ArrayList<>();
+        if (review.getComments() != null) {
+            comments.addAll(review.getComments());
+        }
+        comments.sort(Comparator.comparing(Comment::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder())));
+        return comments;
+    }
+}
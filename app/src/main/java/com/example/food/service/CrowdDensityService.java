@@ -2,7 +2,9 @@ package com.example.food.service;
 
 import android.util.Log;
 
+import com.example.food.cache.QueryCache;
 import com.example.food.data.CrowdFeedback;
+import com.example.food.utils.BackgroundDecoder;
 import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -10,6 +12,7 @@ import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,6 +23,7 @@ public class CrowdDensityService {
     
     private FirebaseFirestore db;
     private CollectionReference crowdFeedbackRef;
+    private final QueryCache queryCache = QueryCache.getInstance();
 
     public CrowdDensityService() {
         db = FirebaseFirestore.getInstance();
@@ -67,6 +71,14 @@ public class CrowdDensityService {
      * Calculate crowd density for a restaurant based on recent feedback
      */
     public void calculateCrowdDensity(String restaurantId, CrowdDensityCallback callback) {
+        QueryCache.Key key = QueryCache.Key.of(QueryCache.QueryClass.CROWD_DENSITY, COLLECTION_CROWD_FEEDBACK)
+                .whereEqualTo("restaurantId", restaurantId);
+        CrowdDensityResult cached = queryCache.get(key);
+        if (cached != null) {
+            BackgroundDecoder.postToMain(() -> callback.onSuccess(cached));
+            return;
+        }
+
         // Get feedback from the last 60 minutes
         Timestamp oneHourAgo = new Timestamp(new java.util.Date(System.currentTimeMillis() - 60 * 60 * 1000));
         
@@ -109,6 +121,7 @@ public class CrowdDensityService {
                         0, "No Recent Data", "Be the first to share crowd status!", 
                         android.R.color.darker_gray, 0, false
                     );
+                    queryCache.put(key, result, Collections.emptyList());
                     callback.onSuccess(result);
                     return;
                 }
@@ -127,6 +140,7 @@ public class CrowdDensityService {
                 int crowdingLevel = mapScoreToLevel(averageScore);
                 
                 CrowdDensityResult result = createCrowdDensityResult(crowdingLevel, recentFeedbacks.size());
+                queryCache.put(key, result, Collections.emptyList());
                 callback.onSuccess(result);
                 
                 Log.d(TAG, "Calculated crowd density for restaurant " + restaurantId + 
@@ -182,6 +196,8 @@ public class CrowdDensityService {
                 crowdFeedbackRef.add(feedback)
                     .addOnSuccessListener(documentReference -> {
                         Log.d(TAG, "Feedback submitted successfully: " + documentReference.getId());
+                        queryCache.invalidateWrite(COLLECTION_CROWD_FEEDBACK, documentReference.getId(),
+                                Collections.singletonMap("restaurantId", restaurantId));
                         callback.onSuccess();
                     })
                     .addOnFailureListener(e -> {
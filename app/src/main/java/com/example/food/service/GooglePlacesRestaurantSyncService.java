@@ -8,6 +8,7 @@ import android.text.TextUtils;
 import android.util.Log;
 import androidx.annotation.NonNull;
 import com.example.food.Config;
+import com.example.food.model.Restaurant;
 import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -63,10 +64,12 @@ public class GooglePlacesRestaurantSyncService {
     public static class SyncSummary {
         private final int processedCount;
         private final int newCount;
+        private final List<Restaurant> newRestaurants;
 
-        public SyncSummary(int processedCount, int newCount) {
+        public SyncSummary(int processedCount, int newCount, List<Restaurant> newRestaurants) {
             this.processedCount = processedCount;
             this.newCount = newCount;
+            this.newRestaurants = newRestaurants;
         }
 
         public int getProcessedCount() {
@@ -76,6 +79,13 @@ public class GooglePlacesRestaurantSyncService {
         public int getNewCount() {
             return newCount;
         }
+
+        /**
+         * Restaurants written by this sync, so callers can update the catalog without a full reload
+         */
+        public List<Restaurant> getNewRestaurants() {
+            return newRestaurants;
+        }
     }
 
     public void syncRestaurants(@NonNull String regionName, @NonNull String placeType,
@@ -102,6 +112,7 @@ public class GooglePlacesRestaurantSyncService {
 
                 int newCount = 0;
                 int limit = 0;
+                List<Restaurant> newRestaurants = new ArrayList<>();
 
                 // add new restaurants only
                 for (PlacePayload place : places) {
@@ -120,11 +131,13 @@ public class GooglePlacesRestaurantSyncService {
 
                     Tasks.await(firestore.collection("restaurants").document(place.placeId).set(data, SetOptions.merge()));
                     existingKeys.add(key);
+                    newRestaurants.add(new Restaurant(place.placeId, place.name, place.address,
+                            place.latitude, place.longitude, place.category, regionName));
                     newCount++;
                     limit++;
                 }
 
-                postSuccess(callback, new SyncSummary(limit, newCount));
+                postSuccess(callback, new SyncSummary(limit, newCount, newRestaurants));
             } catch (Exception e) {
                 if (e instanceof InterruptedException) Thread.currentThread().interrupt();
                 Log.e(TAG, "Sync failed", e);
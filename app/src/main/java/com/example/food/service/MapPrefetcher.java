@@ -0,0 +1,194 @@
+package com.example.food.service;
+
+import android.util.Log;
+
+import com.example.food.data.RestaurantStats;
+import com.example.food.data.Review;
+import com.example.food.model.Restaurant;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Warms the data behind the restaurant bottom sheet while the map is idle.
+ * When the camera settles, restaurants in the viewport are ranked by distance to the center
+ * and by how many reviews they have, and the best few get their stats, latest review cards
+ * and authors loaded one after another. Everything lands in QueryCache and UserDirectory, so
+ * the sheet opened by a marker tap is served from memory.
+ * Reads are limited by a token bucket refilled at readsPerMinute, a camera move drops
+ * whatever is still queued from the previous position.
+ */
+public class MapPrefetcher {
+    private static final String TAG = "MapPrefetcher";
+    public static final int DEFAULT_READS_PER_MINUTE = 30;
+    private static final int MAX_CANDIDATES = 5;
+    private static final long REWARM_INTERVAL = 60 * 1000; // Stats cache TTL, warmer entries are still cached
+
+    private final ReviewService reviewService;
+    private final RestaurantStatsService statsService;
+    private final UserDirectory userDirectory = UserDirectory.getInstance();
+
+    // Review counts seen in stats, unknown restaurants rank on distance alone
+    private final Map<String, Integer> reviewCounts = new HashMap<>();
+    private final Map<String, Long> warmedAt = new HashMap<>();
+
+    private int readsPerMinute = DEFAULT_READS_PER_MINUTE;
+    private double tokens = DEFAULT_READS_PER_MINUTE;
+    private long lastRefill = System.currentTimeMillis();
+    private int generation;
+    private int prefetchedCount;
+
+    public MapPrefetcher(ReviewService reviewService, RestaurantStatsService statsService) {
+        this.reviewService = reviewService;
+        this.statsService = statsService;
+    }
+
+    public void setReadsPerMinute(int readsPerMinute) {
+        this.readsPerMinute = Math.max(0, readsPerMinute);
+        tokens = Math.min(tokens, this.readsPerMinute);
+    }
+
+    /**
+     * Call from OnCameraIdleListener with the visible bounds and the camera target
+     */
+    public void onCameraIdle(LatLngBounds bounds, LatLng center, List<Restaurant> restaurants) {
+        int current = ++generation;
+        List<Restaurant> candidates = rank(bounds, center, restaurants);
+        if (!candidates.isEmpty()) {
+            warmNext(candidates, 0, current);
+        }
+    }
+
+    /**
+     * Drop queued work, e.g. when the map leaves the screen
+     */
+    public void stop() {
+        generation++;
+    }
+
+    public int getPrefetchedCount() {
+        return prefetchedCount;
+    }
+
+    private List<Restaurant> rank(LatLngBounds bounds, LatLng center, List<Restaurant> restaurants) {
+        // Half the viewport diagonal, distances are scaled by it so scores do not depend on zoom
+        double radius = Math.max(distance(center, bounds.northeast), distance(center, bounds.southwest));
+        if (radius <= 0) {
+            return Collections.emptyList();
+        }
+
+        long now = System.currentTimeMillis();
+        List<Restaurant> inView = new ArrayList<>();
+        Map<String, Double> scores = new HashMap<>();
+        for (Restaurant restaurant : restaurants) {
+            if (restaurant.getId() == null) continue;
+            LatLng position = new LatLng(restaurant.getLatitude(), restaurant.getLongitude());
+            if (!bounds.contains(position)) continue;
+            Long warmed = warmedAt.get(restaurant.getId());
+            if (warmed != null && now - warmed < REWARM_INTERVAL) continue;
+
+            double proximity = 1 - Math.min(1, distance(center, position) / radius);
+            Integer count = reviewCounts.get(restaurant.getId());
+            double popularity = 1 + Math.log1p(count != null ? count : 0);
+            scores.put(restaurant.getId(), proximity * popularity);
+            inView.add(restaurant);
+        }
+
+        Collections.sort(inView, (a, b) -> Double.compare(scores.get(b.getId()), scores.get(a.getId())));
+        return inView.size() > MAX_CANDIDATES ? new ArrayList<>(inView.subList(0, MAX_CANDIDATES)) : inView;
+    }
+
+    private void warmNext(List<Restaurant> candidates, int index, int current) {
+        if (current != generation || index >= candidates.size()) return;
+        String restaurantId = candidates.get(index).getId();
+        // One read for the stats document, the rest is paid for once the ids are known
+        if (!take(1)) return;
+
+        // Building missing stats reads every card of the restaurant, that is left to a marker tap
+        statsService.getBuiltStats(restaurantId, new RestaurantStatsService.StatsCallback() {
+            @Override
+            public void onSuccess(RestaurantStats stats) {
+                warmedAt.put(restaurantId, System.currentTimeMillis());
+                if (stats == null) {
+                    warmNext(candidates, index + 1, current);
+                    return;
+                }
+                reviewCounts.put(restaurantId, stats.getReviewCount());
+                warmReviews(stats.getLatestReviewIds(), () -> warmNext(candidates, index + 1, current), current);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Prefetch of stats failed for " + restaurantId, e);
+                warmNext(candidates, index + 1, current);
+            }
+        });
+    }
+
+    private void warmReviews(List<String> reviewIds, Runnable next, int current) {
+        if (current != generation || reviewIds == null || reviewIds.isEmpty()) {
+            next.run();
+            return;
+        }
+        List<String> ids = reviewIds.size() > RestaurantStatsService.LATEST_LIMIT
+                ? reviewIds.subList(0, RestaurantStatsService.LATEST_LIMIT) : reviewIds;
+        if (!take(ids.size())) return;
+
+        // Same ids as the bottom sheet asks for, so it hits the same cache entry
+        reviewService.getReviewCards(ids, new ReviewService.ReviewsLoadCallback() {
+            @Override
+            public void onSuccess(List<Review> reviews) {
+                prefetchedCount++;
+                warmAuthors(reviews, current);
+                next.run();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Prefetch of review cards failed", e);
+                next.run();
+            }
+        });
+    }
+
+    private void warmAuthors(List<Review> reviews, int current) {
+        Set<String> userIds = new HashSet<>();
+        for (Review review : reviews) {
+            if (review.getUserId() != null && !review.hasAuthorSnapshot()
+                    && userDirectory.getCachedUser(review.getUserId()) == null) {
+                userIds.add(review.getUserId());
+            }
+        }
+        if (userIds.isEmpty() || current != generation || !take(userIds.size())) return;
+        userDirectory.getUsers(userIds, users -> { });
+    }
+
+    /**
+     * Spend reads from the bucket, false leaves the bucket untouched
+     */
+    private boolean take(int reads) {
+        long now = System.currentTimeMillis();
+        tokens = Math.min(readsPerMinute, tokens + (now - lastRefill) * readsPerMinute / 60000.0);
+        lastRefill = now;
+        if (tokens < reads) {
+            Log.d(TAG, "Read budget spent, prefetched " + prefetchedCount + " restaurants so far");
+            return false;
+        }
+        tokens -= reads;
+        return true;
+    }
+
+    // Equirectangular approximation, plenty for ranking within one screen
+    private static double distance(LatLng a, LatLng b) {
+        double x = Math.toRadians(b.longitude - a.longitude) * Math.cos(Math.toRadians((a.latitude + b.latitude) / 2));
+        double y = Math.toRadians(b.latitude - a.latitude);
+        return Math.sqrt(x * x + y * y);
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.food.service;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.food.data.RestaurantCatalog;
+import com.example.food.data.RestaurantCodec;
+import com.example.food.model.Restaurant;
+import com.example.food.search.RestaurantNameIndex;
+import com.example.food.utils.BackgroundDecoder;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * App-wide restaurant catalog.
+ * The whole restaurants collection is loaded once with a single query, indexed by
+ * document id and then served from memory. A stale catalog is refreshed in the background.
+ * Once a catalog file is attached the last loaded copy is kept on disk as a RestaurantCatalog
+ * and read at startup, so markers and search do not wait for Firestore.
+ */
+public class RestaurantRepository {
+    private static final String TAG = "RestaurantRepository";
+    private static final String COLLECTION_RESTAURANTS = "restaurants";
+    private static final long REFRESH_INTERVAL = 30 * 60 * 1000; // 30 minutes
+    private static final String CATALOG_FILE = "restaurant_catalog.bin";
+
+    private static RestaurantRepository instance;
+
+    private final FirebaseFirestore db;
+    private final Map<String, Restaurant> restaurantsById = new ConcurrentHashMap<>();
+    private final List<OnCatalogReadyListener> pendingListeners = new ArrayList<>();
+    private boolean loaded;
+    private boolean loading;
+    private long lastLoadedAt;
+    private File catalogFile;
+    private RestaurantNameIndex nameIndex; // Built on first use, dropped whenever the catalog changes
+    // Single writer so two saves never share the temp file
+    private final ExecutorService catalogWriter = Executors.newSingleThreadExecutor();
+
+    public interface OnCatalogReadyListener {
+        void onCatalogReady();
+    }
+
+    private RestaurantRepository() {
+        db = FirebaseFirestore.getInstance();
+    }
+
+    public static synchronized RestaurantRepository getInstance() {
+        if (instance == null) {
+            instance = new RestaurantRepository();
+        }
+        return instance;
+    }
+
+    /**
+     * Use the catalog file in the app's files dir and start reading it in the background.
+     * Call once at startup, without it the catalog only ever comes from Firestore.
+     */
+    public void attachCatalogFile(Context context) {
+        if (catalogFile != null) {
+            return;
+        }
+        catalogFile = new File(context.getApplicationContext().getFilesDir(), CATALOG_FILE);
+        if (!catalogFile.exists() || loaded || loading) {
+            return;
+        }
+        loading = true;
+
+        File file = catalogFile;
+        BackgroundDecoder.executor().execute(() -> {
+            Map<String, Restaurant> fromDisk = null;
+            long builtAt = 0;
+            try {
+                RestaurantCatalog catalog = RestaurantCatalog.read(file);
+                fromDisk = new HashMap<>();
+                for (Restaurant restaurant : catalog.getRestaurants()) {
+                    fromDisk.put(restaurant.getId(), restaurant);
+                }
+                builtAt = catalog.getBuiltAt();
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Could not read restaurant catalog file", e);
+                file.delete();
+            }
+
+            Map<String, Restaurant> restaurants = fromDisk;
+            long catalogBuiltAt = builtAt;
+            BackgroundDecoder.postToMain(() -> {
+                loading = false;
+                if (restaurants == null || loaded) {
+                    // Nothing usable on disk, anyone already waiting gets the network load
+                    if (!pendingListeners.isEmpty()) {
+                        refresh();
+                    }
+                    return;
+                }
+                restaurantsById.putAll(restaurants);
+                invalidateNameIndex();
+                loaded = true;
+                lastLoadedAt = catalogBuiltAt;
+                Log.d(TAG, "Read " + restaurants.size() + " restaurants from catalog file");
+                finishLoading();
+                if (System.currentTimeMillis() - lastLoadedAt > REFRESH_INTERVAL) {
+                    refresh();
+                }
+            });
+        });
+    }
+
+    /**
+     * Run the listener once the catalog is in memory.
+     * If it is already loaded the listener runs straight away and a stale catalog
+     * is refreshed in the background.
+     */
+    public void whenReady(OnCatalogReadyListener listener) {
+        if (loaded) {
+            listener.onCatalogReady();
+            if (System.currentTimeMillis() - lastLoadedAt > REFRESH_INTERVAL) {
+                refresh();
+            }
+            return;
+        }
+        pendingListeners.add(listener);
+        refresh();
+    }
+
+    /**
+     * Reload the catalog and run the listener once the fresh copy is in memory
+     */
+    public void refresh(OnCatalogReadyListener listener) {
+        pendingListeners.add(listener);
+        refresh();
+    }
+
+    /**
+     * Reload the catalog from Firestore, e.g. after new restaurants were synced
+     */
+    public void refresh() {
+        if (loading) {
+            return;
+        }
+        loading = true;
+
+        db.collection(COLLECTION_RESTAURANTS)
+                .get()
+                .addOnSuccessListener(BackgroundDecoder.executor(), queryDocumentSnapshots -> {
+                    // Decode the whole catalog off the main thread, then swap it in with one post
+                    Map<String, Restaurant> fresh = new HashMap<>();
+                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
+                        try {
+                            fresh.put(document.getId(), RestaurantCodec.decode(document.getId(), document.getData()));
+                        } catch (Exception e) {
+                            Log.w(TAG, "Error parsing restaurant: " + document.getId(), e);
+                        }
+                    }
+                    BackgroundDecoder.postToMain(() -> {
+                        restaurantsById.keySet().retainAll(fresh.keySet());
+                        restaurantsById.putAll(fresh);
+                        invalidateNameIndex();
+                        loaded = true;
+                        lastLoadedAt = System.currentTimeMillis();
+                        Log.d(TAG, "Loaded " + fresh.size() + " restaurants");
+                        saveCatalogFile();
+                        finishLoading();
+                    });
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error loading restaurant catalog", e);
+                    finishLoading();
+                });
+    }
+
+    /**
+     * Add restaurants created on this device, e.g. by the Places sync, without reloading the collection
+     */
+    public void addRestaurants(List<Restaurant> restaurants) {
+        if (restaurants.isEmpty()) {
+            return;
+        }
+        for (Restaurant restaurant : restaurants) {
+            if (restaurant.getId() != null) {
+                restaurantsById.put(restaurant.getId(), restaurant);
+            }
+        }
+        invalidateNameIndex();
+        saveCatalogFile();
+    }
+
+    /**
+     * Write the in-memory catalog to the catalog file in the background
+     */
+    private void saveCatalogFile() {
+        if (catalogFile == null) {
+            return;
+        }
+        File file = catalogFile;
+        List<Restaurant> snapshot = getAllRestaurants();
+        long builtAt = lastLoadedAt;
+        catalogWriter.execute(() -> {
+            try {
+                RestaurantCatalog.write(file, snapshot, builtAt);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not write restaurant catalog file", e);
+            }
+        });
+    }
+
+    private void finishLoading() {
+        loading = false;
+        // Callers still render with whatever is in memory when the load fails
+        List<OnCatalogReadyListener> listeners = new ArrayList<>(pendingListeners);
+        pendingListeners.clear();
+        for (OnCatalogReadyListener listener : listeners) {
+            listener.onCatalogReady();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public Restaurant getRestaurant(String restaurantId) {
+        if (restaurantId == null) {
+            return null;
+        }
+        return restaurantsById.get(restaurantId);
+    }
+
+    /**
+     * Look up several restaurants at once, ids that are not in the catalog are skipped
+     */
+    public Map<String, Restaurant> getRestaurants(Collection<String> restaurantIds) {
+        Map<String, Restaurant> result = new HashMap<>();
+        for (String restaurantId : restaurantIds) {
+            Restaurant restaurant = getRestaurant(restaurantId);
+            if (restaurant != null) {
+                result.put(restaurantId, restaurant);
+            }
+        }
+        return result;
+    }
+
+    public List<Restaurant> getAllRestaurants() {
+        return new ArrayList<>(restaurantsById.values());
+    }
+
+    /**
+     * Name index for autocomplete over the current catalog. Building it walks the whole catalog,
+     * so call this off the main thread, e.g. from a Filter.
+     */
+    public synchronized RestaurantNameIndex getNameIndex() {
+        if (nameIndex == null) {
+            long start = System.currentTimeMillis();
+            nameIndex = new RestaurantNameIndex(restaurantsById.values());
+            Log.d(TAG, "Indexed " + nameIndex.size() + " restaurant names in " + (System.currentTimeMillis() - start) + "ms");
+        }
+        return nameIndex;
+    }
+
+    private synchronized void invalidateNameIndex() {
+        nameIndex = null;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.food.service;
+
+import android.util.Log;
+
+import com.example.food.cache.QueryCache;
+import com.example.food.data.RestaurantStats;
+import com.example.food.data.Review;
+import com.example.food.utils.BackgroundDecoder;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the restaurantStats aggregate documents.
+ * A missing document is rebuilt from the restaurant's review cards the first time it is
+ * read, after that review save, delete and vote keep it current in the same transaction as
+ * the review write.
+ */
+public class RestaurantStatsService {
+    private static final String TAG = "RestaurantStatsService";
+    public static final String COLLECTION_RESTAURANT_STATS = "restaurantStats";
+    public static final int LATEST_LIMIT = 10;
+
+    private FirebaseFirestore db;
+    private final QueryCache queryCache = QueryCache.getInstance();
+
+    public RestaurantStatsService() {
+        db = FirebaseFirestore.getInstance();
+    }
+
+    public interface StatsCallback {
+        void onSuccess(RestaurantStats stats);
+        void onError(Exception e);
+    }
+
+    public DocumentReference statsRef(String restaurantId) {
+        return db.collection(COLLECTION_RESTAURANT_STATS).document(restaurantId);
+    }
+
+    /**
+     * Read the aggregate for a restaurant, building it first if it does not exist yet
+     */
+    public void getStats(String restaurantId, StatsCallback callback) {
+        getStats(restaurantId, true, callback);
+    }
+
+    /**
+     * Read the aggregate only if it was already built, always a single read.
+     * A restaurant without a stats document gets onSuccess(null), e.g. for prefetching.
+     */
+    public void getBuiltStats(String restaurantId, StatsCallback callback) {
+        getStats(restaurantId, false, callback);
+    }
+
+    private void getStats(String restaurantId, boolean rebuildIfMissing, StatsCallback callback) {
+        QueryCache.Key key = statsKey(restaurantId);
+        RestaurantStats cached = queryCache.get(key);
+        if (cached != null) {
+            BackgroundDecoder.postToMain(() -> callback.onSuccess(cached));
+            return;
+        }
+
+        statsRef(restaurantId)
+                .get()
+                .addOnSuccessListener(document -> {
+                    RestaurantStats stats = document.exists() ? document.toObject(RestaurantStats.class) : null;
+                    if (stats != null) {
+                        queryCache.put(key, stats, Collections.singleton(restaurantId));
+                        callback.onSuccess(stats);
+                    } else if (rebuildIfMissing) {
+                        rebuildStats(restaurantId, callback);
+                    } else {
+                        callback.onSuccess(null);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Error getting stats for restaurant: " + restaurantId, e);
+                    callback.onError(e);
+                });
+    }
+
+    private QueryCache.Key statsKey(String restaurantId) {
+        return QueryCache.Key.document(QueryCache.QueryClass.RESTAURANT_STATS, COLLECTION_RESTAURANT_STATS, restaurantId);
+    }
+
+    /**
+     * Compute the aggregate from every review card of the restaurant and store it
+     */
+    private void rebuildStats(String restaurantId, StatsCallback callback) {
+        db.collection(ReviewService.COLLECTION_REVIEW_CARDS)
+                .whereEqualTo("restaurantId", restaurantId)
+                .get()
+                .addOnSuccessListener(snapshot -> {
+                    List<QueryDocumentSnapshot> cards = new ArrayList<>();
+                    for (QueryDocumentSnapshot document : snapshot) {
+                        cards.add(document);
+                    }
+                    cards.sort(Comparator.comparing((QueryDocumentSnapshot card) -> card.getDate("createdAt"),
+                            Comparator.nullsLast(Comparator.reverseOrder())));
+
+                    RestaurantStats stats = new RestaurantStats();
+                    double ratingSum = 0;
+                    double accuracySum = 0;
+                    List<String> latestIds = new ArrayList<>();
+                    for (QueryDocumentSnapshot card : cards) {
+                        Double rating = card.getDouble("rating");
+                        Double accuracy = card.getDouble("accuracyPercent");
+                        ratingSum += rating != null ? rating : 0;
+                        accuracySum += accuracy != null ? accuracy : 0;
+                        if (latestIds.size() < LATEST_LIMIT) {
+                            latestIds.add(card.getId());
+                        }
+                    }
+                    stats.setReviewCount(cards.size());
+                    stats.setRatingSum(ratingSum);
+                    stats.setAccuracySum(accuracySum);
+                    stats.setLatestReviewIds(latestIds);
+
+                    Map<String, Object> data = new HashMap<>();
+                    data.put("reviewCount", stats.getReviewCount());
+                    data.put("ratingSum", ratingSum);
+                    data.put("accuracySum", accuracySum);
+                    data.put("latestReviewIds", latestIds);
+                    data.put("updatedAt", FieldValue.serverTimestamp());
+                    statsRef(restaurantId).set(data)
+                            .addOnFailureListener(e -> Log.w(TAG, "Error storing stats for restaurant: " + restaurantId, e));
+
+                    queryCache.put(statsKey(restaurantId), stats, Collections.singleton(restaurantId));
+                    Log.d(TAG, "Rebuilt stats for restaurant: " + restaurantId + " from " + cards.size() + " cards");
+                    callback.onSuccess(stats);
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Error rebuilding stats for restaurant: " + restaurantId, e);
+                    callback.onError(e);
+                });
+    }
+
+    /**
+     * Count a newly saved review and put it at the front of the latest ids.
+     * Runs inside the transaction that writes the review, stats must have been read by it.
+     */
+    public void recordReviewAdded(Transaction transaction, DocumentSnapshot stats, String reviewId,
+                                  double rating, double accuracyPercent) {
+        RestaurantStats current = stats != null && stats.exists() ? stats.toObject(RestaurantStats.class) : null;
+        if (current == null) {
+            // Not built yet, the first read will include this review
+            return;
+        }
+        List<String> latestIds = new ArrayList<>(current.getLatestReviewIds());
+        latestIds.remove(reviewId);
+        latestIds.add(0, reviewId);
+        while (latestIds.size() > LATEST_LIMIT) {
+            latestIds.remove(latestIds.size() - 1);
+        }
+        transaction.update(stats.getReference(),
+                "reviewCount", current.getReviewCount() + 1,
+                "ratingSum", current.getRatingSum() + rating,
+                "accuracySum", current.getAccuracySum() + accuracyPercent,
+                "latestReviewIds", latestIds,
+                "updatedAt", FieldValue.serverTimestamp());
+    }
+
+    /**
+     * Remove a deleted review from the aggregate, inside the transaction that deletes it
+     */
+    public void recordReviewRemoved(Transaction transaction, DocumentSnapshot stats, Review review) {
+        RestaurantStats current = stats != null && stats.exists() ? stats.toObject(RestaurantStats.class) : null;
+        if (current == null) {
+            return;
+        }
+        // The sheet pages in older reviews itself, so the id list is allowed to shrink
+        List<String> latestIds = new ArrayList<>(current.getLatestReviewIds());
+        latestIds.remove(review.getId());
+        int count = Math.max(0, current.getReviewCount() - 1);
+        transaction.update(stats.getReference(),
+                "reviewCount", count,
+                "ratingSum", count > 0 ? current.getRatingSum() - review.getRating() : 0,
+                "accuracySum", count > 0 ? current.getAccuracySum() - review.getAccuracyPercent() : 0,
+                "latestReviewIds", latestIds,
+                "updatedAt", FieldValue.serverTimestamp());
+    }
+}
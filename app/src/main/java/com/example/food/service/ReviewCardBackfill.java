@@ -0,0 +1,180 @@
+package com.example.food.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.food.data.ReviewCard;
+import com.example.food.model.Restaurant;
+import com.example.food.search.SearchTokens;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One-off migrations over the reviews collection, run in order:
+ * first a reviewCards entry for reviews saved before cards existed, then searchTokens for
+ * reviews saved before search used them, then updatedAt, taken from createdAt, for reviews
+ * saved before delta refreshes used it.
+ * A marker document in Firestore makes sure only the first client does each pass,
+ * and a local flag skips even that check afterwards.
+ */
+public class ReviewCardBackfill {
+    private static final String TAG = "ReviewCardBackfill";
+    private static final String PREFS_NAME = "review_cards";
+    private static final int BATCH_SIZE = 100;
+
+    private enum Pass {
+        CARDS("reviewCards", "backfilled"),
+        SEARCH_TOKENS("reviewSearchTokens", "search_tokens_backfilled"),
+        UPDATED_AT("reviewUpdatedAt", "updated_at_backfilled");
+
+        final String marker;
+        final String prefKey;
+
+        Pass(String marker, String prefKey) {
+            this.marker = marker;
+            this.prefKey = prefKey;
+        }
+    }
+
+    private static boolean running;
+
+    public static synchronized void runOnce(Context context) {
+        SharedPreferences prefs = context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (running) {
+            return;
+        }
+        Pass pass = nextPass(prefs);
+        if (pass == null) {
+            return;
+        }
+        running = true;
+        start(FirebaseFirestore.getInstance(), prefs, pass);
+    }
+
+    private static Pass nextPass(SharedPreferences prefs) {
+        for (Pass pass : Pass.values()) {
+            if (!prefs.getBoolean(pass.prefKey, false)) {
+                return pass;
+            }
+        }
+        return null;
+    }
+
+    private static void start(FirebaseFirestore db, SharedPreferences prefs, Pass pass) {
+        db.collection("meta").document(pass.marker)
+                .get()
+                .addOnSuccessListener(marker -> {
+                    if (marker.exists()) {
+                        finish(db, prefs, pass, true);
+                    } else if (pass == Pass.SEARCH_TOKENS) {
+                        // Tokens include the restaurant name, which comes from the catalog
+                        RestaurantRepository.getInstance().whenReady(() -> copyPage(db, prefs, pass, null));
+                    } else {
+                        copyPage(db, prefs, pass, null);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Could not check backfill marker", e);
+                    finish(db, prefs, pass, false);
+                });
+    }
+
+    private static void copyPage(FirebaseFirestore db, SharedPreferences prefs, Pass pass, DocumentSnapshot startAfter) {
+        Query query = db.collection("reviews").orderBy(FieldPath.documentId()).limit(BATCH_SIZE);
+        if (startAfter != null) {
+            query = query.startAfter(startAfter);
+        }
+
+        query.get()
+                .addOnSuccessListener(snapshot -> {
+                    List<DocumentSnapshot> documents = snapshot.getDocuments();
+                    if (documents.isEmpty()) {
+                        markDone(db, prefs, pass);
+                        return;
+                    }
+
+                    WriteBatch batch = db.batch();
+                    for (DocumentSnapshot document : documents) {
+                        Map<String, Object> data = document.getData();
+                        if (data == null) continue;
+                        DocumentReference card = db.collection(ReviewService.COLLECTION_REVIEW_CARDS).document(document.getId());
+                        if (pass == Pass.CARDS) {
+                            batch.set(card, ReviewCard.fromReviewData(data), SetOptions.merge());
+                        } else if (pass == Pass.UPDATED_AT) {
+                            // Cards always carry updatedAt, only the review itself can lack it
+                            if (data.get("updatedAt") == null) {
+                                Object createdAt = data.get("createdAt");
+                                batch.update(document.getReference(), "updatedAt",
+                                        createdAt != null ? createdAt : FieldValue.serverTimestamp());
+                            }
+                        } else {
+                            Map<String, Object> tokens = new HashMap<>();
+                            tokens.put(SearchTokens.FIELD, tokensFor(data));
+                            batch.set(document.getReference(), tokens, SetOptions.merge());
+                            batch.set(card, tokens, SetOptions.merge());
+                        }
+                    }
+                    batch.commit()
+                            .addOnSuccessListener(aVoid -> {
+                                Log.d(TAG, "Backfilled " + pass + " for " + documents.size() + " reviews");
+                                if (documents.size() < BATCH_SIZE) {
+                                    markDone(db, prefs, pass);
+                                } else {
+                                    copyPage(db, prefs, pass, documents.get(documents.size() - 1));
+                                }
+                            })
+                            .addOnFailureListener(e -> {
+                                Log.e(TAG, "Error writing " + pass + " backfill", e);
+                                finish(db, prefs, pass, false);
+                            });
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error reading reviews for backfill", e);
+                    finish(db, prefs, pass, false);
+                });
+    }
+
+    private static List<String> tokensFor(Map<String, Object> data) {
+        Object restaurantId = data.get("restaurantId");
+        Restaurant restaurant = restaurantId instanceof String
+                ? RestaurantRepository.getInstance().getRestaurant((String) restaurantId) : null;
+        return SearchTokens.forFields(asString(data.get("caption")), asString(data.get("description")),
+                restaurant != null ? restaurant.getName() : null);
+    }
+
+    private static String asString(Object value) {
+        return value instanceof String ? (String) value : null;
+    }
+
+    private static void markDone(FirebaseFirestore db, SharedPreferences prefs, Pass pass) {
+        Map<String, Object> marker = new HashMap<>();
+        marker.put("backfilledAt", FieldValue.serverTimestamp());
+        db.collection("meta").document(pass.marker)
+                .set(marker)
+                .addOnCompleteListener(task -> finish(db, prefs, pass, task.isSuccessful()));
+    }
+
+    private static synchronized void finish(FirebaseFirestore db, SharedPreferences prefs, Pass pass, boolean done) {
+        if (done) {
+            prefs.edit().putBoolean(pass.prefKey, true).apply();
+            Pass next = nextPass(prefs);
+            if (next != null && next != pass) {
+                start(db, prefs, next);
+                return;
+            }
+        }
+        running = false;
+    }
+}
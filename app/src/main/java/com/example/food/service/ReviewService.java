@@ -2,13 +2,30 @@ package com.example.food.service;
 
 import android.util.Log;
 
+import com.example.food.cache.QueryCache;
 import com.example.food.data.Review;
+import com.example.food.data.ReviewCard;
+import com.example.food.data.ReviewCodec;
+import com.example.food.model.Restaurant;
+import com.example.food.search.ReviewSearchResults;
+import com.example.food.search.SearchTokens;
+import com.example.food.utils.BackgroundDecoder;
 import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,13 +37,22 @@ import java.util.Map;
 public class ReviewService {
     private static final String TAG = "ReviewService";
     private static final String COLLECTION_REVIEWS = "reviews";
+    public static final String COLLECTION_REVIEW_CARDS = "reviewCards";
+    public static final int FEED_PAGE_SIZE = 20;
+    public static final int SEARCH_PAGE_SIZE = 20;
+    private static final int PROFILE_GRID_LIMIT = 200;
+    // When this process last saved or deleted a review, screens kept alive compare it to their last load
+    private static volatile long lastLocalWriteAt;
     
     private FirebaseFirestore db;
     private CollectionReference reviewsRef;
+    private CollectionReference cardsRef;
+    private final QueryCache queryCache = QueryCache.getInstance();
 
     public ReviewService() {
         db = FirebaseFirestore.getInstance();
         reviewsRef = db.collection(COLLECTION_REVIEWS);
+        cardsRef = db.collection(COLLECTION_REVIEW_CARDS);
     }
 
     public interface ReviewsLoadCallback {
@@ -44,30 +70,54 @@ public class ReviewService {
         void onError(String error);
     }
 
+    public interface ReviewLoadCallback {
+        void onSuccess(Review review);
+        void onError(Exception e);
+    }
+
+    public interface VoteCallback {
+        void onSuccess(int accurateCount, int totalVotes);
+        void onError(Exception e);
+    }
+
+    public interface ReviewPageCallback {
+        void onSuccess(ReviewPage page);
+        void onError(Exception e);
+    }
+
+    /**
+     * One page of the feed plus the cursor needed to request the next one
+     */
+    public static class ReviewPage {
+        private final List<Review> reviews;
+        private final DocumentSnapshot lastDocument;
+        private final boolean hasMore;
+
+        public ReviewPage(List<Review> reviews, DocumentSnapshot lastDocument, boolean hasMore) {
+            this.reviews = reviews;
+            this.lastDocument = lastDocument;
+            this.hasMore = hasMore;
+        }
+
+        public List<Review> getReviews() { return reviews; }
+        public DocumentSnapshot getLastDocument() { return lastDocument; }
+        public boolean hasMore() { return hasMore; }
+    }
+
     /**
      * Load all reviews ordered by createdAt (newest first)
      */
     public void loadReviews(ReviewsLoadCallback callback) {
         reviewsRef.orderBy("createdAt", Query.Direction.DESCENDING)
                 .get()
-                .addOnCompleteListener(task -> {
+                .addOnCompleteListener(BackgroundDecoder.executor(), task -> {
                     if (task.isSuccessful()) {
-                        List<Review> reviews = new ArrayList<>();
-                        for (QueryDocumentSnapshot document : task.getResult()) {
-                            try {
-                                Review review = document.toObject(Review.class);
-                                review.setId(document.getId());
-                                review.refreshAccuracyFromVotes(); // Calculate accuracy from votes
-                                reviews.add(review);
-                            } catch (Exception e) {
-                                Log.w(TAG, "Error parsing review: " + document.getId(), e);
-                            }
-                        }
-                        callback.onSuccess(reviews);
+                        List<Review> reviews = parseReviews(task.getResult());
+                        BackgroundDecoder.postToMain(() -> callback.onSuccess(reviews));
                         Log.d(TAG, "Loaded " + reviews.size() + " reviews from Firebase");
                     } else {
                         Log.w(TAG, "Error getting reviews from Firebase", task.getException());
-                        callback.onError(task.getException());
+                        BackgroundDecoder.postToMain(() -> callback.onError(task.getException()));
                     }
                 });
     }
@@ -79,49 +129,353 @@ public class ReviewService {
         reviewsRef.orderBy("createdAt", Query.Direction.DESCENDING)
                 .limit(limit)
                 .get()
-                .addOnCompleteListener(task -> {
+                .addOnCompleteListener(BackgroundDecoder.executor(), task -> {
                     if (task.isSuccessful()) {
-                        List<Review> reviews = new ArrayList<>();
-                        for (QueryDocumentSnapshot document : task.getResult()) {
-                            try {
-                                Review review = document.toObject(Review.class);
-                                review.setId(document.getId());
-                                review.refreshAccuracyFromVotes(); // Calculate accuracy from votes
-                                reviews.add(review);
-                            } catch (Exception e) {
-                                Log.w(TAG, "Error parsing review: " + document.getId(), e);
-                            }
-                        }
-                        callback.onSuccess(reviews);
+                        List<Review> reviews = parseReviews(task.getResult());
+                        BackgroundDecoder.postToMain(() -> callback.onSuccess(reviews));
                         Log.d(TAG, "Loaded " + reviews.size() + " reviews with limit " + limit);
                     } else {
                         Log.w(TAG, "Error getting reviews with limit", task.getException());
-                        callback.onError(task.getException());
+                        BackgroundDecoder.postToMain(() -> callback.onError(task.getException()));
+                    }
+                });
+    }
+
+    /**
+     * Load one page of feed cards ordered by createdAt (newest first).
+     * Pass null to get the first page, or the last document of the previous page to continue.
+     */
+    public void loadReviewPage(DocumentSnapshot startAfter, ReviewPageCallback callback) {
+        // Only the first page is cached, it is what startup warmup and the home tab both ask for
+        QueryCache.Key key = startAfter == null ? firstPageKey() : null;
+        if (key != null) {
+            CachedPage cached = queryCache.get(key);
+            if (cached != null) {
+                deliverCachedPage(cached, callback);
+                return;
+            }
+        }
+
+        Query query = cardsRef.orderBy("createdAt", Query.Direction.DESCENDING);
+        if (startAfter != null) {
+            query = query.startAfter(startAfter);
+        }
+        query.limit(FEED_PAGE_SIZE)
+                .get()
+                .addOnCompleteListener(BackgroundDecoder.executor(), task -> {
+                    if (task.isSuccessful()) {
+                        List<Review> reviews = parseCards(task.getResult());
+                        List<DocumentSnapshot> documents = task.getResult().getDocuments();
+                        DocumentSnapshot lastDocument = documents.isEmpty() ? startAfter : documents.get(documents.size() - 1);
+                        // A short page means we reached the end of the collection
+                        boolean hasMore = documents.size() == FEED_PAGE_SIZE;
+                        if (key != null) {
+                            queryCache.put(key, new CachedPage(documents, lastDocument, hasMore), getIds(reviews));
+                        }
+                        BackgroundDecoder.postToMain(() -> callback.onSuccess(new ReviewPage(reviews, lastDocument, hasMore)));
+                        Log.d(TAG, "Loaded page of " + reviews.size() + " reviews");
+                    } else {
+                        Log.w(TAG, "Error getting review page", task.getException());
+                        BackgroundDecoder.postToMain(() -> callback.onError(task.getException()));
+                    }
+                });
+    }
+
+    /**
+     * A page of cards as Firestore returned it, snapshots are immutable so callers can share them
+     */
+    private static class CachedPage {
+        final List<DocumentSnapshot> documents;
+        final DocumentSnapshot lastDocument;
+        final boolean hasMore;
+
+        CachedPage(List<DocumentSnapshot> documents, DocumentSnapshot lastDocument, boolean hasMore) {
+            this.documents = documents;
+            this.lastDocument = lastDocument;
+            this.hasMore = hasMore;
+        }
+    }
+
+    private void deliverCachedPage(CachedPage cached, ReviewPageCallback callback) {
+        // Callers resolve author names and votes on their Reviews, so each one decodes its own copies
+        BackgroundDecoder.executor().execute(() -> {
+            ReviewPage page = new ReviewPage(parseCards(cached.documents), cached.lastDocument, cached.hasMore);
+            BackgroundDecoder.postToMain(() -> callback.onSuccess(page));
+        });
+    }
+
+    private QueryCache.Key firstPageKey() {
+        return QueryCache.Key.of(QueryCache.QueryClass.FEED_FIRST_PAGE, COLLECTION_REVIEW_CARDS)
+                .orderBy("createdAt", true)
+                .limit(FEED_PAGE_SIZE);
+    }
+
+    /**
+     * Load feed cards created or updated after the watermark, used for cheap delta refreshes
+     */
+    public void loadReviewsUpdatedSince(Date since, ReviewsLoadCallback callback) {
+        cardsRef.whereGreaterThan("updatedAt", since)
+                .orderBy("updatedAt", Query.Direction.ASCENDING)
+                .get()
+                .addOnCompleteListener(BackgroundDecoder.executor(), task -> {
+                    if (task.isSuccessful()) {
+                        List<Review> reviews = parseCards(task.getResult());
+                        BackgroundDecoder.postToMain(() -> callback.onSuccess(reviews));
+                        Log.d(TAG, "Loaded " + reviews.size() + " reviews updated since " + since);
+                    } else {
+                        Log.w(TAG, "Error getting updated reviews", task.getException());
+                        BackgroundDecoder.postToMain(() -> callback.onError(task.getException()));
+                    }
+                });
+    }
+
+    /**
+     * Load one user's cards created or updated after the watermark
+     * Needs the composite index reviewCards(userId ASC, updatedAt ASC)
+     */
+    public void getReviewsByUserUpdatedSince(String userId, Date since, OnReviewsLoadedListener listener) {
+        cardsRef.whereEqualTo("userId", userId)
+                .whereGreaterThan("updatedAt", since)
+                .orderBy("updatedAt", Query.Direction.ASCENDING)
+                .get()
+                .addOnCompleteListener(BackgroundDecoder.executor(), task -> {
+                    if (task.isSuccessful()) {
+                        List<Review> reviews = parseCards(task.getResult());
+                        BackgroundDecoder.postToMain(() -> listener.onReviewsLoaded(reviews));
+                        Log.d(TAG, "Loaded " + reviews.size() + " updated reviews for user: " + userId);
+                    } else {
+                        Log.w(TAG, "Error getting updated reviews for user: " + userId, task.getException());
+                        BackgroundDecoder.postToMain(() -> listener.onError(task.getException() != null ? task.getException().getMessage() : "Unknown error"));
+                    }
+                });
+    }
+
+    public static long getLastLocalWriteAt() {
+        return lastLocalWriteAt;
+    }
+
+    /**
+     * Newest change we already hold: updatedAt, or createdAt for reviews written before updatedAt existed.
+     * Returns null when the list is empty and a full load is needed.
+     */
+    public static Date getWatermark(Collection<Review> reviews) {
+        Date watermark = null;
+        for (Review review : reviews) {
+            Date changedAt = review.getUpdatedAt() != null ? review.getUpdatedAt() : review.getCreatedAt();
+            if (changedAt != null && (watermark == null || changedAt.after(watermark))) {
+                watermark = changedAt;
+            }
+        }
+        return watermark;
+    }
+
+    /**
+     * Merge changed reviews into the list by id, keeping it ordered newest first.
+     * Returns how many of the changes were new reviews.
+     */
+    public static int mergeReviews(List<Review> target, List<Review> changes) {
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < target.size(); i++) {
+            positions.put(target.get(i).getId(), i);
+        }
+
+        int added = 0;
+        for (Review change : changes) {
+            Integer position = positions.get(change.getId());
+            if (position != null) {
+                target.set(position, change);
+            } else {
+                positions.put(change.getId(), target.size());
+                target.add(change);
+                added++;
+            }
+        }
+
+        if (added > 0) {
+            target.sort(Comparator.comparing(Review::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder())));
+        }
+        return added;
+    }
+
+    /**
+     * Load a user's cards for the profile grids (newest first)
+     * Needs the composite index reviewCards(userId ASC, createdAt DESC)
+     */
+    public void getReviewCardsByUser(String userId, OnReviewsLoadedListener listener) {
+        cardsRef.whereEqualTo("userId", userId)
+                .orderBy("createdAt", Query.Direction.DESCENDING)
+                .limit(PROFILE_GRID_LIMIT)
+                .get()
+                .addOnCompleteListener(BackgroundDecoder.executor(), task -> {
+                    if (task.isSuccessful()) {
+                        List<Review> reviews = parseCards(task.getResult());
+                        BackgroundDecoder.postToMain(() -> listener.onReviewsLoaded(reviews));
+                        Log.d(TAG, "Loaded " + reviews.size() + " cards for user: " + userId);
+                    } else {
+                        Log.w(TAG, "Error getting cards for user: " + userId, task.getException());
+                        BackgroundDecoder.postToMain(() -> listener.onError(task.getException() != null ? task.getException().getMessage() : "Unknown error"));
+                    }
+                });
+    }
+
+    /**
+     * Load the cards for a few known ids, e.g. RestaurantStats.latestReviewIds (at most 10 per query)
+     */
+    public void getReviewCards(List<String> reviewIds, ReviewsLoadCallback callback) {
+        if (reviewIds == null || reviewIds.isEmpty()) {
+            callback.onSuccess(new ArrayList<>());
+            return;
+        }
+        List<String> ids = reviewIds.size() > 10 ? reviewIds.subList(0, 10) : reviewIds;
+        QueryCache.Key key = QueryCache.Key.of(QueryCache.QueryClass.RESTAURANT_REVIEWS, COLLECTION_REVIEW_CARDS)
+                .whereIn("__name__", ids);
+        CachedPage cached = queryCache.get(key);
+        if (cached != null) {
+            BackgroundDecoder.executor().execute(() -> {
+                List<Review> reviews = new ArrayList<>();
+                mergeReviews(reviews, parseCards(cached.documents));
+                BackgroundDecoder.postToMain(() -> callback.onSuccess(reviews));
+            });
+            return;
+        }
+        cardsRef.whereIn(FieldPath.documentId(), ids)
+                .get()
+                .addOnCompleteListener(BackgroundDecoder.executor(), task -> {
+                    if (task.isSuccessful()) {
+                        List<Review> reviews = new ArrayList<>();
+                        mergeReviews(reviews, parseCards(task.getResult()));
+                        queryCache.put(key, new CachedPage(task.getResult().getDocuments(), null, false), ids);
+                        BackgroundDecoder.postToMain(() -> callback.onSuccess(reviews));
+                    } else {
+                        Log.w(TAG, "Error getting review cards by id", task.getException());
+                        BackgroundDecoder.postToMain(() -> callback.onError(task.getException()));
+                    }
+                });
+    }
+
+    /**
+     * One page of a restaurant's cards newest first, after the given card or from the top when it is null.
+     * The cursor is the card's createdAt and id, so it can be any card already on screen.
+     * Needs the composite index reviewCards(restaurantId ASC, createdAt DESC)
+     */
+    public void loadRestaurantReviewPage(String restaurantId, Review startAfter, ReviewPageCallback callback) {
+        QueryCache.Key key = QueryCache.Key.of(QueryCache.QueryClass.RESTAURANT_REVIEWS, COLLECTION_REVIEW_CARDS)
+                .whereEqualTo("restaurantId", restaurantId)
+                .orderBy("createdAt", true)
+                .limit(FEED_PAGE_SIZE)
+                .startAfter(startAfter != null ? startAfter.getId() : null);
+        CachedPage cached = queryCache.get(key);
+        if (cached != null) {
+            deliverCachedPage(cached, callback);
+            return;
+        }
+
+        // Firestore breaks createdAt ties by id anyway, naming it lets the cursor carry both values
+        Query query = cardsRef.whereEqualTo("restaurantId", restaurantId)
+                .orderBy("createdAt", Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING);
+        if (startAfter != null) {
+            query = query.startAfter(startAfter.getCreatedAt(), startAfter.getId());
+        }
+        query.limit(FEED_PAGE_SIZE)
+                .get()
+                .addOnCompleteListener(BackgroundDecoder.executor(), task -> {
+                    if (task.isSuccessful()) {
+                        List<Review> reviews = parseCards(task.getResult());
+                        List<DocumentSnapshot> documents = task.getResult().getDocuments();
+                        DocumentSnapshot lastDocument = documents.isEmpty() ? null : documents.get(documents.size() - 1);
+                        boolean hasMore = documents.size() == FEED_PAGE_SIZE;
+                        ReviewPage page = new ReviewPage(reviews, lastDocument, hasMore);
+                        queryCache.put(key, new CachedPage(documents, lastDocument, hasMore), getIds(reviews));
+                        BackgroundDecoder.postToMain(() -> callback.onSuccess(page));
+                        Log.d(TAG, "Loaded page of " + reviews.size() + " cards for restaurant: " + restaurantId);
+                    } else {
+                        Log.w(TAG, "Error getting cards for restaurant: " + restaurantId, task.getException());
+                        BackgroundDecoder.postToMain(() -> callback.onError(task.getException()));
                     }
                 });
     }
 
     /**
-     * Search reviews by description, caption, or restaurant name (client-side filtering)
+     * Load the full review document behind a card, with votes and comments
+     */
+    public void loadFullReview(String reviewId, ReviewLoadCallback callback) {
+        QueryCache.Key key = QueryCache.Key.document(QueryCache.QueryClass.REVIEW_DETAILS, COLLECTION_REVIEWS, reviewId);
+        Map<String, Object> cached = queryCache.get(key);
+        if (cached != null) {
+            // The dialog mutates its Review, so each caller decodes its own copy
+            BackgroundDecoder.postToMain(() -> callback.onSuccess(ReviewCodec.decode(reviewId, cached)));
+            return;
+        }
+        if (queryCache.isMissing(key)) {
+            // Deleted recently, e.g. a card or activity entry that outlived its review
+            BackgroundDecoder.postToMain(() -> callback.onError(new IllegalStateException("Review not found: " + reviewId)));
+            return;
+        }
+
+        reviewsRef.document(reviewId)
+                .get()
+                .addOnSuccessListener(document -> {
+                    Map<String, Object> data = document.getData();
+                    if (data == null) {
+                        queryCache.putMissing(key, reviewId);
+                        callback.onError(new IllegalStateException("Review not found: " + reviewId));
+                        return;
+                    }
+                    queryCache.put(key, data, Collections.singleton(reviewId));
+                    callback.onSuccess(ReviewCodec.decode(document.getId(), data));
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Error loading review: " + reviewId, e);
+                    callback.onError(e);
+                });
+    }
+
+    private static List<String> getIds(List<Review> reviews) {
+        List<String> ids = new ArrayList<>();
+        for (Review review : reviews) {
+            ids.add(review.getId());
+        }
+        return ids;
+    }
+
+    // Both parsers run on BackgroundDecoder's executor, never on the main thread
+    private List<Review> parseReviews(QuerySnapshot snapshot) {
+        List<Review> reviews = new ArrayList<>();
+        for (QueryDocumentSnapshot document : snapshot) {
+            try {
+                reviews.add(ReviewCodec.decode(document.getId(), document.getData()));
+            } catch (Exception e) {
+                Log.w(TAG, "Error parsing review: " + document.getId(), e);
+            }
+        }
+        return reviews;
+    }
+
+    private List<Review> parseCards(QuerySnapshot snapshot) {
+        return parseCards(snapshot.getDocuments());
+    }
+
+    private List<Review> parseCards(List<DocumentSnapshot> documents) {
+        List<Review> reviews = new ArrayList<>();
+        for (DocumentSnapshot document : documents) {
+            try {
+                reviews.add(ReviewCodec.decodeCard(document.getId(), document.getData()));
+            } catch (Exception e) {
+                Log.w(TAG, "Error parsing review card: " + document.getId(), e);
+            }
+        }
+        return reviews;
+    }
+
+    /**
+     * First page of search results for a query, see the paged overload
      */
     public void searchReviews(String query, ReviewsLoadCallback callback) {
-        // Load all reviews first, then filter on client side
-        loadReviews(new ReviewsLoadCallback() {
+        searchReviews(query, null, new ReviewSearchResults(), new ReviewPageCallback() {
             @Override
-            public void onSuccess(List<Review> reviews) {
-                List<Review> filteredReviews = new ArrayList<>();
-                String lowerQuery = query.toLowerCase().trim();
-                
-                for (Review review : reviews) {
-                    if ((review.getDescription() != null && review.getDescription().toLowerCase().contains(lowerQuery)) ||
-                        (review.getCaption() != null && review.getCaption().toLowerCase().contains(lowerQuery)) ||
-                        (review.getRestaurantName() != null && review.getRestaurantName().toLowerCase().contains(lowerQuery))) {
-                        filteredReviews.add(review);
-                    }
-                }
-                
-                callback.onSuccess(filteredReviews);
-                Log.d(TAG, "Search returned " + filteredReviews.size() + " reviews for query: " + query);
+            public void onSuccess(ReviewPage page) {
+                callback.onSuccess(page.getReviews());
             }
 
             @Override
@@ -130,7 +484,60 @@ public class ReviewService {
             }
         });
     }
-    
+
+    /**
+     * Search review cards by the words of their caption, description and restaurant name.
+     * Firestore returns only cards sharing a word with the query, newest first, so the cost follows
+     * the number of matches rather than the size of the collection. Each page is merged into
+     * results and the page handed back holds everything found so far, ranked by matched words.
+     * Pass the page's last document as startAfter to fetch more.
+     * Needs the composite index reviewCards(searchTokens ARRAY_CONTAINS, createdAt DESC)
+     */
+    public void searchReviews(String query, DocumentSnapshot startAfter, ReviewSearchResults results,
+                              ReviewPageCallback callback) {
+        List<String> queryTokens = SearchTokens.forQuery(query);
+        if (queryTokens.isEmpty()) {
+            callback.onSuccess(new ReviewPage(results.getRanked(), null, false));
+            return;
+        }
+
+        Query search = cardsRef.whereArrayContainsAny(SearchTokens.FIELD, queryTokens)
+                .orderBy("createdAt", Query.Direction.DESCENDING)
+                .limit(SEARCH_PAGE_SIZE);
+        if (startAfter != null) {
+            search = search.startAfter(startAfter);
+        }
+        search.get()
+                .addOnCompleteListener(BackgroundDecoder.executor(), task -> {
+                    if (!task.isSuccessful()) {
+                        Log.w(TAG, "Error searching reviews", task.getException());
+                        BackgroundDecoder.postToMain(() -> callback.onError(task.getException()));
+                        return;
+                    }
+                    List<DocumentSnapshot> documents = task.getResult().getDocuments();
+                    List<Review> found = new ArrayList<>();
+                    List<Integer> matched = new ArrayList<>();
+                    for (DocumentSnapshot document : documents) {
+                        try {
+                            found.add(ReviewCodec.decodeCard(document.getId(), document.getData()));
+                            matched.add(SearchTokens.countMatches(queryTokens, (List<?>) document.get(SearchTokens.FIELD)));
+                        } catch (Exception e) {
+                            Log.w(TAG, "Error parsing review card: " + document.getId(), e);
+                        }
+                    }
+                    DocumentSnapshot last = documents.isEmpty() ? null : documents.get(documents.size() - 1);
+                    boolean hasMore = documents.size() == SEARCH_PAGE_SIZE;
+                    BackgroundDecoder.postToMain(() -> {
+                        // Merged on the main thread, results belongs to the caller
+                        for (int i = 0; i < found.size(); i++) {
+                            results.add(found.get(i), matched.get(i));
+                        }
+                        Log.d(TAG, "Search '" + query + "' matched " + found.size() + " cards, " + results.size() + " so far");
+                        callback.onSuccess(new ReviewPage(results.getRanked(), last, hasMore));
+                    });
+                });
+    }
+
     /**
      * Load reviews by specific user ID
      */
@@ -138,24 +545,14 @@ public class ReviewService {
         reviewsRef.whereEqualTo("userId", userId)
                 .orderBy("createdAt", Query.Direction.DESCENDING)
                 .get()
-                .addOnCompleteListener(task -> {
+                .addOnCompleteListener(BackgroundDecoder.executor(), task -> {
                     if (task.isSuccessful()) {
-                        List<Review> reviews = new ArrayList<>();
-                        for (QueryDocumentSnapshot document : task.getResult()) {
-                            try {
-                                Review review = document.toObject(Review.class);
-                                review.setId(document.getId());
-                                review.refreshAccuracyFromVotes(); // Calculate accuracy from votes
-                                reviews.add(review);
-                            } catch (Exception e) {
-                                Log.w(TAG, "Error parsing review: " + document.getId(), e);
-                            }
-                        }
-                        listener.onReviewsLoaded(reviews);
+                        List<Review> reviews = parseReviews(task.getResult());
+                        BackgroundDecoder.postToMain(() -> listener.onReviewsLoaded(reviews));
                         Log.d(TAG, "Loaded " + reviews.size() + " reviews for user: " + userId);
                     } else {
                         Log.w(TAG, "Error getting reviews for user: " + userId, task.getException());
-                        listener.onError(task.getException() != null ? task.getException().getMessage() : "Unknown error");
+                        BackgroundDecoder.postToMain(() -> listener.onError(task.getException() != null ? task.getException().getMessage() : "Unknown error"));
                     }
                 });
     }
@@ -175,19 +572,165 @@ public class ReviewService {
         reviewData.put("imageUrls", review.getImageUrls());
         reviewData.put("firstImageType", review.getFirstImageType());
         reviewData.put("createdAt", review.getCreatedAt());
+        reviewData.put("updatedAt", FieldValue.serverTimestamp());
         reviewData.put("votes", review.getVotes());
-        reviewData.put("comments", review.getComments());
+        reviewData.put("accurateCount", review.getAccurateCount());
+        reviewData.put("totalVotes", review.getTotalVotes());
+        // Comments go to the reviews/{id}/comments subcollection, the review only keeps the count
+        reviewData.put("commentCount", 0);
+        // Author snapshot so lists can render without a users lookup, kept fresh by AuthorSnapshotFanout
+        if (review.getUserName() != null) {
+            reviewData.put("authorName", review.getUserName());
+            reviewData.put("authorAvatarUrl", review.getUserAvatarUrl());
+            reviewData.put("authorAvatarVersion", review.getAuthorAvatarVersion());
+        }
+        reviewData.put(SearchTokens.FIELD, SearchTokens.forFields(review.getCaption(), review.getDescription(),
+                restaurantNameOf(review)));
         
         // Use auto-generated document ID. Do not store an explicit id/helpfulCount field
-        reviewsRef
-                .add(reviewData)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Review saved successfully");
-                    callback.onSuccess();
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error saving review", e);
-                    callback.onError(e);
-                });
+        // The feed card and the restaurant stats are written in the same transaction so they never drift apart
+        DocumentReference reviewRef = reviewsRef.document();
+        RestaurantStatsService statsService = new RestaurantStatsService();
+        DocumentReference statsRef = review.getRestaurantId() != null ? statsService.statsRef(review.getRestaurantId()) : null;
+        db.runTransaction(transaction -> {
+            // All reads have to happen before the first write
+            DocumentSnapshot stats = statsRef != null ? transaction.get(statsRef) : null;
+            transaction.set(reviewRef, reviewData);
+            transaction.set(cardsRef.document(reviewRef.getId()), ReviewCard.fromReviewData(reviewData));
+            statsService.recordReviewAdded(transaction, stats, reviewRef.getId(), review.getRating(),
+                    review.getAccuracyPercent());
+            return null;
+        }).addOnSuccessListener(result -> {
+            Log.d(TAG, "Review saved successfully");
+            lastLocalWriteAt = System.currentTimeMillis();
+            queryCache.invalidateWrite(COLLECTION_REVIEWS, reviewRef.getId(), reviewData);
+            queryCache.invalidateWrite(COLLECTION_REVIEW_CARDS, reviewRef.getId(), reviewData);
+            if (statsRef != null) {
+                queryCache.invalidateWrite(RestaurantStatsService.COLLECTION_RESTAURANT_STATS, review.getRestaurantId(), null);
+            }
+            callback.onSuccess();
+        }).addOnFailureListener(e -> {
+            Log.e(TAG, "Error saving review", e);
+            callback.onError(e);
+        });
+    }
+
+    private static String restaurantNameOf(Review review) {
+        if (review.getRestaurantName() != null) {
+            return review.getRestaurantName();
+        }
+        Restaurant restaurant = RestaurantRepository.getInstance().getRestaurant(review.getRestaurantId());
+        return restaurant != null ? restaurant.getName() : null;
+    }
+
+    /**
+     * Delete a review together with its feed card, its share of the restaurant stats and its comments
+     */
+    public void deleteReview(Review review, ReviewSaveCallback callback) {
+        DocumentReference reviewRef = reviewsRef.document(review.getId());
+        RestaurantStatsService statsService = new RestaurantStatsService();
+        DocumentReference statsRef = review.getRestaurantId() != null ? statsService.statsRef(review.getRestaurantId()) : null;
+        db.runTransaction(transaction -> {
+            DocumentSnapshot existing = transaction.get(reviewRef);
+            DocumentSnapshot stats = statsRef != null ? transaction.get(statsRef) : null;
+            transaction.delete(reviewRef);
+            transaction.delete(cardsRef.document(review.getId()));
+            // A review that is already gone was taken out of the stats by whoever deleted it.
+            // The stored copy has every vote cast since the caller loaded theirs.
+            Review stored = existing.exists() ? ReviewCodec.decode(existing.getId(), existing.getData()) : null;
+            if (stored != null) {
+                statsService.recordReviewRemoved(transaction, stats, stored);
+            }
+            return null;
+        }).addOnSuccessListener(result -> {
+            Log.d(TAG, "Review deleted successfully");
+            lastLocalWriteAt = System.currentTimeMillis();
+            Map<String, Object> fields = new HashMap<>();
+            fields.put("userId", review.getUserId());
+            fields.put("restaurantId", review.getRestaurantId());
+            queryCache.invalidateWrite(COLLECTION_REVIEWS, review.getId(), fields);
+            queryCache.invalidateWrite(COLLECTION_REVIEW_CARDS, review.getId(), fields);
+            if (statsRef != null) {
+                queryCache.invalidateWrite(RestaurantStatsService.COLLECTION_RESTAURANT_STATS, review.getRestaurantId(), null);
+            }
+            // A transaction can not query, the subcollection goes in batches afterwards
+            new CommentService().deleteComments(review.getId());
+            callback.onSuccess();
+        }).addOnFailureListener(e -> {
+            Log.e(TAG, "Error deleting review", e);
+            callback.onError(e);
+        });
+    }
+
+    /**
+     * Set or clear (accurate == null) one user's vote in a transaction
+     * Only votes.<uid> is written, accurateCount/totalVotes/accuracyPercent are adjusted from the
+     * previous vote so concurrent voters never overwrite each other
+     */
+    public void vote(String reviewId, String userId, Boolean accurate, VoteCallback callback) {
+        DocumentReference reviewRef = reviewsRef.document(reviewId);
+        DocumentReference cardRef = cardsRef.document(reviewId);
+        String[] restaurantId = new String[1]; // Read inside the transaction, used for invalidation
+
+        db.runTransaction(transaction -> {
+            DocumentSnapshot snapshot = transaction.get(reviewRef);
+            Review review = snapshot.exists() ? ReviewCodec.decode(reviewId, snapshot.getData()) : null;
+            if (review == null) {
+                throw new IllegalStateException("Review not found: " + reviewId);
+            }
+            restaurantId[0] = review.getRestaurantId();
+            // All reads have to happen before the first write
+            DocumentReference statsRef = review.getRestaurantId() != null
+                    ? new RestaurantStatsService().statsRef(review.getRestaurantId()) : null;
+            DocumentSnapshot stats = statsRef != null ? transaction.get(statsRef) : null;
+
+            // Seeds the counters from the votes map for reviews written before they existed
+            review.refreshAccuracyFromVotes();
+            double previousAccuracy = review.getAccuracyPercent();
+            review.applyVote(userId, accurate);
+
+            Object voteValue;
+            if (accurate != null) {
+                Map<String, Object> voteData = new HashMap<>();
+                voteData.put("accurate", accurate);
+                voteData.put("timestamp", FieldValue.serverTimestamp());
+                voteValue = voteData;
+            } else {
+                voteValue = FieldValue.delete();
+            }
+
+            transaction.update(reviewRef,
+                    FieldPath.of("votes", userId), voteValue,
+                    "accurateCount", review.getAccurateCount(),
+                    "totalVotes", review.getTotalVotes(),
+                    "accuracyPercent", review.getAccuracyPercent(),
+                    "updatedAt", FieldValue.serverTimestamp());
+
+            // Rebuild the card from the document so a missing card is written whole
+            Map<String, Object> cardData = ReviewCard.fromReviewData(snapshot.getData());
+            cardData.put("accuracyPercent", review.getAccuracyPercent());
+            cardData.put("updatedAt", FieldValue.serverTimestamp());
+            transaction.set(cardRef, cardData, SetOptions.merge());
+
+            // Keep the restaurant's average accuracy in step, unbuilt stats pick it up when built
+            if (stats != null && stats.exists()) {
+                Double accuracySum = stats.getDouble("accuracySum");
+                transaction.update(statsRef, "accuracySum",
+                        (accuracySum != null ? accuracySum : 0) + review.getAccuracyPercent() - previousAccuracy);
+            }
+
+            return new int[] { review.getAccurateCount(), review.getTotalVotes() };
+        }).addOnSuccessListener(counts -> {
+            Log.d(TAG, "Vote saved for review: " + reviewId);
+            queryCache.invalidateWrite(COLLECTION_REVIEWS, reviewId, null);
+            queryCache.invalidateWrite(COLLECTION_REVIEW_CARDS, reviewId, null);
+            if (restaurantId[0] != null) {
+                queryCache.invalidateWrite(RestaurantStatsService.COLLECTION_RESTAURANT_STATS, restaurantId[0], null);
+            }
+            callback.onSuccess(counts[0], counts[1]);
+        }).addOnFailureListener(e -> {
+            Log.e(TAG, "Error saving vote", e);
+            callback.onError(e);
+        });
     }
 }
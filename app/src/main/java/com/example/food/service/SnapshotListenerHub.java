@@ -0,0 +1,156 @@
+package com.example.food.service;
+
+import android.util.Log;
+
+import com.example.food.utils.BackgroundDecoder;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares one Firestore snapshot listener between everyone listening to the same query or document.
+ * Queries and document references compare equal when they target the same data, so they are used
+ * as keys directly. Each snapshot is fanned out to all subscribers. A subscriber that joins later
+ * gets the latest snapshot replayed on the main thread, like Firestore delivers them. Its
+ * getDocumentChanges() are relative to a snapshot that subscriber never saw, so listeners that act
+ * on the changes use listenForChanges, which skips the replay. The underlying listener is removed
+ * with the last subscriber, or after an error since Firestore stops a listener once it has failed.
+ */
+public class SnapshotListenerHub {
+    private static final String TAG = "SnapshotListenerHub";
+
+    private static class Channel<T> {
+        final Object key;
+        final List<EventListener<T>> subscribers = new ArrayList<>();
+        ListenerRegistration registration;
+        T latest;
+
+        Channel(Object key) {
+            this.key = key;
+        }
+    }
+
+    private static SnapshotListenerHub instance;
+    private final Map<Object, Channel<?>> channels = new HashMap<>();
+
+    private SnapshotListenerHub() {
+    }
+
+    public static synchronized SnapshotListenerHub getInstance() {
+        if (instance == null) {
+            instance = new SnapshotListenerHub();
+        }
+        return instance;
+    }
+
+    /**
+     * For listeners that read the whole snapshot, a late subscriber gets the latest one replayed
+     */
+    public ListenerRegistration listen(Query query, EventListener<QuerySnapshot> listener) {
+        return listen(query, listener, true);
+    }
+
+    /**
+     * For listeners that act on getDocumentChanges(): only snapshots arriving after subscribing are
+     * delivered, so the changes are always relative to the state at subscription
+     */
+    public ListenerRegistration listenForChanges(Query query, EventListener<QuerySnapshot> listener) {
+        return listen(query, listener, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ListenerRegistration listen(Query query, EventListener<QuerySnapshot> listener, boolean replay) {
+        Channel<QuerySnapshot> channel;
+        synchronized (this) {
+            channel = (Channel<QuerySnapshot>) channels.get(query);
+            if (channel == null) {
+                Channel<QuerySnapshot> created = new Channel<>(query);
+                channels.put(query, created);
+                created.registration = query.addSnapshotListener((snapshot, error) -> dispatch(created, snapshot, error));
+                channel = created;
+            }
+        }
+        return subscribe(channel, listener, replay);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ListenerRegistration listen(DocumentReference document, EventListener<DocumentSnapshot> listener) {
+        Channel<DocumentSnapshot> channel;
+        synchronized (this) {
+            channel = (Channel<DocumentSnapshot>) channels.get(document);
+            if (channel == null) {
+                Channel<DocumentSnapshot> created = new Channel<>(document);
+                channels.put(document, created);
+                created.registration = document.addSnapshotListener((snapshot, error) -> dispatch(created, snapshot, error));
+                channel = created;
+            }
+        }
+        return subscribe(channel, listener, true);
+    }
+
+    /**
+     * Number of listeners actually registered with Firestore
+     */
+    public synchronized int getActiveCount() {
+        return channels.size();
+    }
+
+    private <T> ListenerRegistration subscribe(Channel<T> channel, EventListener<T> listener, boolean replay) {
+        T latest;
+        synchronized (this) {
+            channel.subscribers.add(listener);
+            latest = replay ? channel.latest : null;
+        }
+        boolean[] removed = {false};
+        if (latest != null) {
+            BackgroundDecoder.postToMain(() -> {
+                synchronized (this) {
+                    // Removed meanwhile, or a newer snapshot already reached this subscriber
+                    if (removed[0] || channel.latest != latest) return;
+                }
+                listener.onEvent(latest, null);
+            });
+        }
+
+        return () -> {
+            synchronized (this) {
+                if (removed[0]) return;
+                removed[0] = true;
+                channel.subscribers.remove(listener);
+                if (channel.subscribers.isEmpty() && channels.get(channel.key) == channel) {
+                    channels.remove(channel.key);
+                    channel.registration.remove();
+                    Log.d(TAG, "Detached listener, " + channels.size() + " still active");
+                }
+            }
+        };
+    }
+
+    private <T> void dispatch(Channel<T> channel, T snapshot, FirebaseFirestoreException error) {
+        List<EventListener<T>> subscribers;
+        synchronized (this) {
+            if (error != null) {
+                // Firestore will not call this listener again, the next subscriber starts a new one
+                if (channels.get(channel.key) == channel) {
+                    channels.remove(channel.key);
+                }
+            } else {
+                channel.latest = snapshot;
+            }
+            subscribers = new ArrayList<>(channel.subscribers);
+        }
+        for (EventListener<T> subscriber : subscribers) {
+            subscriber.onEvent(snapshot, error);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.food.service;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Shared resolver for user names and avatars.
+ * Concurrent requests for the same uid share one lookup, misses are batched into
+ * whereIn queries of 10 ids and results are cached for a while.
+ * Users whose document does not exist are remembered as tombstones for a shorter time, so
+ * reviews and comments by deleted accounts do not query for them on every screen.
+ * All callbacks are delivered on the main thread.
+ */
+public class UserDirectory {
+    private static final String TAG = "UserDirectory";
+    private static final String COLLECTION_USERS = "users";
+    private static final int BATCH_SIZE = 10; // Firestore whereIn limit
+    private static final long CACHE_TTL = 10 * 60 * 1000; // 10 minutes
+    private static final long MISSING_TTL = 2 * 60 * 1000; // A user may still be signing up, look again sooner
+
+    private static UserDirectory instance;
+
+    private final FirebaseFirestore db;
+    private final Handler mainHandler;
+    private final Map<String, UserInfo> cache = new ConcurrentHashMap<>();
+    // uid -> callbacks waiting for that uid, covers both queued and running lookups
+    private final Map<String, List<OnUserResolvedListener>> waiting = new HashMap<>();
+    private final Set<String> queued = new LinkedHashSet<>();
+    private final List<OnUserUpdatedListener> updateListeners = new CopyOnWriteArrayList<>();
+    private boolean flushScheduled;
+
+    public static class UserInfo {
+        private final String uid;
+        private final String name;
+        private final String avatarUrl;
+        private final double credibilityScore;
+        private final long fetchedAt;
+        private final boolean missing;
+
+        public UserInfo(String uid, String name, String avatarUrl, long fetchedAt) {
+            this(uid, name, avatarUrl, 0, fetchedAt, false);
+        }
+
+        private UserInfo(String uid, String name, String avatarUrl, double credibilityScore, long fetchedAt, boolean missing) {
+            this.uid = uid;
+            this.name = name;
+            this.avatarUrl = avatarUrl;
+            this.credibilityScore = credibilityScore;
+            this.fetchedAt = fetchedAt;
+            this.missing = missing;
+        }
+
+        static UserInfo tombstone(String uid, long fetchedAt) {
+            return new UserInfo(uid, null, null, 0, fetchedAt, true);
+        }
+
+        public String getUid() { return uid; }
+        public String getName() { return name; }
+        public String getAvatarUrl() { return avatarUrl; }
+        public long getFetchedAt() { return fetchedAt; }
+
+        /**
+         * The stored credibilityScore, 0 when the user has none yet
+         */
+        public double getCredibilityScore() { return credibilityScore; }
+
+        /**
+         * True for a tombstone: the users document did not exist when it was last read
+         */
+        public boolean isMissing() { return missing; }
+
+        public boolean hasName() {
+            return name != null && !name.trim().isEmpty();
+        }
+
+        public boolean hasAvatar() {
+            return avatarUrl != null && !avatarUrl.trim().isEmpty();
+        }
+    }
+
+    /**
+     * Result of a single lookup, user is null when the document does not exist or the read failed
+     */
+    public interface OnUserResolvedListener {
+        void onUserResolved(String uid, UserInfo user);
+    }
+
+    public interface OnUsersResolvedListener {
+        void onUsersResolved(Map<String, UserInfo> users);
+    }
+
+    /**
+     * Notified every time a user arrives from Firestore
+     */
+    public interface OnUserUpdatedListener {
+        void onUserUpdated(UserInfo user);
+    }
+
+    private UserDirectory() {
+        db = FirebaseFirestore.getInstance();
+        mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public static synchronized UserDirectory getInstance() {
+        if (instance == null) {
+            instance = new UserDirectory();
+        }
+        return instance;
+    }
+
+    public void addOnUserUpdatedListener(OnUserUpdatedListener listener) {
+        updateListeners.add(listener);
+    }
+
+    public void removeOnUserUpdatedListener(OnUserUpdatedListener listener) {
+        updateListeners.remove(listener);
+    }
+
+    /**
+     * Cached user or null, stale entries and tombstones are still returned so the UI has something to show
+     */
+    public UserInfo getCachedUser(String uid) {
+        if (uid == null) {
+            return null;
+        }
+        return cache.get(uid);
+    }
+
+    public void getUser(String uid, OnUserResolvedListener listener) {
+        if (uid == null || uid.trim().isEmpty()) {
+            listener.onUserResolved(uid, null);
+            return;
+        }
+        UserInfo cached = cache.get(uid);
+        if (cached != null && isFresh(cached)) {
+            listener.onUserResolved(uid, cached.isMissing() ? null : cached);
+            return;
+        }
+        enqueue(uid, listener);
+    }
+
+    /**
+     * Resolve several users, the listener runs once with every user that could be found
+     */
+    public void getUsers(Collection<String> uids, OnUsersResolvedListener listener) {
+        Set<String> unique = new LinkedHashSet<>();
+        for (String uid : uids) {
+            if (uid != null && !uid.trim().isEmpty()) {
+                unique.add(uid);
+            }
+        }
+        Map<String, UserInfo> result = new HashMap<>();
+        if (unique.isEmpty()) {
+            listener.onUsersResolved(result);
+            return;
+        }
+
+        int[] remaining = {unique.size()};
+        for (String uid : unique) {
+            getUser(uid, (resolvedUid, user) -> {
+                if (user != null) {
+                    result.put(resolvedUid, user);
+                }
+                remaining[0]--;
+                if (remaining[0] == 0) {
+                    listener.onUsersResolved(result);
+                }
+            });
+        }
+    }
+
+    /**
+     * Store a value we already know locally, e.g. after the user edits their own profile
+     */
+    public void putUser(String uid, String name, String avatarUrl) {
+        if (uid == null) return;
+        // Only the name and avatar changed, keep the credibility already known
+        UserInfo previous = cache.get(uid);
+        UserInfo user = new UserInfo(uid, name, avatarUrl, previous != null ? previous.getCredibilityScore() : 0,
+                System.currentTimeMillis(), false);
+        cache.put(uid, user);
+        notifyUpdated(user);
+    }
+
+    public void invalidate(String uid) {
+        if (uid != null) {
+            cache.remove(uid);
+        }
+    }
+
+    /**
+     * True if the user's document was found not to exist a short while ago
+     */
+    public boolean isKnownMissing(String uid) {
+        UserInfo cached = uid != null ? cache.get(uid) : null;
+        return cached != null && cached.isMissing() && isFresh(cached);
+    }
+
+    private boolean isFresh(UserInfo user) {
+        long ttl = user.isMissing() ? MISSING_TTL : CACHE_TTL;
+        return System.currentTimeMillis() - user.getFetchedAt() < ttl;
+    }
+
+    private void enqueue(String uid, OnUserResolvedListener listener) {
+        List<OnUserResolvedListener> callbacks = waiting.get(uid);
+        if (callbacks != null) {
+            // Lookup already queued or running, just wait for it
+            callbacks.add(listener);
+            return;
+        }
+        callbacks = new ArrayList<>();
+        callbacks.add(listener);
+        waiting.put(uid, callbacks);
+        queued.add(uid);
+
+        // Collect everything requested in this frame into as few queries as possible
+        if (!flushScheduled) {
+            flushScheduled = true;
+            mainHandler.post(this::flush);
+        }
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        List<String> uids = new ArrayList<>(queued);
+        queued.clear();
+
+        for (int i = 0; i < uids.size(); i += BATCH_SIZE) {
+            List<String> batch = new ArrayList<>(uids.subList(i, Math.min(i + BATCH_SIZE, uids.size())));
+            fetchBatch(batch);
+        }
+    }
+
+    private void fetchBatch(List<String> batch) {
+        db.collection(COLLECTION_USERS)
+                .whereIn(FieldPath.documentId(), batch)
+                .get()
+                .addOnSuccessListener(querySnapshot -> {
+                    long now = System.currentTimeMillis();
+                    Map<String, UserInfo> found = new HashMap<>();
+                    for (DocumentSnapshot document : querySnapshot.getDocuments()) {
+                        UserInfo user = parseUser(document, now);
+                        cache.put(user.getUid(), user);
+                        found.put(user.getUid(), user);
+                    }
+                    for (String uid : batch) {
+                        UserInfo user = found.get(uid);
+                        if (user == null) {
+                            // Only a successful read proves the document is gone, failures are not remembered
+                            cache.put(uid, UserInfo.tombstone(uid, now));
+                        }
+                        deliver(uid, user);
+                        if (user != null) {
+                            notifyUpdated(user);
+                        }
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error loading user batch", e);
+                    // Fall back to whatever we had cached before
+                    for (String uid : batch) {
+                        UserInfo cached = cache.get(uid);
+                        deliver(uid, cached != null && !cached.isMissing() ? cached : null);
+                    }
+                });
+    }
+
+    private UserInfo parseUser(DocumentSnapshot document, long fetchedAt) {
+        String name = document.getString("name");
+        if (name == null || name.trim().isEmpty()) {
+            name = document.getString("username");
+        }
+        String avatarUrl = document.getString("avatarUrl");
+        Double credibilityScore = document.getDouble("credibilityScore");
+        return new UserInfo(document.getId(), name, avatarUrl, credibilityScore != null ? credibilityScore : 0,
+                fetchedAt, false);
+    }
+
+    private void deliver(String uid, UserInfo user) {
+        List<OnUserResolvedListener> callbacks = waiting.remove(uid);
+        if (callbacks == null) return;
+        for (OnUserResolvedListener callback : callbacks) {
+            callback.onUserResolved(uid, user);
+        }
+    }
+
+    private void notifyUpdated(UserInfo user) {
+        for (OnUserUpdatedListener listener : updateListeners) {
+            listener.onUserUpdated(user);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.food.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.food.cache.ProfileCacheManager;
+import com.example.food.data.Review;
+import com.example.food.data.UserProfile;
+import com.example.food.model.Restaurant;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Fills the caches in the background right after sign-in, so the first visit to each tab
+ * finds its data in memory. Tasks run in priority order, at most MAX_CONCURRENT at a time,
+ * and no new task starts while the visible screen has a query of its own in flight.
+ * All methods are called on the main thread.
+ */
+public class WarmupScheduler {
+    private static final String TAG = "WarmupScheduler";
+    private static final int MAX_CONCURRENT = 2;
+    private static final long FOREGROUND_TIMEOUT = 5000; // A foreground query that never finishes stops blocking after this
+    private static final int MAX_CROWD_RESTAURANTS = 8;
+    private static final String PREFS_NAME = "warmup_prefs";
+    private static final String KEY_MAP_REGION = "last_map_region";
+
+    /**
+     * Lower ordinal runs first
+     */
+    public enum Priority {
+        PROFILE, FEED, CATALOG, CROWD
+    }
+
+    public interface Task {
+        /**
+         * Start the work and call done once it has finished or failed
+         */
+        void run(Runnable done);
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        final Priority priority;
+        final long sequence;
+        final String name;
+        final Task task;
+
+        Entry(Priority priority, long sequence, String name, Task task) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.name = name;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static WarmupScheduler instance;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private final Runnable pumpRunnable = this::pump;
+    private long sequence;
+    private int running;
+    private int foregroundCount;
+    private long foregroundSince;
+    private String startedFor;
+
+    private WarmupScheduler() {
+    }
+
+    public static synchronized WarmupScheduler getInstance() {
+        if (instance == null) {
+            instance = new WarmupScheduler();
+        }
+        return instance;
+    }
+
+    /**
+     * Queue the standard warmup for the signed-in user, once per user and process
+     */
+    public void start(Context context) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null || user.getUid().equals(startedFor)) {
+            return;
+        }
+        startedFor = user.getUid();
+        Context appContext = context.getApplicationContext();
+        String uid = user.getUid();
+
+        enqueue(Priority.PROFILE, "own profile", done -> {
+            boolean[] finished = {false};
+            // A stale profile is delivered first and revalidated after, the task ends on the first answer
+            ProfileCacheManager.getInstance(appContext).getUserProfile(uid, new ProfileCacheManager.ProfileCallback() {
+                @Override
+                public void onProfileLoaded(UserProfile profile, boolean fromNetwork) {
+                    if (!finished[0]) {
+                        finished[0] = true;
+                        done.run();
+                    }
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    if (!finished[0]) {
+                        finished[0] = true;
+                        done.run();
+                    }
+                }
+            });
+        });
+        enqueue(Priority.FEED, "first feed page", done ->
+                new ReviewService().loadReviewPage(null, new ReviewService.ReviewPageCallback() {
+                    @Override
+                    public void onSuccess(ReviewService.ReviewPage page) {
+                        warmAuthors(page.getReviews(), done);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        done.run();
+                    }
+                }));
+        enqueue(Priority.CATALOG, "restaurant catalog", done -> RestaurantRepository.getInstance().whenReady(done::run));
+        LatLngBounds region = loadMapRegion(appContext);
+        if (region != null) {
+            enqueue(Priority.CROWD, "crowd summaries", done -> warmCrowdDensity(region, done));
+        }
+    }
+
+    public void enqueue(Priority priority, String name, Task task) {
+        queue.add(new Entry(priority, sequence++, name, task));
+        // Posted, so queries the visible screen starts in the same frame register first
+        handler.post(pumpRunnable);
+    }
+
+    /**
+     * The visible screen started a query, warmup waits until it finishes
+     */
+    public void foregroundStarted() {
+        if (foregroundCount == 0) {
+            foregroundSince = SystemClock.elapsedRealtime();
+        }
+        foregroundCount++;
+    }
+
+    public void foregroundFinished() {
+        if (foregroundCount > 0) {
+            foregroundCount--;
+        }
+        pump();
+    }
+
+    /**
+     * Remember the map viewport, the next start warms crowd levels for it
+     */
+    public static void saveMapRegion(Context context, LatLngBounds bounds) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putString(KEY_MAP_REGION, bounds.southwest.latitude + "," + bounds.southwest.longitude
+                        + "," + bounds.northeast.latitude + "," + bounds.northeast.longitude)
+                .apply();
+    }
+
+    private static LatLngBounds loadMapRegion(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String value = prefs.getString(KEY_MAP_REGION, null);
+        if (value == null) {
+            return null;
+        }
+        try {
+            String[] parts = value.split(",");
+            return new LatLngBounds(new LatLng(Double.parseDouble(parts[0]), Double.parseDouble(parts[1])),
+                    new LatLng(Double.parseDouble(parts[2]), Double.parseDouble(parts[3])));
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Ignoring unreadable map region: " + value, e);
+            return null;
+        }
+    }
+
+    private void pump() {
+        handler.removeCallbacks(pumpRunnable);
+        if (foregroundCount > 0) {
+            long waited = SystemClock.elapsedRealtime() - foregroundSince;
+            if (waited < FOREGROUND_TIMEOUT) {
+                handler.postDelayed(pumpRunnable, FOREGROUND_TIMEOUT - waited);
+                return;
+            }
+            // Something never reported back, stop waiting on it
+            foregroundCount = 0;
+        }
+
+        while (running < MAX_CONCURRENT && !queue.isEmpty()) {
+            Entry entry = queue.poll();
+            running++;
+            long start = SystemClock.elapsedRealtime();
+            boolean[] finished = {false};
+            entry.task.run(() -> handler.post(() -> {
+                if (finished[0]) return;
+                finished[0] = true;
+                running--;
+                Log.d(TAG, "Warmed " + entry.name + " in " + (SystemClock.elapsedRealtime() - start) + "ms");
+                pump();
+            }));
+        }
+    }
+
+    private static void warmAuthors(List<Review> reviews, Runnable done) {
+        Set<String> userIds = new HashSet<>();
+        for (Review review : reviews) {
+            if (review.getUserId() != null && !review.hasAuthorSnapshot()) {
+                userIds.add(review.getUserId());
+            }
+        }
+        UserDirectory.getInstance().getUsers(userIds, users -> done.run());
+    }
+
+    private static void warmCrowdDensity(LatLngBounds region, Runnable done) {
+        RestaurantRepository.getInstance().whenReady(() -> {
+            LatLng center = region.getCenter();
+            List<Restaurant> inRegion = new ArrayList<>();
+            for (Restaurant restaurant : RestaurantRepository.getInstance().getAllRestaurants()) {
+                if (restaurant.getId() != null
+                        && region.contains(new LatLng(restaurant.getLatitude(), restaurant.getLongitude()))) {
+                    inRegion.add(restaurant);
+                }
+            }
+            if (inRegion.isEmpty()) {
+                done.run();
+                return;
+            }
+            // Closest to where the map was left first
+            Collections.sort(inRegion, (a, b) -> Double.compare(
+                    squaredDistance(center, a.getLatitude(), a.getLongitude()),
+                    squaredDistance(center, b.getLatitude(), b.getLongitude())));
+            List<Restaurant> targets = inRegion.subList(0, Math.min(MAX_CROWD_RESTAURANTS, inRegion.size()));
+
+            CrowdDensityService crowdDensityService = new CrowdDensityService();
+            int[] remaining = {targets.size()};
+            for (Restaurant restaurant : targets) {
+                crowdDensityService.calculateCrowdDensity(restaurant.getId(), new CrowdDensityService.CrowdDensityCallback() {
+                    @Override
+                    public void onSuccess(CrowdDensityService.CrowdDensityResult result) {
+                        if (--remaining[0] == 0) done.run();
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        if (--remaining[0] == 0) done.run();
+                    }
+                });
+            }
+        });
+    }
+
+    private static double squaredDistance(LatLng center, double latitude, double longitude) {
+        double dLat = latitude - center.latitude;
+        double dLng = longitude - center.longitude;
+        return dLat * dLat + dLng * dLng;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.food.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executor for turning Firestore snapshots into model objects off the main thread.
+ * Pass executor() to addOnCompleteListener/addOnSuccessListener, decode there, then hand the
+ * finished list back with a single postToMain.
+ */
+public final class BackgroundDecoder {
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-decode-" + threadCount.incrementAndGet());
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private BackgroundDecoder() {
+    }
+
+    public static Executor executor() {
+        return executor;
+    }
+
+    public static void postToMain(Runnable runnable) {
+        mainHandler.post(runnable);
+    }
+}
@@ -3,7 +3,9 @@ package com.example.food.utils;
 import android.util.Log;
 
 import com.example.food.data.Review;
+import com.example.food.data.ReviewCodec;
 import com.example.food.model.Restaurant;
+import com.example.food.service.RestaurantRepository;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 
@@ -148,29 +150,20 @@ public class ScoreCalculator {
     public static void calculateUserStats(String userId, FirebaseFirestore db, OnStatsCalculatedListener listener) {
         Log.d(TAG, "Calculating stats for user: " + userId);
 
-        // get user reviews
+        // get user reviews, decoded off the main thread
         db.collection("reviews")
                 .whereEqualTo("userId", userId)
                 .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
+                .addOnSuccessListener(BackgroundDecoder.executor(), queryDocumentSnapshots -> {
                     List<Review> reviews = new ArrayList<>();
                     for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
                         try {
-                            Review review = document.toObject(Review.class);
-                            review.setId(document.getId());
-                            review.refreshAccuracyFromVotes(); // Calculate accuracy from votes
-                            reviews.add(review);
+                            reviews.add(ReviewCodec.decode(document.getId(), document.getData()));
                         } catch (Exception e) {
                             Log.e(TAG, "Error parsing review: " + document.getId(), e);
                         }
                     }
 
-                    if (reviews.isEmpty()) {
-                        Map<String, Object> emptyStats = createEmptyStats();
-                        listener.onStatsCalculated(emptyStats, 0.0, 0.0);
-                        return;
-                    }
-
                     // get restaurant ids
                     Set<String> restaurantIds = new HashSet<>();
                     for (Review review : reviews) {
@@ -179,14 +172,14 @@ public class ScoreCalculator {
                         }
                     }
 
-                    if (restaurantIds.isEmpty()) {
-                        Map<String, Object> emptyStats = createEmptyStats();
-                        listener.onStatsCalculated(emptyStats, 0.0, 0.0);
-                        return;
-                    }
-
-                    fetchRestaurantsAndCalculateStats(db, reviews, restaurantIds, listener);
-
+                    BackgroundDecoder.postToMain(() -> {
+                        if (reviews.isEmpty() || restaurantIds.isEmpty()) {
+                            Map<String, Object> emptyStats = createEmptyStats();
+                            listener.onStatsCalculated(emptyStats, 0.0, 0.0);
+                            return;
+                        }
+                        fetchRestaurantsAndCalculateStats(reviews, restaurantIds, listener);
+                    });
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error fetching reviews for user: " + userId, e);
@@ -194,58 +187,17 @@ public class ScoreCalculator {
                 });
     }
 
-    private static void fetchRestaurantsAndCalculateStats(FirebaseFirestore db, List<Review> reviews, 
-                                                         Set<String> restaurantIds, OnStatsCalculatedListener listener) {
-        Map<String, Restaurant> restaurantMap = new HashMap<>();
-        int[] fetchCount = {0};
-        int totalRestaurants = restaurantIds.size();
-
-        if (totalRestaurants == 0) {
+    private static void fetchRestaurantsAndCalculateStats(List<Review> reviews, Set<String> restaurantIds,
+                                                         OnStatsCalculatedListener listener) {
+        RestaurantRepository repository = RestaurantRepository.getInstance();
+        repository.whenReady(() -> {
+            // Restaurants missing from the catalog are skipped, stats use partial data
+            Map<String, Restaurant> restaurantMap = repository.getRestaurants(restaurantIds);
             Map<String, Object> stats = calculateStatsFromData(reviews, restaurantMap);
             double credibilityScore = calculateCredibilityScore(stats);
             double experienceScore = calculateExperienceScore(stats);
             listener.onStatsCalculated(stats, credibilityScore, experienceScore);
-            return;
-        }
-
-        for (String restaurantId : restaurantIds) {
-            db.collection("restaurants")
-                    .document(restaurantId)
-                    .get()
-                    .addOnSuccessListener(documentSnapshot -> {
-                        if (documentSnapshot.exists()) {
-                            try {
-                                Restaurant restaurant = documentSnapshot.toObject(Restaurant.class);
-                                if (restaurant != null) {
-                                    restaurant.setId(documentSnapshot.getId());
-                                    restaurantMap.put(restaurantId, restaurant);
-                                }
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error parsing restaurant: " + restaurantId, e);
-                            }
-                        }
-
-                        fetchCount[0]++;
-                        if (fetchCount[0] >= totalRestaurants) {
-                            // All restaurants fetched, calculate stats
-                            Map<String, Object> stats = calculateStatsFromData(reviews, restaurantMap);
-                            double credibilityScore = calculateCredibilityScore(stats);
-                            double experienceScore = calculateExperienceScore(stats);
-                            listener.onStatsCalculated(stats, credibilityScore, experienceScore);
-                        }
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Error fetching restaurant: " + restaurantId, e);
-                        fetchCount[0]++;
-                        if (fetchCount[0] >= totalRestaurants) {
-                            // Continue with partial data
-                            Map<String, Object> stats = calculateStatsFromData(reviews, restaurantMap);
-                            double credibilityScore = calculateCredibilityScore(stats);
-                            double experienceScore = calculateExperienceScore(stats);
-                            listener.onStatsCalculated(stats, credibilityScore, experienceScore);
-                        }
-                    });
-        }
+        });
     }
 
     private static Map<String, Object> calculateStatsFromData(List<Review> reviews, Map<String, Restaurant> restaurantMap) {
@@ -278,17 +230,12 @@ public class ScoreCalculator {
         int reviewsWithVotes = 0;
 
         for (Review review : reviews) {
-            if (review.getVotes() != null && !review.getVotes().isEmpty()) {
-                int reviewVotes = review.getVotes().size();
+            // Counters are kept by ReviewService.vote, no need to walk the votes map
+            if (review.getTotalVotes() > 0) {
+                int reviewVotes = review.getTotalVotes();
                 totalVotes += reviewVotes;
 
-                int reviewAccurate = 0;
-                for (Map<String, Object> voteData : review.getVotes().values()) {
-                    Boolean vote = (Boolean) voteData.get("accurate");
-                    if (vote != null && vote) {
-                        reviewAccurate++;
-                    }
-                }
+                int reviewAccurate = review.getAccurateCount();
                 int reviewInaccurate = reviewVotes - reviewAccurate;
 
                 accurateVotes += reviewAccurate;
@@ -0,0 +1,191 @@
+package com.example.food
+
+import com.example.food.cache.ProfileCodec
+import com.example.food.cache.ProfileCodecTest
+import com.example.food.data.UserProfile
+import com.example.food.search.RestaurantNameIndex
+import com.example.food.search.RestaurantNameIndexTest
+import com.example.food.search.ReviewRanker
+import com.example.food.search.ReviewRankerTest
+import com.example.food.search.ReviewSearchIndex
+import com.example.food.search.ReviewSearchIndexTest
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+import org.junit.Ignore
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import kotlin.random.Random
+
+/**
+ * Timings of the search indexes and caches against the code they replaced, run by hand.
+ * Each run appends one line to build/reports/benchmarks/<name>.txt, so nothing is printed and
+ * nothing depends on wall-clock time in the regular test task. What the timed code returns is
+ * checked by the matching *Test class.
+ */
+@Ignore("Manual benchmarks")
+class ManualBenchmarks {
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    @Test
+    fun reviewSearchIndexAt10k() {
+        timeReviewSearch(10_000)
+    }
+
+    @Test
+    fun reviewSearchIndexAt100k() {
+        timeReviewSearch(100_000)
+    }
+
+    private fun timeReviewSearch(count: Int) {
+        val reviews = ReviewSearchIndexTest.sampleReviews(count)
+        val queries = ReviewSearchIndexTest.QUERIES
+        val index = ReviewSearchIndex()
+        var start = System.nanoTime()
+        reviews.forEach { index.put(it[0]!!, it[1], it[2], it[3], it[4]) }
+        val buildTime = System.nanoTime() - start
+
+        var indexTime = 0L
+        var scanTime = 0L
+        repeat(ROUNDS) {
+            for (query in queries) {
+                start = System.nanoTime()
+                index.search(query)
+                indexTime += System.nanoTime() - start
+
+                start = System.nanoTime()
+                ReviewSearchIndexTest.scan(reviews, query)
+                scanTime += System.nanoTime() - start
+            }
+        }
+
+        val searches = ROUNDS * queries.size
+        record("ReviewSearchIndex", "$count reviews: index build=${buildTime / 1_000_000}ms, " +
+                "per query index=${indexTime / searches / 1000}us scan=${scanTime / searches / 1000}us")
+    }
+
+    /**
+     * Restaurant autocomplete against the ArrayAdapter prefix scan
+     */
+    @Test
+    fun restaurantNameIndexAt50k() {
+        val restaurants = RestaurantNameIndexTest.sampleRestaurants(50_000)
+        val queries = RestaurantNameIndexTest.QUERIES
+        var start = System.nanoTime()
+        val index = RestaurantNameIndex(restaurants)
+        val buildTime = System.nanoTime() - start
+
+        var indexTime = 0L
+        var scanTime = 0L
+        repeat(ROUNDS) {
+            for (query in queries) {
+                start = System.nanoTime()
+                index.search(query, -37.81, 144.96, 20)
+                indexTime += System.nanoTime() - start
+
+                start = System.nanoTime()
+                restaurants.filter { it.name.lowercase().startsWith(query) }
+                scanTime += System.nanoTime() - start
+            }
+        }
+
+        val searches = ROUNDS * queries.size
+        record("RestaurantNameIndex", "${restaurants.size} places: index build=${buildTime / 1_000_000}ms, " +
+                "per query index=${indexTime / searches / 1000}us scan=${scanTime / searches / 1000}us")
+    }
+
+    /**
+     * Cold-read and write cost of the binary profile cache against Gson. The Gson side keeps every
+     * profile in one file, like the SharedPreferences XML did, so a cold read parses all entries
+     * to reach one of them.
+     */
+    @Test
+    fun profileCodecAgainstGson() {
+        val gson = Gson()
+        val profiles = (0 until PROFILE_COUNT).map { ProfileCodecTest.sampleProfile(it) }
+        val binaryDir = folder.newFolder("binary")
+        val gsonFile = File(folder.root, "profile_cache.json")
+        val entries = HashMap<String, String>()
+        val mapType = object : TypeToken<HashMap<String, String>>() {}.type
+
+        var gsonWrite = Long.MAX_VALUE
+        var binaryWrite = Long.MAX_VALUE
+        var gsonRead = Long.MAX_VALUE
+        var binaryRead = Long.MAX_VALUE
+        repeat(ROUNDS) {
+            var start = System.nanoTime()
+            for (profile in profiles) {
+                // SharedPreferences rewrites the whole file on every apply
+                entries[profile.uid] = gson.toJson(profile)
+                gsonFile.writeText(gson.toJson(entries))
+            }
+            gsonWrite = minOf(gsonWrite, System.nanoTime() - start)
+
+            start = System.nanoTime()
+            for (profile in profiles) {
+                File(binaryDir, profile.uid + ".bin").writeBytes(ProfileCodec.encode(profile, 0L))
+            }
+            binaryWrite = minOf(binaryWrite, System.nanoTime() - start)
+
+            start = System.nanoTime()
+            val all: HashMap<String, String> = gson.fromJson(gsonFile.readText(), mapType)
+            gson.fromJson(all["user_0"], UserProfile::class.java)
+            gsonRead = minOf(gsonRead, System.nanoTime() - start)
+
+            start = System.nanoTime()
+            ProfileCodec.decode(File(binaryDir, "user_0.bin").readBytes())
+            binaryRead = minOf(binaryRead, System.nanoTime() - start)
+        }
+
+        record("ProfileCodec", "$PROFILE_COUNT profiles: " +
+                "write gson=${gsonWrite / 1000}us binary=${binaryWrite / 1000}us, " +
+                "cold read gson=${gsonRead / 1000}us binary=${binaryRead / 1000}us")
+    }
+
+    /**
+     * Ranking one page of matches out of 10k indexed reviews
+     */
+    @Test
+    fun reviewRankerPage() {
+        val count = 10_000
+        val random = Random(11)
+        val ranker = ReviewRanker()
+        var start = System.nanoTime()
+        for (i in 0 until count) {
+            val dish = DISHES[random.nextInt(DISHES.size)]
+            ranker.put("r$i", "Dinner with friends", "${ReviewRankerTest.FILLER} someone ordered $dish",
+                "Cafe ${random.nextInt(200)}", "User ${random.nextInt(500)}",
+                ReviewRankerTest.NOW - random.nextLong(365 * ReviewRankerTest.DAY), random.nextDouble(0.0, 100.0),
+                "u${random.nextInt(500)}")
+        }
+        val buildTime = System.nanoTime() - start
+
+        val page = (0 until 20).map { "r$it" }
+        var pageTime = 0L
+        repeat(RANKER_ROUNDS) {
+            for (dish in DISHES) {
+                start = System.nanoTime()
+                ranker.rank(page, dish, ReviewRankerTest.NOW)
+                pageTime += System.nanoTime() - start
+            }
+        }
+        record("ReviewRanker", "$count reviews: index build=${buildTime / 1_000_000}ms, " +
+                "per page=${pageTime / (RANKER_ROUNDS * DISHES.size) / 1000}us")
+    }
+
+    private fun record(name: String, line: String) {
+        val dir = File("build/reports/benchmarks")
+        dir.mkdirs()
+        File(dir, "$name.txt").appendText(line + "\n")
+    }
+
+    companion object {
+        private const val ROUNDS = 5
+        // Ranking a page is cheap, more rounds keep the total above timer noise
+        private const val RANKER_ROUNDS = 50
+        private const val PROFILE_COUNT = 100
+        private val DISHES = listOf("laksa", "ramen", "pho", "dumplings", "tacos", "curry")
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.food.cache
+
+import com.example.food.data.UserProfile
+import com.google.gson.Gson
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * The binary profile cache format against the Gson JSON it replaced.
+ */
+class ProfileCodecTest {
+    private val gson = Gson()
+
+    @Test
+    fun roundTripKeepsFieldsAndStatTypes() {
+        val profile = sampleProfile(7)
+        val record = ProfileCodec.decode(ProfileCodec.encode(profile, 1234L))!!
+
+        assertEquals(1234L, record.cachedAt)
+        assertEquals(profile.uid, record.profile.uid)
+        assertEquals(profile.name, record.profile.name)
+        assertEquals(profile.bio, record.profile.bio)
+        assertEquals(profile.avatarUrl, record.profile.avatarUrl)
+        assertEquals(profile.createdAt, record.profile.createdAt)
+        assertEquals(profile.credibilityScore, record.profile.credibilityScore, 0.0)
+        // Counts stay integral, Gson turned them into Double
+        assertEquals(12L, record.profile.stats["totalReviews"])
+        assertEquals(72.5, record.profile.stats["avgAccuracyPercent"])
+        assertEquals(listOf("Cafe", "Thai"), record.profile.stats["categoriesList"])
+        assertEquals("kept", record.profile.stats["someFutureStat"])
+    }
+
+    @Test
+    fun newerFormatIsAMiss() {
+        val data = ProfileCodec.encode(sampleProfile(1), 0L)
+        data[4] = (ProfileCodec.FORMAT_VERSION + 1).toByte()
+        assertNull(ProfileCodec.decode(data))
+    }
+
+    @Test
+    fun binaryEntryIsSmallerThanJson() {
+        val profile = sampleProfile(0)
+        val fromBinary = ProfileCodec.decode(ProfileCodec.encode(profile, 0L))!!.profile
+        val fromGson = gson.fromJson(gson.toJson(profile), UserProfile::class.java)
+        assertEquals(fromGson.name, fromBinary.name)
+        assertTrue(ProfileCodec.encode(profile, 0L).size < gson.toJson(profile).toByteArray().size)
+    }
+
+    companion object {
+        internal fun sampleProfile(i: Int): UserProfile {
+            val profile = UserProfile("user_$i", "User $i", "user$i@example.com", "Eats around Melbourne, review #$i")
+            profile.avatarUrl = "https://example.com/avatars/user_$i.jpg"
+            profile.credibilityScore = 64.0
+            profile.experienceScore = 38.0
+            profile.stats = hashMapOf<String, Any>(
+                "totalReviews" to 12,
+                "daysActive" to 40L,
+                "totalVotes" to 30,
+                "accurateVotes" to 22,
+                "inaccurateVotes" to 8,
+                "avgAccuracyPercent" to 72.5,
+                "uniqueRestaurants" to 9,
+                "uniqueCategories" to 2,
+                "uniqueRegions" to 3,
+                "categoriesList" to listOf("Cafe", "Thai"),
+                "regionsList" to listOf("CBD", "Carlton", "Fitzroy"),
+                "repeatedRestaurants" to 1,
+                "totalCommentsMade" to 0,
+                "totalCommentsReceived" to 4,
+                "totalCommentLikesReceived" to 0,
+                "someFutureStat" to "kept"
+            )
+            return profile
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.food.search
+
+import com.example.food.model.Restaurant
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import kotlin.random.Random
+
+/**
+ * Restaurant autocomplete through the name index against the ArrayAdapter filter it replaced,
+ * which scanned every name for one starting with the query.
+ */
+class RestaurantNameIndexTest {
+
+    @Test
+    fun toleratesTypos() {
+        val index = RestaurantNameIndex(listOf(
+            restaurant("a", "Chinatown Noodle House"),
+            restaurant("b", "Lune Croissanterie"),
+            restaurant("c", "Grill'd Burgers")
+        ))
+        assertEquals(listOf("a"), ids(index.search("chinatwn", Double.NaN, Double.NaN, 5)))
+        assertEquals(listOf("b"), ids(index.search("croisant", Double.NaN, Double.NaN, 5)))
+        assertEquals(listOf("c"), ids(index.search("grilld", Double.NaN, Double.NaN, 5)))
+        assertEquals(listOf("b"), ids(index.search("lu", Double.NaN, Double.NaN, 5)))
+    }
+
+    @Test
+    fun duplicateNamesRankNearestFirst() {
+        val far = restaurant("far", "Cafe Dolce", -37.90, 145.10)
+        val near = restaurant("near", "Café Dolce", -37.81, 144.96)
+        val index = RestaurantNameIndex(listOf(far, near))
+        assertEquals(listOf("near", "far"), ids(index.search("cafe dolce", -37.81, 144.96, 5)))
+        assertTrue(index.hasDuplicateName(far))
+    }
+
+    @Test
+    fun typedMatchesComeBeforeTypos() {
+        val restaurants = sampleRestaurants(2_000)
+        val index = RestaurantNameIndex(restaurants)
+        for (query in QUERIES) {
+            val fromIndex = index.search(query, -37.81, 144.96, 20)
+            val fromScan = restaurants.filter { it.name.lowercase().startsWith(query) }
+            // Typo matches never push out a name that has every query word as typed
+            for (restaurant in fromIndex.take(minOf(fromScan.size, 20))) {
+                val words = restaurant.name.lowercase().split(" ")
+                assertTrue("query '$query'", query.split(" ").all { part -> words.any { it.startsWith(part) } })
+            }
+        }
+    }
+
+    private fun ids(restaurants: List<Restaurant>) = restaurants.map { it.id }
+
+    companion object {
+        private val WORDS = listOf(
+            "golden", "dragon", "noodle", "house", "cafe", "bar", "kitchen", "pho", "sushi", "grill",
+            "pizza", "bakery", "thai", "garden", "lotus", "corner", "little", "royal", "bistro", "tavern"
+        )
+        internal val QUERIES = listOf("golden", "sushi gr", "lotus garden", "bistr", "p")
+
+        internal fun sampleRestaurants(count: Int): List<Restaurant> {
+            val random = Random(7)
+            return (0 until count).map { i ->
+                val name = (0 until 1 + random.nextInt(3)).joinToString(" ") { WORDS[random.nextInt(WORDS.size)] } + " $i"
+                restaurant("r$i", name, -37.8 + random.nextDouble(0.2), 144.9 + random.nextDouble(0.2))
+            }
+        }
+
+        private fun restaurant(id: String, name: String, latitude: Double = -37.81, longitude: Double = 144.96) =
+            Restaurant(id, name, "1 Example St", latitude, longitude, "Restaurant", "Melbourne")
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.food.search
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * Ordering properties of search ranking against the feed's createdAt order it replaced.
+ */
+class ReviewRankerTest {
+
+    @Test
+    fun priorsBreakTextTies() {
+        val ranker = ReviewRanker()
+        val now = 400 * DAY
+        ranker.put("old", "Great laksa", null, "Noodle Bar", null, now - 200 * DAY, 90.0, "u1")
+        ranker.put("new", "Great laksa", null, "Noodle Bar", null, now - DAY, 90.0, "u1")
+        ranker.put("inaccurate", "Great laksa", null, "Noodle Bar", null, now - DAY, 10.0, "u1")
+        assertEquals(listOf("new", "inaccurate", "old"), ranker.rank(listOf("old", "inaccurate", "new"), "laksa", now))
+
+        ranker.put("credible", "Great laksa", null, "Noodle Bar", null, now - 200 * DAY, 90.0, "u2")
+        ranker.setCredibility("u2", 120.0)
+        assertTrue(ranker.rank(listOf("old", "credible"), "laksa", now).first() == "credible")
+    }
+
+    @Test
+    fun wholeWordMatchesBeatSubstrings() {
+        val ranker = ReviewRanker()
+        ranker.put("word", "Pho night", null, null, null, DAY, 0.0, null)
+        ranker.put("inside", "Phone died mid meal", null, null, null, 2 * DAY, 0.0, null)
+        assertEquals(listOf("word", "inside"), ranker.rank(listOf("inside", "word"), "pho", 3 * DAY))
+        // The last word may still be typed
+        assertTrue(ranker.relevance("word", "nig") > 0)
+        assertEquals(0.0, ranker.relevance("word", "nig burger"), 0.0)
+    }
+
+    @Test
+    fun authorOnlyMatchesAreScored() {
+        val ranker = ReviewRanker()
+        val now = 400 * DAY
+        ranker.put("byPriya", "Flat white", "Quick coffee", "Cafe Dolce", "Priya Shah", now - 100 * DAY, 50.0, "u1")
+        ranker.put("mentions", "Lunch", "Priya said the laksa was better elsewhere", "Noodle Bar", "Sam Lee",
+            now - DAY, 90.0, "u2")
+        ranker.put("other", "Sapriya sweets", null, "Noodle Bar", "Sam Lee", now - DAY, 90.0, "u2")
+        assertTrue(ranker.relevance("byPriya", "priya") > 0)
+        // The author match outranks a passing mention in a long text and a substring, despite weaker priors
+        assertEquals(listOf("byPriya", "mentions", "other"),
+            ranker.rank(listOf("other", "mentions", "byPriya"), "priya", now))
+    }
+
+    @Test
+    fun dishReviewsOutrankPassingMentions() {
+        val ranker = ReviewRanker()
+        for (i in 0 until 20) {
+            ranker.put("bg$i", "Nice coffee", FILLER, "Cafe $i", "User $i", NOW - i * DAY, 0.0, "u$i")
+        }
+        val about = "the broth was rich and the laksa was worth the wait"
+        ranker.put("aboutOld", "Best laksa in town", about, "Laksa House", "Ann Ng", NOW - 300 * DAY, 60.0, "u1")
+        ranker.put("aboutNew", "Best laksa in town", about, "Laksa House", "Ann Ng", NOW - 10 * DAY, 60.0, "u1")
+        // Newer, more accurate and by a credible author, but the dish is one word in a long text
+        ranker.put("mention", "Dinner with friends", "$FILLER someone ordered laksa $FILLER", "Corner Bistro", "Ben Ko",
+            NOW - DAY, 95.0, "u2")
+        ranker.setCredibility("u2", 200.0)
+        // Newest of all, the query only starts a longer word
+        ranker.put("lookalike", "Quick lunch", "$FILLER laksaland $FILLER", "Food Court", "Cy Li", NOW, 100.0, "u2")
+
+        val feedOrder = listOf("lookalike", "mention", "aboutNew", "aboutOld")
+        assertEquals(listOf("aboutNew", "aboutOld", "mention", "lookalike"), ranker.rank(feedOrder, "laksa", NOW))
+    }
+
+    companion object {
+        internal const val DAY = 24L * 60 * 60 * 1000
+        internal const val NOW = 2_000L * DAY
+        internal const val FILLER = "the service was friendly and quick we sat outside prices fair would come back portion generous"
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.food.search
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import kotlin.random.Random
+
+/**
+ * Feed search through the trigram index against the per-keystroke scan it replaced, which
+ * lowercased every field of every loaded review and ran contains on each.
+ * Both must return the same reviews in the same order.
+ */
+class ReviewSearchIndexTest {
+
+    @Test
+    fun updatesReplaceAndRemoveEntries() {
+        val index = ReviewSearchIndex()
+        index.put("a", "Great laksa", "Lunch", "Chinatown Noodle", null)
+        index.put("b", "Flat white", null, "Cafe Dolce", "Sam")
+        assertEquals(listOf("a"), index.search("LAKSA"))
+
+        // Author name arrives later
+        index.put("a", "Great laksa", "Lunch", "Chinatown Noodle", "Priya")
+        assertEquals(listOf("a"), index.search("priya"))
+        assertEquals(listOf("a"), index.search("laksa"))
+
+        index.remove("a")
+        assertEquals(emptyList<String>(), index.search("laksa"))
+        assertEquals(listOf("b"), index.search("a"))
+        assertEquals(1, index.size())
+    }
+
+    @Test
+    fun matchesDoNotSpanFields() {
+        val index = ReviewSearchIndex()
+        index.put("a", "ends with pho", "noodles")
+        assertEquals(emptyList<String>(), index.search("pho noodles"))
+        assertEquals(listOf("a"), index.search("with pho"))
+    }
+
+    @Test
+    fun refiningMatchesAFreshSearch() {
+        val index = ReviewSearchIndex()
+        sampleReviews(2000).forEach { index.put(it[0]!!, it[1], it[2], it[3], it[4]) }
+        var previous = index.search("r")
+        for (query in listOf("ra", "ram", "rame", "ramen", "ramen1", "ramen12")) {
+            previous = index.refine(previous, query)
+            assertEquals("query '$query'", index.search(query), previous)
+        }
+    }
+
+    @Test
+    fun compactionKeepsResults() {
+        val index = ReviewSearchIndex()
+        repeat(3000) { i -> index.put("r$i", "caption $i", "version 1") }
+        repeat(3000) { i -> index.put("r$i", "caption $i", "version 2") }
+        assertEquals(3000, index.size())
+        assertEquals(emptyList<String>(), index.search("version 1"))
+        assertEquals(listOf("r2999"), index.search("caption 2999"))
+    }
+
+    @Test
+    fun indexMatchesScan() {
+        val reviews = sampleReviews(10_000)
+        val index = ReviewSearchIndex()
+        reviews.forEach { index.put(it[0]!!, it[1], it[2], it[3], it[4]) }
+        for (query in QUERIES) {
+            assertEquals("query '$query'", scan(reviews, query), index.search(query))
+        }
+    }
+
+    companion object {
+        private val WORDS = listOf(
+            "ramen", "sushi", "laksa", "coffee", "brunch", "dumpling", "pho", "pizza", "gelato", "burger",
+            "taco", "curry", "noodle", "bakery", "toast", "latte", "spicy", "crispy", "cheap", "cozy"
+        )
+        internal val QUERIES = listOf("ramen12", "Restaurant 42", "user1999", "spicy3 ", "zzz", "tried the pho")
+
+        internal fun scan(reviews: List<Array<String?>>, query: String): List<String> {
+            val lowerCaseQuery = query.lowercase().trim()
+            return reviews.filter { review ->
+                (1..4).any { field -> review[field]?.lowercase()?.contains(lowerCaseQuery) == true }
+            }.map { it[0]!! }
+        }
+
+        internal fun sampleReviews(count: Int): List<Array<String?>> {
+            val random = Random(42)
+            return (0 until count).map { i ->
+                val description = (0 until 12).joinToString(" ") { WORDS[random.nextInt(WORDS.size)] + random.nextInt(50) }
+                arrayOf(
+                    "review_$i",
+                    description,
+                    "Tried the " + WORDS[random.nextInt(WORDS.size)],
+                    "Restaurant " + random.nextInt(500),
+                    if (random.nextInt(10) == 0) null else "User" + random.nextInt(2000)
+                )
+            }
+        }
+    }
+}